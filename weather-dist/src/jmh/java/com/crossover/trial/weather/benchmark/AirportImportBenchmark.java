@@ -0,0 +1,71 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.data.AirportImporter;
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.ImportResult;
+import com.crossover.trial.weather.utils.AirportsDatParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the airports.dat import on a synthetic file of quoted lines, parsing alone versus parsing and adding
+ * the airports to the store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AirportImportBenchmark {
+
+    @Param({"1000", "10000"})
+    public int airports;
+
+    private byte[] airportsDat;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder lines = new StringBuilder();
+        String[] codes = SyntheticAirports.iataCodes(airports);
+        for (int i = 0; i < airports; i++) {
+            String code = i < codes.length ? '"' + codes[i] + '"' : "\\N";
+            lines.append(String.format(Locale.ROOT,
+                    "%d,\"Airport %d, \"\"Main\"\"\",\"City %d\",\"Country\",%s,\"K%04d\",%.6f,%.6f,%d,%.1f,\"E\"\n",
+                    i, i, i, code, i % 10000, random.nextDouble() * 140 - 70, random.nextDouble() * 360 - 180,
+                    random.nextInt(5000), (double) (random.nextInt(24) - 12)));
+        }
+        airportsDat = lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        new AirportsDatParser(new AirportsDatParser.Listener() {
+            @Override
+            public void airport(int line, AirportData airportData) {
+                blackhole.consume(airportData);
+            }
+
+            @Override
+            public void malformed(int line, String message) {
+                blackhole.consume(message);
+            }
+        }).parse(ByteBuffer.wrap(airportsDat), true);
+    }
+
+    @Benchmark
+    public ImportResult importStream() throws IOException {
+        InformationDataStore.getInstance().clear();
+        return new AirportImporter(InformationDataStore.getInstance()).importStream(new ByteArrayInputStream(airportsDat));
+    }
+}
@@ -0,0 +1,79 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.endpoint.RestWeatherCollectorEndpoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minute of collector readings, six data point types per airport, sent record by record through the single
+ * update endpoint versus as one batch. Both run in process, so the difference is validation, parsing and merging.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchIngestionBenchmark {
+
+    @Param({"100", "1000"})
+    public int airports;
+
+    private RestWeatherCollectorEndpoint endpoint;
+
+    private String[] codes;
+
+    private String[] types;
+
+    private String[] dataPoints;
+
+    private byte[] batch;
+
+    @Setup
+    public void setUp() {
+        codes = SyntheticAirports.populate(InformationDataStore.getInstance(), airports);
+        endpoint = new RestWeatherCollectorEndpoint();
+        Gson gson = new Gson();
+        types = new String[DataPointType.values().length];
+        dataPoints = new String[types.length];
+        StringBuilder records = new StringBuilder("[");
+        for (DataPointType type : DataPointType.values()) {
+            types[type.ordinal()] = type.name().toLowerCase();
+            // a mean valid for every type
+            dataPoints[type.ordinal()] = gson.toJson(
+                    SyntheticAirports.dataPoint(type == DataPointType.PRESSURE ? 700 : 20));
+        }
+        for (String code : codes) {
+            for (int i = 0; i < types.length; i++) {
+                if (records.length() > 1) {
+                    records.append(',');
+                }
+                records.append("{\"iata\":\"").append(code).append("\",\"pointType\":\"").append(types[i])
+                        .append("\",\"dataPoint\":").append(dataPoints[i]).append('}');
+            }
+        }
+        batch = records.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void singleRecords(Blackhole blackhole) {
+        for (String code : codes) {
+            for (int i = 0; i < types.length; i++) {
+                blackhole.consume(endpoint.updateWeather(code, types[i], dataPoints[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    public Response batch() {
+        return endpoint.updateWeatherBatch(new ByteArrayInputStream(batch));
+    }
+}
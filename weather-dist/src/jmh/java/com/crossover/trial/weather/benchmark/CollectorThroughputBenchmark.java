@@ -0,0 +1,54 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the store side of a collector POST: resolve the airport by iata code and merge the reading.
+ * Lookups must stay flat as the airport set grows from 10 to 100k entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectorThroughputBenchmark {
+
+    @Param({"10", "10000", "100000"})
+    public int airports;
+
+    private InformationDataStore store;
+
+    private String[] codes;
+
+    private AtmosphericInformation reading;
+
+    @Setup
+    public void setUp() {
+        store = InformationDataStore.getInstance();
+        codes = SyntheticAirports.populate(store, airports);
+        reading = SyntheticAirports.reading();
+    }
+
+    @Benchmark
+    public AirportData findAirportData() {
+        return store.findAirportData(nextCode());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void collectorUpdate() {
+        AirportData airportData = store.findAirportData(nextCode());
+        store.updateDataPoint(airportData, reading);
+    }
+
+    private String nextCode() {
+        return codes[ThreadLocalRandom.current().nextInt(codes.length)];
+    }
+}
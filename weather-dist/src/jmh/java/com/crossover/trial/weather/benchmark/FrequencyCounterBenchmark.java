@@ -0,0 +1,57 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.data.FrequencyDataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The counting done by {@link com.crossover.trial.weather.interceptor.WeatherQueryFilter} for every query, with
+ * one thread, four threads and one thread per core. Aggregate throughput should grow with the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrequencyCounterBenchmark {
+
+    private static final Double[] RADII = {0.0, 10.0, 50.0, 100.0, 250.0, 500.0};
+
+    private FrequencyDataStore frequencyDataStore;
+
+    private String[] iataCodes;
+
+    @Setup
+    public void setUp() {
+        frequencyDataStore = FrequencyDataStore.getInstance();
+        frequencyDataStore.clear();
+        iataCodes = SyntheticAirports.iataCodes(1000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void countQuery1Thread() {
+        countQuery();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void countQuery4Threads() {
+        countQuery();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void countQueryAllCores() {
+        countQuery();
+    }
+
+    private void countQuery() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        frequencyDataStore.updateRequestFrequency(iataCodes[random.nextInt(iataCodes.length)]);
+        frequencyDataStore.updateRadiusFrequency(RADII[random.nextInt(RADII.length)]);
+    }
+}
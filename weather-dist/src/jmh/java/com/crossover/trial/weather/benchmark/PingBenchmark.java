@@ -0,0 +1,47 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.data.FrequencyDataStore;
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.endpoint.RestWeatherQueryEndpoint;
+import com.crossover.trial.weather.endpoint.WeatherQueryEndpoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WeatherQueryEndpoint#ping()} with every airport holding a reading and having been queried, which is the
+ * state a load balancer health check sees on a busy node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PingBenchmark {
+
+    @Param({"10", "10000", "100000"})
+    public int airports;
+
+    private WeatherQueryEndpoint queryEndpoint;
+
+    @Setup
+    public void setUp() {
+        InformationDataStore store = InformationDataStore.getInstance();
+        String[] codes = SyntheticAirports.populate(store, airports);
+        SyntheticAirports.populateWeather(store, codes);
+
+        FrequencyDataStore frequencyDataStore = FrequencyDataStore.getInstance();
+        frequencyDataStore.clear();
+        for (int i = 0; i < codes.length; i++) {
+            frequencyDataStore.updateRequestFrequency(codes[i]);
+            frequencyDataStore.updateRadiusFrequency((double) (i % 500));
+        }
+        queryEndpoint = new RestWeatherQueryEndpoint();
+    }
+
+    @Benchmark
+    public String ping() {
+        return queryEndpoint.ping();
+    }
+}
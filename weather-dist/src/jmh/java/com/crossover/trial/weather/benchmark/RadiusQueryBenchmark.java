@@ -0,0 +1,89 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.data.FrequencyDataStore;
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.endpoint.RestWeatherQueryEndpoint;
+import com.crossover.trial.weather.endpoint.WeatherQueryEndpoint;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WeatherQueryEndpoint#weather(String, String)} for single airports and growing radii, at several sizes of
+ * the airport set. Every airport has a reading so radius results are not filtered out as empty. The weather json is
+ * streamed when the entity is written, so it is written to the blackhole as Jersey would write it to the network.
+ * {@link WeatherQueryEndpoint#aggregate(String, String, String)} summarizes the same airports; its tree is built in
+ * the background during the warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadiusQueryBenchmark {
+
+    @Param({"10", "10000", "100000"})
+    public int airports;
+
+    @Param({"0", "50", "500", "2000"})
+    public String radius;
+
+    private WeatherQueryEndpoint queryEndpoint;
+
+    private String[] iataCodes;
+
+    @Setup
+    public void setUp() {
+        InformationDataStore store = InformationDataStore.getInstance();
+        SyntheticAirports.populateWeather(store, SyntheticAirports.populate(store, airports));
+        FrequencyDataStore.getInstance().clear();
+        iataCodes = SyntheticAirports.iataCodes(airports);
+        queryEndpoint = new RestWeatherQueryEndpoint();
+    }
+
+    @Benchmark
+    public int weather(Blackhole blackhole) throws IOException {
+        Response response = queryEndpoint.weather(iataCodes[ThreadLocalRandom.current().nextInt(iataCodes.length)],
+                radius);
+        BlackholeOutputStream output = new BlackholeOutputStream(blackhole);
+        ((StreamingOutput) response.getEntity()).write(output);
+        return output.count;
+    }
+
+    @Benchmark
+    public Response aggregate() {
+        return queryEndpoint.aggregate(iataCodes[ThreadLocalRandom.current().nextInt(iataCodes.length)], radius,
+                "wind");
+    }
+
+    /**
+     * Stands for the network buffer, handing the bytes to the blackhole.
+     */
+    private static final class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+        int count;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson serialization of {@link AtmosphericInformation}, alone and as the list returned by a radius query, against
+ * the streaming {@link AtmosphericInformationJsonWriter} of the query endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000"})
+    public int listSize;
+
+    private final Gson gson = new Gson();
+
+    private AtmosphericInformation atmosphericInformation;
+
+    private List<AtmosphericInformation> atmosphericInformationList;
+
+    @Setup
+    public void setUp() {
+        atmosphericInformation = new AtmosphericInformation.Builder()
+                .withWind(SyntheticAirports.dataPoint(22))
+                .withTemperature(SyntheticAirports.dataPoint(18))
+                .withHumidity(SyntheticAirports.dataPoint(60))
+                .withPressure(SyntheticAirports.dataPoint(700))
+                .withCloudCover(SyntheticAirports.dataPoint(30))
+                .withPrecipitation(SyntheticAirports.dataPoint(2))
+                .build();
+        atmosphericInformationList = new ArrayList<>();
+        for (int i = 0; i < listSize; i++) {
+            atmosphericInformationList.add(atmosphericInformation);
+        }
+    }
+
+    @Benchmark
+    public String single() {
+        return gson.toJson(atmosphericInformation);
+    }
+
+    @Benchmark
+    public String list() {
+        return gson.toJson(atmosphericInformationList);
+    }
+
+    @Benchmark
+    public int streamingList() throws IOException {
+        CountingOutputStream output = new CountingOutputStream();
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+        writer.beginArray();
+        for (AtmosphericInformation ai : atmosphericInformationList) {
+            writer.write(ai);
+        }
+        writer.endArray();
+        writer.flush();
+        return output.count;
+    }
+
+    /**
+     * Stands for the network buffer, only counting the bytes.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        int count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.WeatherServer;
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.endpoint.QueryExecutor;
+import com.crossover.trial.weather.utils.VirtualThreads;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many concurrent clients against the real server, with the platform worker pool and with a virtual thread per
+ * request.
+ * <p>
+ * Every invocation opens all the connections, sends a radius query on each, then reads the responses as they come.
+ * The responses are larger than the socket buffers, so a request holds its thread until its client has read it:
+ * with the platform pool only as many responses as workers are in flight. The radius queries run on the worker
+ * threads (weather.server.async=false) so that the worker pool is what is compared.
+ * <p>
+ * The virtual mode needs Java 21: mvn -Pjmh,virtual-threads test-compile exec:exec
+ * -Djmh.args="ServerThreadingBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerThreadingBenchmark {
+
+    private static final int PORT = 9191;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"256", "2048"})
+    public int connections;
+
+    private HttpServer server;
+
+    private byte[] request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("virtual".equals(mode) && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("The virtual mode requires Java 21 or later");
+        }
+        // read once per fork, before the endpoints are loaded
+        System.setProperty(QueryExecutor.ASYNC_PROPERTY, "false");
+        System.setProperty(WeatherServer.VIRTUAL_THREADS_PROPERTY, Boolean.toString("virtual".equals(mode)));
+
+        InformationDataStore store = InformationDataStore.getInstance();
+        String[] codes = SyntheticAirports.populate(store, 2000);
+        SyntheticAirports.populateWeather(store, codes);
+        server = WeatherServer.createServer(URI.create("http://localhost:" + PORT + "/"));
+        server.start();
+        request = ("GET /query/weather/" + codes[0] + "/20000 HTTP/1.1\r\n"
+                + "Host: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.shutdownNow();
+        InformationDataStore.getInstance().clear();
+    }
+
+    /**
+     * @return the number of bytes received
+     */
+    @Benchmark
+    public long concurrentClients() throws IOException {
+        long received = 0;
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", PORT));
+                channel.write(ByteBuffer.wrap(request));
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            int open = connections;
+            while (open > 0) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    int read;
+                    while ((read = channel.read(buffer)) > 0) {
+                        received += read;
+                        buffer.clear();
+                    }
+                    if (read < 0) {
+                        key.cancel();
+                        channel.close();
+                        open--;
+                    }
+                }
+            }
+        }
+        return received;
+    }
+}
@@ -0,0 +1,94 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+
+import java.util.Random;
+
+/**
+ * Deterministic airport sets used to populate {@link InformationDataStore} for benchmarks.
+ * <p>
+ * Codes are three letters for the first 26^3 airports and longer beyond that, so sets larger than the real world
+ * can still be indexed while the first airports remain valid iata codes for the endpoints. Coordinates are spread
+ * over the inhabited latitudes.
+ */
+public final class SyntheticAirports {
+
+    private static final long SEED = 42L;
+
+    private SyntheticAirports() {
+    }
+
+    /**
+     * @param index airport number, starting from 0
+     * @return the unique code of the airport, three letters for the first 26^3 airports
+     */
+    public static String code(int index) {
+        int length = 3;
+        for (long capacity = 26 * 26 * 26; index >= capacity; capacity *= 26) {
+            index -= capacity;
+            length++;
+        }
+        char[] code = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            code[i] = (char) ('A' + index % 26);
+            index /= 26;
+        }
+        return new String(code);
+    }
+
+    public static String[] codes(int count) {
+        String[] codes = new String[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = code(i);
+        }
+        return codes;
+    }
+
+    /**
+     * @return the codes accepted by the iata validation, among the first count airports
+     */
+    public static String[] iataCodes(int count) {
+        return codes(Math.min(count, 26 * 26 * 26));
+    }
+
+    /**
+     * Clear the store and fill it with count airports.
+     *
+     * @return the codes of the added airports, in insertion order
+     */
+    public static String[] populate(InformationDataStore store, int count) {
+        store.clear();
+        Random random = new Random(SEED);
+        String[] codes = codes(count);
+        for (String code : codes) {
+            store.addAirport(new AirportData.Builder().withIata(code)
+                    .withLatitude(random.nextDouble() * 130 - 60)
+                    .withLongitude(random.nextDouble() * 360 - 180)
+                    .build());
+        }
+        return codes;
+    }
+
+    /**
+     * Give every airport of the store a wind and a temperature reading.
+     */
+    public static void populateWeather(InformationDataStore store, String[] codes) {
+        for (String code : codes) {
+            store.updateDataPoint(store.findAirportData(code), reading());
+        }
+    }
+
+    public static AtmosphericInformation reading() {
+        return new AtmosphericInformation.Builder()
+                .withWind(dataPoint(22))
+                .withTemperature(dataPoint(18))
+                .build();
+    }
+
+    public static DataPoint dataPoint(double mean) {
+        return new DataPoint.Builder().withFirst(10).withMedian(20).withLast(30).withMean(mean).withCount(10).build();
+    }
+}
@@ -0,0 +1,120 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.validation.DataPointTypeValidationRule;
+import com.crossover.trial.weather.validation.DataPointValidationRule;
+import com.crossover.trial.weather.validation.DataPointWithType;
+import com.crossover.trial.weather.validation.IataValidationRule;
+import com.crossover.trial.weather.validation.RadiusValidationRule;
+import com.crossover.trial.weather.validation.generic.GenericInputRequestValidator;
+import com.crossover.trial.weather.validation.generic.InputValidationException;
+import com.crossover.trial.weather.validation.generic.RequestValidator;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GenericInputRequestValidator#validate(List, List)} with the parameters of the query and collector
+ * endpoints, for valid and invalid input, against the precompiled checks of the endpoints which report errors
+ * through a {@link RequestValidator} only when the input is invalid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private static final List<String> WEATHER_QUERY = Arrays.asList("iata", "radius");
+
+    private static final List<String> WEATHER_UPDATE = Arrays.asList("iata", "dataPoint");
+
+    private static final RequestValidator WEATHER_QUERY_VALIDATOR = new RequestValidator("iata", "radius");
+
+    private static final RequestValidator WEATHER_UPDATE_VALIDATOR = new RequestValidator("iata", "dataPoint");
+
+    private String dataPointJson;
+
+    @Setup
+    public void setUp() {
+        dataPointJson = new Gson().toJson(SyntheticAirports.dataPoint(22));
+    }
+
+    @Benchmark
+    public Object validWeatherQuery() {
+        return validate(WEATHER_QUERY, Arrays.asList("BOS", "250"));
+    }
+
+    @Benchmark
+    public Object invalidWeatherQuery() {
+        return validate(WEATHER_QUERY, Arrays.asList("invalid", "-1"));
+    }
+
+    @Benchmark
+    public Object validWeatherUpdate() {
+        return validate(WEATHER_UPDATE, Arrays.asList("BOS", new DataPointWithType("wind", dataPointJson)));
+    }
+
+    @Benchmark
+    public Object invalidWeatherUpdate() {
+        return validate(WEATHER_UPDATE, Arrays.asList("BOS", new DataPointWithType("wind", "{\"mean\": -1}")));
+    }
+
+    @Benchmark
+    public Object validWeatherQueryPrecompiled() {
+        return weatherQuery("BOS", "250");
+    }
+
+    @Benchmark
+    public Object invalidWeatherQueryPrecompiled() {
+        return weatherQuery("invalid", "-1");
+    }
+
+    @Benchmark
+    public Object validWeatherUpdatePrecompiled() {
+        return weatherUpdate("BOS", "wind", dataPointJson);
+    }
+
+    @Benchmark
+    public Object invalidWeatherUpdatePrecompiled() {
+        return weatherUpdate("BOS", "wind", "{\"mean\": -1}");
+    }
+
+    /**
+     * @return the radius, or the errors
+     */
+    private static Object weatherQuery(String iata, String radiusString) {
+        double radius = RadiusValidationRule.parse(radiusString);
+        if (!IataValidationRule.isValid(iata) || Double.isNaN(radius)) {
+            return WEATHER_QUERY_VALIDATOR.validate(iata, radiusString);
+        }
+        return radius;
+    }
+
+    /**
+     * @return the data point, or the errors
+     */
+    private static Object weatherUpdate(String iata, String pointType, String json) {
+        DataPointType dataPointType = DataPointTypeValidationRule.parse(pointType);
+        DataPoint dataPoint = DataPointValidationRule.parse(json);
+        if (!IataValidationRule.isValid(iata) || dataPointType == null
+                || !DataPointValidationRule.isValid(dataPointType, dataPoint)) {
+            return WEATHER_UPDATE_VALIDATOR.validate(iata, new DataPointWithType(pointType, json));
+        }
+        return dataPoint;
+    }
+
+    private static Object validate(List<String> names, List<Object> values) {
+        try {
+            new GenericInputRequestValidator().validate(names, values);
+            return null;
+        } catch (InputValidationException ex) {
+            return ex.getErrors();
+        }
+    }
+}
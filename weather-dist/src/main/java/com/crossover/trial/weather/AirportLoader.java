@@ -1,69 +1,35 @@
 package com.crossover.trial.weather;
 
-import com.crossover.trial.weather.utils.StringUtils;
-
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
+import javax.ws.rs.WebApplicationException;
 import java.io.*;
-import java.util.StringTokenizer;
+import java.util.concurrent.CompletionException;
 
 /**
- * A simple airport loader which reads a file from disk and sends entries to the webservice
+ * A simple airport loader which streams a file from disk to the webservice
  *
  * @author code test administrator
  */
 public class AirportLoader {
 
-    /** end point for read queries */
-    private WebTarget query;
-
-    /** end point to supply updates */
-    private WebTarget collect;
-
-    private static int IATA_IDX = 4;
-    private static int LATITUDE_IDX = 6;
-    private static int LONGITUDE_IDX = 7;
-    private static String addAirportURI = "airport/%s/%s/%s";
+    private final WeatherClient client;
 
-    public AirportLoader() {
-        Client client = ClientBuilder.newClient();
-        query = client.target("http://localhost:9090/query");
-        collect = client.target("http://localhost:9090/collect");
+    public AirportLoader(WeatherClient client) {
+        this.client = client;
     }
 
-    private void upload(InputStream airportDataStream) throws IOException{
-        BufferedReader reader = new BufferedReader(new InputStreamReader(airportDataStream));
-        String line;
-        // use StringTokenizer because is faster the split
-        StringTokenizer tokenizer;
-        String[] tokens;
-        int i = 0;
-        while ((line = reader.readLine()) != null) {
-            tokenizer = new StringTokenizer(line, ",");
-            tokens = new String[11];
-            while(tokenizer.hasMoreTokens()) {
-                tokens[i++] = tokenizer.nextToken();
+    /**
+     * Send the whole file in a single request, the server parses and imports it in one batch.
+     */
+    private void upload(InputStream airportDataStream) throws IOException {
+        try {
+            System.out.println(client.addAirportsAsync(airportDataStream).toCompletableFuture().join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof WebApplicationException) {
+                System.err.println("Failed to import airport data, status code "
+                        + ((WebApplicationException) e.getCause()).getResponse().getStatus());
+            } else {
+                throw new IOException("Failed to import airport data", e.getCause());
             }
-            doPost(tokens);
-
-            i = 0;
-        }
-    }
-
-    private void doPost(String[] input) {
-        String iata = StringUtils.removeQuotes(input[IATA_IDX]);
-        String latitude = StringUtils.removeQuotes(input[LATITUDE_IDX]);
-        String longitude = StringUtils.removeQuotes(input[LONGITUDE_IDX]);
-
-        Response response = collect.path(String.format(addAirportURI, iata, latitude, longitude))
-                .request()
-                .post(null);
-
-        if(response.getStatus() != 200) {
-            System.err.println("Failed to create airport data, status code " + response.getStatus());
         }
     }
 
@@ -78,8 +44,10 @@ public class AirportLoader {
             System.exit(1);
         }
 
-        AirportLoader al = new AirportLoader();
-        al.upload(new FileInputStream(airportDataFile));
+        try (WeatherClient client = new WeatherClient();
+             InputStream airportDataStream = new FileInputStream(airportDataFile)) {
+            new AirportLoader(client).upload(airportDataStream);
+        }
         System.exit(0);
     }
 }
@@ -0,0 +1,148 @@
+package com.crossover.trial.weather;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups records into batches of at most batchSize records for a bulk call. A partial batch is sent once its first
+ * record has waited for the linger time, or on {@link #flush()}. Every record gets the future of its own result.
+ *
+ * @param <R> the records
+ * @param <S> the result of a record
+ */
+class RecordBatcher<R, S> {
+
+    /**
+     * Sends a batch.
+     */
+    interface Sender<R, S> {
+
+        /**
+         * @param records the records of the batch
+         * @return the result of every record, in order
+         */
+        CompletionStage<List<S>> send(List<R> records);
+    }
+
+    private final int batchSize;
+
+    private final long lingerMillis;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Executor executor;
+
+    private final Sender<R, S> sender;
+
+    /** guarded by this */
+    private List<R> records;
+
+    /** guarded by this */
+    private List<CompletableFuture<S>> results;
+
+    /**
+     * @param batchSize    the maximum number of records of a batch
+     * @param lingerMillis how long a record may wait for a batch to fill, 0 to wait for a full batch or a flush
+     * @param scheduler    times the linger of the partial batches
+     * @param executor     sends the partial batches after the linger time, so that a send blocked by the sender
+     *                     never delays the other linger flushes of the scheduler
+     * @param sender       sends the batches, from the thread adding the last record or from the executor
+     */
+    RecordBatcher(int batchSize, long lingerMillis, ScheduledExecutorService scheduler, Executor executor,
+                  Sender<R, S> sender) {
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.sender = sender;
+        reset();
+    }
+
+    /**
+     * @return the result of the record, once its batch has been sent
+     */
+    CompletableFuture<S> add(R record) {
+        CompletableFuture<S> result = new CompletableFuture<>();
+        List<R> fullRecords = null;
+        List<CompletableFuture<S>> fullResults = null;
+        synchronized (this) {
+            records.add(record);
+            results.add(result);
+            if (records.size() >= batchSize) {
+                fullRecords = records;
+                fullResults = results;
+                reset();
+            } else if (records.size() == 1 && lingerMillis > 0) {
+                scheduler.schedule(this::lingered, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullRecords != null) {
+            send(fullRecords, fullResults);
+        }
+        return result;
+    }
+
+    /**
+     * Send the pending records now.
+     */
+    void flush() {
+        List<R> pendingRecords;
+        List<CompletableFuture<S>> pendingResults;
+        synchronized (this) {
+            if (records.isEmpty()) {
+                return;
+            }
+            pendingRecords = records;
+            pendingResults = results;
+            reset();
+        }
+        send(pendingRecords, pendingResults);
+    }
+
+    /**
+     * Run by the scheduler once the first record of a batch has waited for the linger time.
+     */
+    private void lingered() {
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // closed
+            flush();
+        }
+    }
+
+    private void reset() {
+        records = new ArrayList<>(Math.min(batchSize, 1024));
+        results = new ArrayList<>(Math.min(batchSize, 1024));
+    }
+
+    private void send(List<R> batch, List<CompletableFuture<S>> batchResults) {
+        CompletionStage<List<S>> sent;
+        try {
+            sent = sender.send(batch);
+        } catch (RuntimeException e) {
+            batchResults.forEach(result -> result.completeExceptionally(e));
+            return;
+        }
+        sent.whenComplete((values, sendFailure) -> {
+            Throwable failure = sendFailure;
+            if (failure == null && values.size() != batchResults.size()) {
+                failure = new IllegalStateException("Expected " + batchResults.size() + " results but got "
+                        + values.size());
+            }
+            for (int i = 0; i < batchResults.size(); i++) {
+                if (failure != null) {
+                    batchResults.get(i).completeExceptionally(failure);
+                } else {
+                    batchResults.get(i).complete(values.get(i));
+                }
+            }
+        });
+    }
+}
@@ -1,34 +1,105 @@
 package com.crossover.trial.weather;
 
 import com.crossover.trial.weather.model.DataPoint;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientAsyncExecutor;
+import org.glassfish.jersey.spi.ExecutorServiceProvider;
 
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A reference implementation for the weather client. Consumers of the REST API can look at WeatherClient
  * to understand API semantics. This existing client populates the REST endpoint with dummy data useful for
  * testing.
+ * <p>
+ * Besides the blocking calls, the client is an SDK for ingestion agents: the asynchronous calls return a
+ * {@link CompletionStage}, at most maxInFlight requests are sent at once over kept-alive connections, the callers
+ * blocking when the window is full, and the data points are grouped into bulk collector calls.
+ * <p>
+ * The requests go through HttpURLConnection, which keeps at most http.maxConnections idle connections per server for
+ * reuse, 5 by default. That system property applies to the whole process and is read once, so agents with a larger
+ * window should start the JVM with -Dhttp.maxConnections set to maxInFlight or more: connections beyond the limit are
+ * closed after each response instead of being kept alive.
  *
  * @author code test administrator
  */
-public class WeatherClient {
+public class WeatherClient implements AutoCloseable {
 
     private static final String BASE_URI = "http://localhost:9090";
 
+    private static final Gson gson = new Gson();
+
+    private final Client client;
+
     /** end point for read queries */
     private WebTarget query;
 
     /** end point to supply updates */
     private WebTarget collect;
 
+    private final int maxInFlight;
+
+    /** permits of the requests that may be in flight */
+    private final Semaphore window;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * completes the stages of the responses, so that the stages chained on them never run on, or block, the threads
+     * of the requests, and sends the lingering batches, which may wait for the window
+     */
+    private final ExecutorService callbacks;
+
+    private final RecordBatcher<DataPointRecord, Integer> batcher;
+
     public WeatherClient() {
-        Client client = ClientBuilder.newClient();
-        query = client.target(BASE_URI + "/query");
-        collect = client.target(BASE_URI + "/collect");
+        this(new Builder());
+    }
+
+    private WeatherClient(Builder builder) {
+        client = ClientBuilder.newClient(new ClientConfig()
+                .register(new AsyncExecutorProvider(builder.maxInFlight)));
+        query = client.target(builder.baseUri + "/query");
+        collect = client.target(builder.baseUri + "/collect");
+        maxInFlight = builder.maxInFlight;
+        window = new Semaphore(builder.maxInFlight);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "weather-client-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger count = new AtomicInteger();
+        callbacks = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "weather-client-callback-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        batcher = new RecordBatcher<>(builder.batchSize, builder.lingerMillis, scheduler, callbacks,
+                this::sendDataPoints);
     }
 
     public void pingCollect() {
@@ -57,6 +128,53 @@ public class WeatherClient {
         Response post = path.request().post(Entity.entity(dp, "application/json"));
     }
 
+    /**
+     * Query the atmospheric information of the airports within the radius.
+     *
+     * @param iata     the airport in the center
+     * @param radiusKm the radius in km
+     * @return the json array of the atmospheric information, failing with a {@link WebApplicationException}
+     * when the response is not 200
+     */
+    public CompletionStage<String> queryAsync(String iata, double radiusKm) {
+        return send(query.path("/weather/" + iata + "/" + radiusKm).request(MediaType.APPLICATION_JSON),
+                HttpMethod.GET, null)
+                .thenApply(WeatherClient::readOk);
+    }
+
+    /**
+     * Add a data point to the next bulk update, sent once batchSize data points are pending, after the linger time
+     * or on {@link #flush()}.
+     *
+     * @param iata      the airport
+     * @param pointType the type of the data point
+     * @param dataPoint the data point
+     * @return the HTTP status of the data point within the bulk update, 200 when it was applied
+     */
+    public CompletionStage<Integer> populateAsync(String iata, String pointType, DataPoint dataPoint) {
+        return batcher.add(new DataPointRecord(iata, pointType, dataPoint));
+    }
+
+    /**
+     * Stream an airports.dat formatted file to the server, imported in a single batch.
+     *
+     * @param airportsDat the airports.dat lines
+     * @return the json counts of imported, skipped and rejected lines, failing with a
+     * {@link WebApplicationException} when the response is not 200
+     */
+    public CompletionStage<String> addAirportsAsync(InputStream airportsDat) {
+        return send(collect.path("/airports").request(MediaType.APPLICATION_JSON), HttpMethod.POST,
+                Entity.entity(airportsDat, MediaType.TEXT_PLAIN))
+                .thenApply(WeatherClient::readOk);
+    }
+
+    /**
+     * Send the pending data points now.
+     */
+    public void flush() {
+        batcher.flush();
+    }
+
     public void exit() {
         try {
             collect.path("/exit").request().get();
@@ -65,6 +183,179 @@ public class WeatherClient {
         }
     }
 
+    /**
+     * Send the pending data points and wait for every request in flight.
+     */
+    @Override
+    public void close() {
+        flush();
+        window.acquireUninterruptibly(maxInFlight);
+        window.release(maxInFlight);
+        scheduler.shutdown();
+        callbacks.shutdown();
+        client.close();
+    }
+
+    /**
+     * Send a request once the window has room, blocking the caller until then. The entity of the response is
+     * buffered so that the connection is released for reuse before the stage completes, and the permit is released
+     * before as well: a request chained on the stage may take it.
+     */
+    private CompletableFuture<Response> send(Invocation.Builder request, String method, Entity<?> entity) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        window.acquireUninterruptibly();
+        InvocationCallback<Response> callback = new InvocationCallback<Response>() {
+            @Override
+            public void completed(Response response) {
+                try {
+                    response.bufferEntity();
+                } catch (RuntimeException e) {
+                    window.release();
+                    complete(() -> result.completeExceptionally(e));
+                    return;
+                }
+                window.release();
+                complete(() -> result.complete(response));
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                window.release();
+                complete(() -> result.completeExceptionally(throwable));
+            }
+        };
+        try {
+            if (entity != null) {
+                request.async().method(method, entity, callback);
+            } else {
+                request.async().method(method, callback);
+            }
+        } catch (RuntimeException e) {
+            window.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void complete(Runnable completion) {
+        try {
+            callbacks.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // closed
+            completion.run();
+        }
+    }
+
+    private CompletionStage<List<Integer>> sendDataPoints(List<DataPointRecord> records) {
+        return send(collect.path("/weather").request(MediaType.APPLICATION_JSON), HttpMethod.POST,
+                Entity.entity(gson.toJson(records), MediaType.APPLICATION_JSON))
+                .thenApply(response -> {
+                    if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                        // the whole batch was rejected
+                        return Collections.nCopies(records.size(), response.getStatus());
+                    }
+                    JsonArray status = new JsonParser().parse(response.readEntity(String.class))
+                            .getAsJsonObject().getAsJsonArray("status");
+                    List<Integer> statuses = new ArrayList<>(status.size());
+                    status.forEach(element -> statuses.add(element.getAsInt()));
+                    return statuses;
+                });
+    }
+
+    private static String readOk(Response response) {
+        if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+            throw new WebApplicationException(response);
+        }
+        return response.readEntity(String.class);
+    }
+
+    /**
+     * Threads of the asynchronous requests, one per request of the window, daemon so that an agent exits without
+     * closing the client.
+     */
+    @ClientAsyncExecutor
+    private static final class AsyncExecutorProvider implements ExecutorServiceProvider {
+        private final int threads;
+
+        AsyncExecutorProvider(int threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public ExecutorService getExecutorService() {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "weather-client-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public void dispose(ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * A record of the bulk collector call.
+     */
+    private static final class DataPointRecord {
+        final String iata;
+        final String pointType;
+        final DataPoint dataPoint;
+
+        DataPointRecord(String iata, String pointType, DataPoint dataPoint) {
+            this.iata = iata;
+            this.pointType = pointType;
+            this.dataPoint = dataPoint;
+        }
+    }
+
+    public static class Builder {
+        private String baseUri = BASE_URI;
+        private int maxInFlight = 64;
+        private int batchSize = 500;
+        private long lingerMillis = 5;
+
+        /**
+         * @param baseUri the address of the server, http://localhost:9090 by default
+         */
+        public Builder withBaseUri(String baseUri) {
+            this.baseUri = baseUri;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight the maximum number of requests sent and not answered yet, 64 by default; see the class
+         *                    documentation for the number of connections kept alive
+         */
+        public Builder withMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param batchSize the maximum number of data points of a bulk update, 500 by default
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param lingerMillis how long a data point may wait for its bulk update to fill, 5 ms by default
+         */
+        public Builder withLingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        public WeatherClient build() {
+            return new WeatherClient(this);
+        }
+    }
+
     public static void main(String[] args) {
         WeatherClient wc = new WeatherClient();
         wc.pingCollect();
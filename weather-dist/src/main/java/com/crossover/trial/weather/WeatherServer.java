@@ -1,15 +1,24 @@
 package com.crossover.trial.weather;
 
+import com.crossover.trial.weather.data.AirportImporter;
+import com.crossover.trial.weather.data.InformationDataStore;
 import com.crossover.trial.weather.endpoint.RestWeatherCollectorEndpoint;
 import com.crossover.trial.weather.endpoint.RestWeatherQueryEndpoint;
 import com.crossover.trial.weather.interceptor.WeatherQueryFilter;
+import com.crossover.trial.weather.model.ImportResult;
+import com.crossover.trial.weather.utils.VirtualThreads;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.http.server.*;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,18 +35,45 @@ public class WeatherServer {
 
     private static final String BASE_URL = "http://localhost:9090/";
 
+    /**
+     * Airports to load before the server starts: "classpath" for the bundled airports.dat, or the path of a file.
+     * Nothing is preloaded by default, nor when a persistent backend restored airports.
+     */
+    public static final String PRELOAD_PROPERTY = "weather.airports.preload";
+
+    /**
+     * Number of Grizzly selector threads accepting and reading connections, the number of processors by default.
+     */
+    public static final String SELECTOR_THREADS_PROPERTY = "weather.server.selectorThreads";
+
+    /**
+     * Number of Grizzly worker threads running the requests, radius queries and bulk updates excepted as they run on
+     * the {@link com.crossover.trial.weather.endpoint.QueryExecutor}. The Grizzly default when not set.
+     */
+    public static final String WORKER_THREADS_PROPERTY = "weather.server.workerThreads";
+
+    /**
+     * Run the requests of the Grizzly worker pool on virtual threads, one per request, when set to true. Requires
+     * Java 21; the platform worker pool is kept on older runtimes.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "weather.server.virtualThreads";
+
     public static void main(String[] args) {
         try {
             System.out.println("Starting Weather App local testing server: " + BASE_URL);
 
-            final ResourceConfig resourceConfig = new ResourceConfig();
-            resourceConfig.register(RestWeatherCollectorEndpoint.class);
-            resourceConfig.register(RestWeatherQueryEndpoint.class);
-            resourceConfig.register(WeatherQueryFilter.class);
+            // open the store eagerly so that a persistent backend is restored before the first request
+            long start = System.nanoTime();
+            InformationDataStore informationDataStore = InformationDataStore.getInstance();
+            System.out.println(format("Restored %d airports in %d ms", informationDataStore.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
 
-            HttpServer server = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL), resourceConfig, false);
+            preloadAirports(informationDataStore);
+
+            HttpServer server = createServer(URI.create(BASE_URL));
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 server.shutdownNow();
+                informationDataStore.close();
             }));
 
             HttpServerProbe probe = new HttpServerProbe.Adapter() {
@@ -59,4 +95,66 @@ public class WeatherServer {
             Logger.getLogger(WeatherServer.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
+
+    /**
+     * Create the server of the weather endpoints, not started, with the thread pools configured by the system
+     * properties.
+     *
+     * @param baseUri the address to listen to
+     */
+    public static HttpServer createServer(URI baseUri) {
+        final ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+        resourceConfig.register(WeatherQueryFilter.class);
+
+        HttpServer server = GrizzlyHttpServerFactory.createHttpServer(baseUri, resourceConfig, false);
+        configureThreadPools(server);
+        return server;
+    }
+
+    private static void configureThreadPools(HttpServer server) {
+        Integer selectorThreads = Integer.getInteger(SELECTOR_THREADS_PROPERTY);
+        Integer workerThreads = Integer.getInteger(WORKER_THREADS_PROPERTY);
+        boolean virtualThreads = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            Logger.getLogger(WeatherServer.class.getName()).warning(
+                    "Virtual threads require Java 21 or later, keeping the platform worker pool");
+            virtualThreads = false;
+        }
+        for (NetworkListener listener : server.getListeners()) {
+            TCPNIOTransport transport = listener.getTransport();
+            if (selectorThreads != null) {
+                transport.setSelectorRunnersCount(selectorThreads);
+            }
+            if (virtualThreads) {
+                transport.setWorkerThreadPool(VirtualThreads.newVirtualThreadPerTaskExecutor());
+            } else if (workerThreads != null) {
+                transport.setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig()
+                        .setPoolName("weather-worker")
+                        .setCorePoolSize(workerThreads)
+                        .setMaxPoolSize(workerThreads));
+            }
+        }
+    }
+
+    private static void preloadAirports(InformationDataStore informationDataStore) throws IOException {
+        String source = System.getProperty(PRELOAD_PROPERTY);
+        if (source == null || informationDataStore.size() > 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        AirportImporter importer = new AirportImporter(informationDataStore);
+        ImportResult result;
+        if ("classpath".equals(source)) {
+            try (InputStream airportsDat = WeatherServer.class.getResourceAsStream("/airports.dat")) {
+                result = importer.importStream(airportsDat);
+            }
+        } else {
+            result = importer.importFile(Paths.get(source));
+        }
+        System.out.println(format("Preloaded %d airports from %s in %d ms, %d skipped, %d rejected",
+                result.getImported(), source, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                result.getSkipped(), result.getRejected()));
+    }
 }
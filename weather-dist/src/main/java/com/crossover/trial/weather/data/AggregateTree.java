@@ -0,0 +1,410 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.model.RadiusAggregate;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A k-d tree over the airports of one airport set, whose nodes carry the count, sum, minimum and maximum of the mean
+ * of every {@link DataPointType} of the airports below them.
+ * <p>
+ * Airports are points on the unit sphere in 3D, where the straight line (chord) distance grows with the great-circle
+ * distance, so a radius query is a ball. Every node has the bounding box of its airports: a node whose box is inside
+ * the ball contributes its aggregates at once, a node whose box misses the ball is skipped, and only the airports of
+ * the leaves crossing the sphere are tested one by one. A new reading updates its leaf, then the aggregates of the
+ * ancestors from their two children.
+ * <p>
+ * The structure is built for a fixed set of airports, the readings being filled after the tree is published so that
+ * no update is missed. The means and aggregates of each type are guarded by a {@link StampedLock} of their own:
+ * updates of different types do not wait for each other, and radius aggregates are optimistic reads that only lock
+ * when an update of their type raced them.
+ */
+class AggregateTree {
+
+    private static final int LEAF_SIZE = 8;
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    private static final int TYPE_COUNT = TYPES.length;
+
+    /** the airport set version of the airports of the tree */
+    final long airportSetVersion;
+
+    /** the readings have been filled and the aggregates are exact */
+    private volatile boolean ready;
+
+    // points, in tree order
+
+    private final int[] slots;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    /** the mean of every point and type at point * TYPE_COUNT + type, NaN when the point has no such reading */
+    private final double[] means;
+
+    /** the position of every slot in the points, -1 when the slot is not in the tree */
+    private final int[] positionOfSlot;
+
+    /** the leaf of every point */
+    private final int[] leafOfPosition;
+
+    // nodes, the root at 0
+
+    private int nodeCount;
+    private final int[] starts;
+    private final int[] ends;
+    /** the children of the inner nodes, -1 for the leaves */
+    private final int[] lefts;
+    private final int[] rights;
+    private final int[] parents;
+    /** minimum and maximum x, y and z of every node at node * 6 */
+    private final double[] boxes;
+
+    // aggregates of every node and type at node * TYPE_COUNT + type
+
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+
+    /** the lock of the means and aggregates of every type */
+    private final StampedLock[] locks = new StampedLock[TYPE_COUNT];
+
+    /**
+     * @param airportSetVersion the version of the airport set
+     * @param airports          the airports by slot, null for the free slots
+     */
+    AggregateTree(long airportSetVersion, AirportData[] airports) {
+        this.airportSetVersion = airportSetVersion;
+        int size = 0;
+        for (AirportData airport : airports) {
+            if (airport != null) {
+                size++;
+            }
+        }
+        slots = new int[size];
+        xs = new double[size];
+        ys = new double[size];
+        zs = new double[size];
+        means = new double[size * TYPE_COUNT];
+        Arrays.fill(means, Double.NaN);
+        positionOfSlot = new int[airports.length];
+        Arrays.fill(positionOfSlot, -1);
+        leafOfPosition = new int[size];
+        int point = 0;
+        for (int slot = 0; slot < airports.length; slot++) {
+            if (airports[slot] != null) {
+                double latitude = Math.toRadians(airports[slot].getLatitude());
+                double longitude = Math.toRadians(airports[slot].getLongitude());
+                slots[point] = slot;
+                xs[point] = Math.cos(latitude) * Math.cos(longitude);
+                ys[point] = Math.cos(latitude) * Math.sin(longitude);
+                zs[point] = Math.sin(latitude);
+                point++;
+            }
+        }
+
+        int maxNodes = Math.max(1, 2 * ((size + LEAF_SIZE - 1) / LEAF_SIZE * 2));
+        starts = new int[maxNodes];
+        ends = new int[maxNodes];
+        lefts = new int[maxNodes];
+        rights = new int[maxNodes];
+        parents = new int[maxNodes];
+        boxes = new double[maxNodes * 6];
+        counts = new int[maxNodes * TYPE_COUNT];
+        sums = new double[maxNodes * TYPE_COUNT];
+        mins = new double[maxNodes * TYPE_COUNT];
+        maxs = new double[maxNodes * TYPE_COUNT];
+        build(0, size, -1);
+        for (int i = 0; i < size; i++) {
+            positionOfSlot[slots[i]] = i;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                clearAggregate(node * TYPE_COUNT + type);
+            }
+        }
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            locks[type] = new StampedLock();
+        }
+    }
+
+    /**
+     * Set the readings of an airport of the tree, or of the data points present in an update.
+     *
+     * @param slot                   the slot of the airport
+     * @param atmosphericInformation the readings
+     */
+    void update(int slot, AtmosphericInformation atmosphericInformation) {
+        int position = slot < positionOfSlot.length ? positionOfSlot[slot] : -1;
+        if (position < 0) {
+            return;
+        }
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            DataPoint dataPoint = atmosphericInformation.getDataPoint(TYPES[type]);
+            if (dataPoint == null) {
+                continue;
+            }
+            long stamp = locks[type].writeLock();
+            try {
+                if (Double.doubleToLongBits(means[position * TYPE_COUNT + type])
+                        != Double.doubleToLongBits(dataPoint.getMean())) {
+                    means[position * TYPE_COUNT + type] = dataPoint.getMean();
+                    int node = leafOfPosition[position];
+                    aggregateLeaf(node, type);
+                    for (node = parents[node]; node >= 0; node = parents[node]) {
+                        aggregateChildren(node, type);
+                    }
+                }
+            } finally {
+                locks[type].unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Mark the readings as filled, once every airport of the tree has been updated with its current readings.
+     */
+    void ready() {
+        ready = true;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @param latitude  latitude of the center in degrees
+     * @param longitude longitude of the center in degrees
+     * @param radiusKm  the radius in km
+     * @param type      the data point type
+     * @return the aggregate of the means of the airports within the radius that have a reading of the type
+     */
+    RadiusAggregate aggregate(double latitude, double longitude, double radiusKm, DataPointType type) {
+        double centerLatitude = Math.toRadians(latitude);
+        double centerLongitude = Math.toRadians(longitude);
+        double[] center = {Math.cos(centerLatitude) * Math.cos(centerLongitude),
+                Math.cos(centerLatitude) * Math.sin(centerLongitude), Math.sin(centerLatitude)};
+        // chord^2 = 4 sin^2(d/2)
+        double chordSquared = 4 * SpatialIndex.maxHaversine(radiusKm);
+        StampedLock lock = locks[type.ordinal()];
+        // the shape of the tree never changes, only the values read may be torn by an update
+        long stamp = lock.tryOptimisticRead();
+        Ball ball = aggregate(center, chordSquared, type);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                ball = aggregate(center, chordSquared, type);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return ball.count > 0
+                ? new RadiusAggregate(ball.count, ball.sum / ball.count, ball.min, ball.max)
+                : new RadiusAggregate(0, null, null, null);
+    }
+
+    private Ball aggregate(double[] center, double chordSquared, DataPointType type) {
+        Ball ball = new Ball(center, chordSquared, type.ordinal());
+        if (nodeCount > 0) {
+            aggregate(0, ball);
+        }
+        return ball;
+    }
+
+    private void aggregate(int node, Ball ball) {
+        int box = node * 6;
+        double min = 0;
+        double max = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            double low = boxes[box + axis * 2];
+            double high = boxes[box + axis * 2 + 1];
+            double c = ball.center[axis];
+            double outside = c < low ? low - c : c > high ? c - high : 0;
+            min += outside * outside;
+            double far = Math.max(Math.abs(c - low), Math.abs(c - high));
+            max += far * far;
+        }
+        if (min > ball.chordSquared) {
+            return;
+        }
+        if (max <= ball.chordSquared) {
+            int aggregate = node * TYPE_COUNT + ball.type;
+            if (counts[aggregate] > 0) {
+                ball.add(counts[aggregate], sums[aggregate], mins[aggregate], maxs[aggregate]);
+            }
+            return;
+        }
+        if (lefts[node] >= 0) {
+            aggregate(lefts[node], ball);
+            aggregate(rights[node], ball);
+            return;
+        }
+        for (int point = starts[node]; point < ends[node]; point++) {
+            double mean = means[point * TYPE_COUNT + ball.type];
+            if (!Double.isNaN(mean)) {
+                double dx = xs[point] - ball.center[0];
+                double dy = ys[point] - ball.center[1];
+                double dz = zs[point] - ball.center[2];
+                if (dx * dx + dy * dy + dz * dz <= ball.chordSquared) {
+                    ball.add(1, mean, mean, mean);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the node of the points from start to end, splitting them at the median of their widest axis.
+     */
+    private int build(int start, int end, int parent) {
+        int node = nodeCount++;
+        starts[node] = start;
+        ends[node] = end;
+        parents[node] = parent;
+        int box = node * 6;
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[box + axis * 2] = Double.POSITIVE_INFINITY;
+            boxes[box + axis * 2 + 1] = Double.NEGATIVE_INFINITY;
+        }
+        for (int point = start; point < end; point++) {
+            extend(box, 0, xs[point]);
+            extend(box, 1, ys[point]);
+            extend(box, 2, zs[point]);
+        }
+        if (end - start <= LEAF_SIZE) {
+            lefts[node] = -1;
+            rights[node] = -1;
+            for (int point = start; point < end; point++) {
+                leafOfPosition[point] = node;
+            }
+            return node;
+        }
+        int axis = 0;
+        double widest = -1;
+        for (int candidate = 0; candidate < 3; candidate++) {
+            double width = boxes[box + candidate * 2 + 1] - boxes[box + candidate * 2];
+            if (width > widest) {
+                widest = width;
+                axis = candidate;
+            }
+        }
+        int middle = (start + end) >>> 1;
+        select(axis == 0 ? xs : axis == 1 ? ys : zs, start, end - 1, middle);
+        lefts[node] = build(start, middle, node);
+        rights[node] = build(middle, end, node);
+        return node;
+    }
+
+    private void extend(int box, int axis, double value) {
+        boxes[box + axis * 2] = Math.min(boxes[box + axis * 2], value);
+        boxes[box + axis * 2 + 1] = Math.max(boxes[box + axis * 2 + 1], value);
+    }
+
+    /**
+     * Move the points so that the kth one along the axis is in place, the smaller ones before it and the larger ones
+     * after it.
+     */
+    private void select(double[] values, int low, int high, int k) {
+        while (low < high) {
+            double pivot = values[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int slot = slots[i];
+        slots[i] = slots[j];
+        slots[j] = slot;
+        double value = xs[i];
+        xs[i] = xs[j];
+        xs[j] = value;
+        value = ys[i];
+        ys[i] = ys[j];
+        ys[j] = value;
+        value = zs[i];
+        zs[i] = zs[j];
+        zs[j] = value;
+    }
+
+    private void aggregateLeaf(int node, int type) {
+        int aggregate = node * TYPE_COUNT + type;
+        clearAggregate(aggregate);
+        for (int point = starts[node]; point < ends[node]; point++) {
+            double mean = means[point * TYPE_COUNT + type];
+            if (!Double.isNaN(mean)) {
+                counts[aggregate]++;
+                sums[aggregate] += mean;
+                mins[aggregate] = Math.min(mins[aggregate], mean);
+                maxs[aggregate] = Math.max(maxs[aggregate], mean);
+            }
+        }
+    }
+
+    private void aggregateChildren(int node, int type) {
+        int aggregate = node * TYPE_COUNT + type;
+        int left = lefts[node] * TYPE_COUNT + type;
+        int right = rights[node] * TYPE_COUNT + type;
+        counts[aggregate] = counts[left] + counts[right];
+        sums[aggregate] = sums[left] + sums[right];
+        mins[aggregate] = Math.min(mins[left], mins[right]);
+        maxs[aggregate] = Math.max(maxs[left], maxs[right]);
+    }
+
+    private void clearAggregate(int aggregate) {
+        counts[aggregate] = 0;
+        sums[aggregate] = 0;
+        mins[aggregate] = Double.POSITIVE_INFINITY;
+        maxs[aggregate] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * A radius query: the center on the unit sphere, the squared chord of the radius, and the aggregate so far.
+     */
+    private static final class Ball {
+        /** x, y and z */
+        final double[] center;
+        final double chordSquared;
+        final int type;
+        int count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        Ball(double[] center, double chordSquared, int type) {
+            this.center = center;
+            this.chordSquared = chordSquared;
+            this.type = type;
+        }
+
+        void add(int otherCount, double otherSum, double otherMin, double otherMax) {
+            count += otherCount;
+            sum += otherSum;
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.ImportResult;
+import com.crossover.trial.weather.utils.AirportsDatParser;
+import com.crossover.trial.weather.validation.IataValidationRule;
+import com.crossover.trial.weather.validation.generic.Error;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.crossover.trial.weather.validation.generic.ErrorCode.INVALID_VALUE;
+
+/**
+ * Bulk import of airports.dat content into the {@link InformationDataStore}: the lines are parsed by an
+ * {@link AirportsDatParser}, validated, and the airports added in a single batch.
+ */
+public class AirportImporter {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /** the smallest part of a file worth parsing on its own thread */
+    private static final int PARALLEL_PART_SIZE = 1024 * 1024;
+
+    private final InformationDataStore informationDataStore;
+
+    private final IataValidationRule iataValidationRule = new IataValidationRule();
+
+    public AirportImporter(InformationDataStore informationDataStore) {
+        this.informationDataStore = informationDataStore;
+    }
+
+    /**
+     * Import a stream of airports.dat lines, read in chunks.
+     */
+    public ImportResult importStream(InputStream airportsDat) throws IOException {
+        Batch batch = new Batch();
+        AirportsDatParser parser = new AirportsDatParser(batch);
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        int read;
+        while ((read = airportsDat.read(buffer.array(), buffer.position(), buffer.remaining())) >= 0) {
+            buffer.position(buffer.position() + read);
+            buffer.flip();
+            parser.parse(buffer, false);
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                // a line longer than the buffer
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+        }
+        buffer.flip();
+        parser.parse(buffer, true);
+        return batch.commit();
+    }
+
+    /**
+     * Import an airports.dat file, memory-mapped rather than read. Large files are split on line boundaries and the
+     * parts parsed in parallel, the airports being added in file order.
+     */
+    public ImportResult importFile(Path airportsDat) throws IOException {
+        return importFile(airportsDat, (int) Math.min(Runtime.getRuntime().availableProcessors(),
+                Files.size(airportsDat) / PARALLEL_PART_SIZE + 1));
+    }
+
+    ImportResult importFile(Path airportsDat, int parts) throws IOException {
+        try (FileChannel channel = FileChannel.open(airportsDat, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<Batch> batches = split(buffer, parts).parallelStream()
+                    .map(part -> {
+                        Batch batch = new Batch();
+                        batch.parse(part);
+                        return batch;
+                    })
+                    .collect(Collectors.toList());
+            Batch batch = batches.get(0);
+            for (int i = 1; i < batches.size(); i++) {
+                batch.append(batches.get(i));
+            }
+            return batch.commit();
+        }
+    }
+
+    /**
+     * @return parts of the buffer, each starting at the beginning of a line
+     */
+    static List<ByteBuffer> split(ByteBuffer buffer, int parts) {
+        List<ByteBuffer> slices = new ArrayList<>(parts);
+        int start = 0;
+        for (int i = 1; i <= parts && start < buffer.limit(); i++) {
+            int end = (int) ((long) buffer.limit() * i / parts);
+            while (end < buffer.limit() && (end <= start || buffer.get(end - 1) != '\n')) {
+                end++;
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(start);
+            slice.limit(end);
+            slices.add(slice.slice());
+            start = end;
+        }
+        if (slices.isEmpty()) {
+            slices.add(buffer);
+        }
+        return slices;
+    }
+
+    /**
+     * Collects the valid airports of an import until they are added to the store.
+     */
+    private class Batch implements AirportsDatParser.Listener {
+        private final List<AirportData> airports = new ArrayList<>();
+        private final ImportResult result = new ImportResult();
+        private int lines;
+
+        void parse(ByteBuffer buffer) {
+            AirportsDatParser parser = new AirportsDatParser(this);
+            parser.parse(buffer, true);
+            lines = parser.getLines();
+        }
+
+        /**
+         * Append the batch of the lines following this one.
+         */
+        void append(Batch next) {
+            airports.addAll(next.airports);
+            result.add(next.result, lines);
+            lines += next.lines;
+        }
+
+        @Override
+        public void airport(int line, AirportData airportData) {
+            if (airportData.getIata() == null) {
+                result.skipped();
+                return;
+            }
+            List<Error> errors = iataValidationRule.apply(airportData.getIata());
+            if (errors != null) {
+                result.rejected(line, errors.get(0));
+                return;
+            }
+            airports.add(airportData);
+            result.imported();
+        }
+
+        @Override
+        public void malformed(int line, String message) {
+            result.rejected(line, new Error(INVALID_VALUE, "line", message));
+        }
+
+        ImportResult commit() {
+            informationDataStore.addAirports(airports);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Backend holding the latest atmospheric information of every airport, addressed by the airport slot given by the
+ * {@link SlotAllocator}.
+ * <p>
+ * Writes to the same slot are serialized by {@link InformationDataStore}; reads may run concurrently with writes
+ * and must see either the previous or the new information of a slot.
+ */
+interface AtmosphericInformationStore {
+
+    /** update time reported for a slot that holds no data point */
+    long EMPTY = -1L;
+
+    /**
+     * Start a slot over with empty information for a newly added airport.
+     */
+    void reset(int slot, AirportData airportData);
+
+    /**
+     * Release the slot of a deleted airport.
+     */
+    void remove(int slot);
+
+    /**
+     * @return the information of the slot, built on demand by backends that do not keep objects
+     */
+    AtmosphericInformation get(int slot);
+
+    /**
+     * @return the last update time of the slot or {@link #EMPTY} if it holds no data point
+     */
+    long lastUpdateTime(int slot);
+
+    /**
+     * Replace the data points of the slot with the ones present in the new information.
+     *
+     * @param slot       the airport slot
+     * @param newInfo    the information to merge
+     * @param updateTime the new last update time of the slot
+     * @return the previous last update time of the slot or {@link #EMPTY} if it held no data point
+     */
+    long merge(int slot, AtmosphericInformation newInfo, long updateTime);
+
+    void clear();
+
+    /**
+     * Pass the airports kept by a persistent backend, with their slots, to the consumer. Called once on startup.
+     */
+    default void forEachAirport(ObjIntConsumer<AirportData> consumer) {
+    }
+
+    /**
+     * Flush and release the resources of a persistent backend.
+     */
+    default void close() {
+    }
+}
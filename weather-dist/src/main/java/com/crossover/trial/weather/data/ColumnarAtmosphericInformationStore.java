@@ -0,0 +1,176 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * {@link AtmosphericInformationStore} keeping the readings in parallel primitive arrays instead of objects.
+ * <p>
+ * For every slot and {@link DataPointType} the mean, the quartiles, the count and the update time of the data point
+ * are stored in place, so an airport costs a few hundred bytes in a handful of large arrays and an update allocates
+ * nothing. {@link AtmosphericInformation} objects are only built when a reading is read for serialization. Slots are
+ * grouped in pages guarded by a {@link StampedLock}: writers lock the page briefly, readers use optimistic reads.
+ */
+class ColumnarAtmosphericInformationStore implements AtmosphericInformationStore {
+
+    private static final int PAGE_SIZE = 1024;
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    /** fixed size pages of slots, only ever appended so that growing never loses a concurrent write */
+    private final List<Page> pages = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void reset(int slot, AirportData airportData) {
+        ensureCapacity(slot);
+        Page page = page(slot);
+        int offset = slot % PAGE_SIZE;
+        long stamp = page.lock.writeLock();
+        try {
+            page.presentTypes[offset] = 0;
+            page.lastUpdateTime[offset] = System.currentTimeMillis();
+        } finally {
+            page.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(int slot) {
+        // the columns of the slot are reset when it is reused
+    }
+
+    @Override
+    public AtmosphericInformation get(int slot) {
+        Page page = page(slot);
+        int offset = slot % PAGE_SIZE;
+        long stamp = page.lock.tryOptimisticRead();
+        AtmosphericInformation atmosphericInformation = page.read(offset);
+        if (!page.lock.validate(stamp)) {
+            stamp = page.lock.readLock();
+            try {
+                atmosphericInformation = page.read(offset);
+            } finally {
+                page.lock.unlockRead(stamp);
+            }
+        }
+        return atmosphericInformation;
+    }
+
+    @Override
+    public long lastUpdateTime(int slot) {
+        Page page = page(slot);
+        int offset = slot % PAGE_SIZE;
+        long stamp = page.lock.readLock();
+        try {
+            return page.presentTypes[offset] == 0 ? EMPTY : page.lastUpdateTime[offset];
+        } finally {
+            page.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long merge(int slot, AtmosphericInformation newInfo, long updateTime) {
+        Page page = page(slot);
+        int offset = slot % PAGE_SIZE;
+        long stamp = page.lock.writeLock();
+        try {
+            long previousUpdateTime = page.presentTypes[offset] == 0 ? EMPTY : page.lastUpdateTime[offset];
+            for (DataPointType type : TYPES) {
+                DataPoint dataPoint = newInfo.getDataPoint(type);
+                if (dataPoint != null) {
+                    page.write(offset, type, dataPoint, updateTime);
+                }
+            }
+            page.lastUpdateTime[offset] = updateTime;
+            return previousUpdateTime;
+        } finally {
+            page.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        // the pages are kept for the queries still reading a slot, which then read no data point
+        for (Page page : pages) {
+            long stamp = page.lock.writeLock();
+            try {
+                Arrays.fill(page.presentTypes, 0);
+            } finally {
+                page.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private Page page(int slot) {
+        return pages.get(slot / PAGE_SIZE);
+    }
+
+    private synchronized void ensureCapacity(int slot) {
+        while (pages.size() <= slot / PAGE_SIZE) {
+            pages.add(new Page());
+        }
+    }
+
+    /**
+     * Columns of {@link #PAGE_SIZE} slots, the data point columns holding one entry per slot and type at
+     * offset * TYPES.length + type.ordinal().
+     */
+    private static final class Page {
+        final StampedLock lock = new StampedLock();
+
+        /** bit i is set when the data point of type TYPES[i] is present */
+        final int[] presentTypes = new int[PAGE_SIZE];
+
+        final long[] lastUpdateTime = new long[PAGE_SIZE];
+
+        final double[] mean = new double[PAGE_SIZE * TYPES.length];
+
+        final int[] first = new int[PAGE_SIZE * TYPES.length];
+
+        final int[] second = new int[PAGE_SIZE * TYPES.length];
+
+        final int[] third = new int[PAGE_SIZE * TYPES.length];
+
+        final int[] count = new int[PAGE_SIZE * TYPES.length];
+
+        final long[] dataPointTime = new long[PAGE_SIZE * TYPES.length];
+
+        void write(int offset, DataPointType type, DataPoint dataPoint, long updateTime) {
+            int index = offset * TYPES.length + type.ordinal();
+            mean[index] = dataPoint.getMean();
+            first[index] = dataPoint.getFirst();
+            second[index] = dataPoint.getSecond();
+            third[index] = dataPoint.getThird();
+            count[index] = dataPoint.getCount();
+            dataPointTime[index] = updateTime;
+            presentTypes[offset] |= 1 << type.ordinal();
+        }
+
+        AtmosphericInformation read(int offset) {
+            AtmosphericInformation.Builder builder = new AtmosphericInformation.Builder();
+            int present = presentTypes[offset];
+            for (DataPointType type : TYPES) {
+                if ((present & 1 << type.ordinal()) != 0) {
+                    int index = offset * TYPES.length + type.ordinal();
+                    builder.withDataPoint(type, new DataPoint.Builder()
+                            .withMean(mean[index])
+                            .withFirst(first[index])
+                            .withMedian(second[index])
+                            .withLast(third[index])
+                            .withCount(count[index])
+                            .build());
+                }
+            }
+            AtmosphericInformation atmosphericInformation = builder.build();
+            atmosphericInformation.setLastUpdateTime(lastUpdateTime[offset]);
+            return atmosphericInformation;
+        }
+    }
+}
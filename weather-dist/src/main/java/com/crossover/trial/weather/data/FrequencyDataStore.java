@@ -1,10 +1,15 @@
 package com.crossover.trial.weather.data;
 
-import java.util.Collections;
+import com.crossover.trial.weather.utils.IataCodes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Created by Popescu Adrian-Dumitru on 03.09.2017.
@@ -13,22 +18,53 @@ import java.util.concurrent.atomic.AtomicInteger;
  * for now provides the basis for future performance optimizations. Due to the stateless deployment architecture
  * we don't want to write this to disk, but will pull it off using a REST request and aggregate with other
  * performance metrics {@link com.crossover.trial.weather.endpoint.WeatherQueryEndpoint#ping()}
+ * <p>
+ * Counting never blocks: iata codes are interned to the slots of an array of {@link LongAdder} counters and radii
+ * are counted in fixed histograms, so concurrent queries only contend on striped cells.
+ * <p>
+ * The memory is bounded whatever the clients send. There are {@link IataCodes#SLOT_COUNT} possible iata codes, so
+ * their counters are exact, and radii are only kept as the counts of their histogram ranges: the ranges of
+ * {@link #radiusLogHistogram()} grow with the radius, so that the radii counted together differ by less than
+ * {@link #RADIUS_RELATIVE_ERROR} of their value.
  */
 public class FrequencyDataStore {
 
+    /** width in km of the radius ranges of {@link #radiusHistogram()} */
+    public static final int RADIUS_HISTOGRAM_STEP = 10;
+
+    /** number of radius ranges, enough to tell apart radii up to 1000 km */
+    public static final int RADIUS_HISTOGRAM_SIZE = 101;
+
+    /** relative width of the ranges of {@link #radiusLogHistogram()} */
+    public static final double RADIUS_RELATIVE_ERROR = 0.05;
+
+    /** radii from half the circumference of the earth all cover every airport, and share the last range */
+    private static final double MAX_RADIUS = 20038;
+
+    private static final double LOG_RADIUS_BASE = Math.log1p(RADIUS_RELATIVE_ERROR);
+
+    /** a range for the radii below 1 km, one per factor of 1 + {@link #RADIUS_RELATIVE_ERROR} up to the maximum */
+    private static final int RADIUS_LOG_HISTOGRAM_SIZE = 2 + (int) Math.ceil(Math.log(MAX_RADIUS) / LOG_RADIUS_BASE);
+
     private volatile static FrequencyDataStore instance;
 
-    private final Map<String, AtomicInteger> requestFrequency;
+    /** request counters indexed by {@link IataCodes#toSlot(String)}, created on the first request */
+    private final AtomicReferenceArray<LongAdder> requestFrequency;
 
-    private final Map<Double, AtomicInteger> radiusFrequency;
+    /** sum of the request counters, kept aside so that it is not recomputed over every slot */
+    private final LongAdder totalRequests;
 
-    private final Object requestsLock = new Object();
+    /** requests per 10 km wide radius range, the last range also counts the larger radii */
+    private final LongAdder[] radiusHistogram;
 
-    private final Object radiusLock = new Object();
+    /** requests per range of radii growing geometrically, see {@link #radiusLogIndex(double)} */
+    private final LongAdder[] radiusLogHistogram;
 
     private FrequencyDataStore() {
-        requestFrequency = new ConcurrentHashMap<>();
-        radiusFrequency = new ConcurrentHashMap<>();
+        requestFrequency = new AtomicReferenceArray<>(IataCodes.SLOT_COUNT);
+        totalRequests = new LongAdder();
+        radiusHistogram = counters(RADIUS_HISTOGRAM_SIZE);
+        radiusLogHistogram = counters(RADIUS_LOG_HISTOGRAM_SIZE);
     }
 
     public static FrequencyDataStore getInstance() {
@@ -43,46 +79,161 @@ public class FrequencyDataStore {
         return instance;
     }
 
+    /**
+     * Count a request for the airport, ignoring codes that are not made of three letters.
+     *
+     * @param iataCode the requested iata code, upper or lower case
+     */
     public void updateRequestFrequency(String iataCode) {
-        synchronized (requestsLock) {
-            requestFrequency.computeIfAbsent(iataCode, k -> new AtomicInteger(0));
+        int slot = IataCodes.toSlot(iataCode);
+        if (slot < 0) {
+            return;
+        }
+        LongAdder counter = requestFrequency.get(slot);
+        if (counter == null) {
+            requestFrequency.compareAndSet(slot, null, new LongAdder());
+            counter = requestFrequency.get(slot);
         }
-        requestFrequency.get(iataCode).getAndIncrement();
+        counter.increment();
+        totalRequests.increment();
     }
 
+    /**
+     * Count a request for the radius, ignoring the radii that are not positive numbers.
+     */
     public void updateRadiusFrequency(Double radius) {
-        synchronized (radiusLock) {
-            radiusFrequency.computeIfAbsent(radius, k -> new AtomicInteger(0));
+        if (radius == null || !(radius >= 0)) {
+            return;
         }
-        radiusFrequency.get(radius).getAndIncrement();
+        radiusHistogram[(int) Math.min(radius / RADIUS_HISTOGRAM_STEP, RADIUS_HISTOGRAM_SIZE - 1)].increment();
+        radiusLogHistogram[radiusLogIndex(radius)].increment();
     }
 
     public int getRequestFrequency(String iata){
-        return requestFrequency.getOrDefault(iata, new AtomicInteger(0)).intValue();
+        int slot = IataCodes.toSlot(iata);
+        LongAdder counter = slot >= 0 ? requestFrequency.get(slot) : null;
+        return counter != null ? counter.intValue() : 0;
     }
 
+    /**
+     * @return the number of requests with a radius in the range of the given one, that is within a factor of
+     * 1 + {@link #RADIUS_RELATIVE_ERROR} of it, or below 1 km for the smaller radii
+     */
     public int getRadiusFrequency(Double radius){
-        return radiusFrequency.getOrDefault(radius, new AtomicInteger(0)).intValue();
+        if (radius == null || !(radius >= 0)) {
+            return 0;
+        }
+        return radiusLogHistogram[radiusLogIndex(radius)].intValue();
     }
 
     public int sizeOfRequestFrequency() {
-        return requestFrequency.size();
+        int size = 0;
+        for (int slot = 0; slot < requestFrequency.length(); slot++) {
+            if (requestFrequency.get(slot) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of requests per radius range, index i counting the radii in
+     * [i * {@link #RADIUS_HISTOGRAM_STEP}, (i + 1) * {@link #RADIUS_HISTOGRAM_STEP}) km
+     */
+    public int[] radiusHistogram() {
+        int[] histogram = new int[radiusHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = radiusHistogram[i].intValue();
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the number of requests per range of radii, keyed by the lower bound in km of the non empty ranges in
+     * increasing order: [0, 1) then [b, b * (1 + {@link #RADIUS_RELATIVE_ERROR})) for the larger bounds b
+     */
+    public Map<Double, Integer> radiusLogHistogram() {
+        Map<Double, Integer> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < radiusLogHistogram.length; i++) {
+            int count = radiusLogHistogram[i].intValue();
+            if (count > 0) {
+                histogram.put(i == 0 ? 0 : Math.round(Math.exp((i - 1) * LOG_RADIUS_BASE) * 1000) / 1000.0, count);
+            }
+        }
+        return histogram;
     }
 
-    public Set<Double> listRadii() {
-        return Collections.unmodifiableSet(radiusFrequency.keySet());
+    /**
+     * The most requested iata codes, whether or not the airports exist.
+     *
+     * @param count the maximum number of codes returned
+     * @return the request counts of the codes, the most requested first
+     */
+    public Map<String, Integer> topRequests(int count) {
+        // the smallest of the top counts at the head
+        PriorityQueue<int[]> top = new PriorityQueue<>(count + 1, Comparator.comparingInt((int[] entry) -> entry[1]));
+        for (int slot = 0; slot < requestFrequency.length(); slot++) {
+            LongAdder counter = requestFrequency.get(slot);
+            if (counter == null) {
+                continue;
+            }
+            int requests = counter.intValue();
+            if (top.size() < count) {
+                top.add(new int[] {slot, requests});
+            } else if (count > 0 && requests > top.peek()[1]) {
+                top.poll();
+                top.add(new int[] {slot, requests});
+            }
+        }
+        List<int[]> entries = new ArrayList<>(top);
+        entries.sort(Comparator.comparingInt((int[] entry) -> entry[1]).reversed());
+        Map<String, Integer> retval = new LinkedHashMap<>();
+        for (int[] entry : entries) {
+            retval.put(IataCodes.fromSlot(entry[0]), entry[1]);
+        }
+        return retval;
     }
 
     public void clear() {
-        radiusFrequency.clear();
-        requestFrequency.clear();
+        for (int slot = 0; slot < requestFrequency.length(); slot++) {
+            requestFrequency.set(slot, null);
+        }
+        totalRequests.reset();
+        for (LongAdder counter : radiusHistogram) {
+            counter.reset();
+        }
+        for (LongAdder counter : radiusLogHistogram) {
+            counter.reset();
+        }
     }
 
     public int totalNumberOfRequests() {
-        return requestFrequency.values().stream().mapToInt(AtomicInteger::intValue).sum();
+        return totalRequests.intValue();
     }
 
     public void deleteAirport(String iataCode) {
-        requestFrequency.remove(iataCode);
+        int slot = IataCodes.toSlot(iataCode);
+        LongAdder counter = slot >= 0 ? requestFrequency.getAndSet(slot, null) : null;
+        if (counter != null) {
+            totalRequests.add(-counter.sum());
+        }
+    }
+
+    /**
+     * @return 0 below 1 km, then 1 + the number of factors of 1 + {@link #RADIUS_RELATIVE_ERROR} in the radius
+     */
+    private static int radiusLogIndex(double radius) {
+        if (radius < 1) {
+            return 0;
+        }
+        return (int) Math.min(1 + Math.log(radius) / LOG_RADIUS_BASE, RADIUS_LOG_HISTOGRAM_SIZE - 1);
+    }
+
+    private static LongAdder[] counters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
     }
 }
@@ -0,0 +1,250 @@
+package com.crossover.trial.weather.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compression of a chunk of readings as in Facebook's Gorilla time series database.
+ * <p>
+ * Readings are encoded one after the other as a bit stream. The time is encoded as the difference between its delta
+ * to the previous time and the previous delta, in 1 bit when readings come at a regular pace. Every other field is
+ * XORed with its previous value: an unchanged value takes 1 bit, and a changed one only its meaningful bits, reusing
+ * the leading and trailing zero counts of the previous XOR when they fit. The mean is XORed as the bits of its double,
+ * the quartiles and the count as longs.
+ */
+final class GorillaCodec {
+
+    /**
+     * Receives the decoded readings, in order.
+     */
+    interface ReadingConsumer {
+        void accept(long time, double mean, int first, int second, int third, int count) throws IOException;
+    }
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * @param size the number of readings, at least 1
+     * @return the bit stream of the readings
+     */
+    static byte[] encode(long[] times, double[] means, int[] firsts, int[] seconds, int[] thirds, int[] counts,
+                         int size) {
+        BitWriter out = new BitWriter(size * 4 + 32);
+        out.write(times[0], 64);
+        XorEncoder mean = new XorEncoder(Double.doubleToRawLongBits(means[0]), out);
+        XorEncoder first = new XorEncoder(firsts[0], out);
+        XorEncoder second = new XorEncoder(seconds[0], out);
+        XorEncoder third = new XorEncoder(thirds[0], out);
+        XorEncoder count = new XorEncoder(counts[0], out);
+        long previousDelta = 0;
+        for (int i = 1; i < size; i++) {
+            long delta = times[i] - times[i - 1];
+            writeDeltaOfDelta(out, delta - previousDelta);
+            previousDelta = delta;
+            mean.encode(Double.doubleToRawLongBits(means[i]));
+            first.encode(firsts[i]);
+            second.encode(seconds[i]);
+            third.encode(thirds[i]);
+            count.encode(counts[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param chunk the bit stream written by
+     *              {@link #encode(long[], double[], int[], int[], int[], int[], int)}
+     * @param size  the number of readings in the chunk
+     */
+    static void decode(byte[] chunk, int size, ReadingConsumer consumer) throws IOException {
+        BitReader in = new BitReader(chunk);
+        long time = in.read(64);
+        XorDecoder mean = new XorDecoder(in);
+        XorDecoder first = new XorDecoder(in);
+        XorDecoder second = new XorDecoder(in);
+        XorDecoder third = new XorDecoder(in);
+        XorDecoder count = new XorDecoder(in);
+        consumer.accept(time, Double.longBitsToDouble(mean.value), (int) first.value, (int) second.value,
+                (int) third.value, (int) count.value);
+        long delta = 0;
+        for (int i = 1; i < size; i++) {
+            delta += readDeltaOfDelta(in);
+            time += delta;
+            consumer.accept(time, Double.longBitsToDouble(mean.decode()), (int) first.decode(),
+                    (int) second.decode(), (int) third.decode(), (int) count.decode());
+        }
+    }
+
+    /**
+     * '0' for 0, then '10', '110' and '1110' followed by 7, 9 and 12 bits, '1111' and the 64 bits otherwise.
+     */
+    private static void writeDeltaOfDelta(BitWriter out, long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            out.write(0, 1);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            out.write(0b10, 2);
+            out.write(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            out.write(0b110, 3);
+            out.write(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            out.write(0b1110, 4);
+            out.write(deltaOfDelta, 12);
+        } else {
+            out.write(0b1111, 4);
+            out.write(deltaOfDelta, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        int prefix = 0;
+        while (prefix < 4 && in.read(1) == 1) {
+            prefix++;
+        }
+        switch (prefix) {
+            case 0:
+                return 0;
+            case 1:
+                return signed(in.read(7), 7);
+            case 2:
+                return signed(in.read(9), 9);
+            case 3:
+                return signed(in.read(12), 12);
+            default:
+                return in.read(64);
+        }
+    }
+
+    /**
+     * @return the value of the bits read back, the values above the largest encoded positive value being negative
+     */
+    private static long signed(long bits, int length) {
+        return bits > 1L << (length - 1) ? bits - (1L << length) : bits;
+    }
+
+    /**
+     * XOR encoding of the successive values of a field.
+     */
+    private static final class XorEncoder {
+        private final BitWriter out;
+        private long value;
+        /** the window of the meaningful bits of the previous XOR, 64 leading zeros before the first one */
+        private int leadingZeros = 64;
+        private int trailingZeros;
+
+        XorEncoder(long first, BitWriter out) {
+            this.out = out;
+            this.value = first;
+            out.write(first, 64);
+        }
+
+        void encode(long next) {
+            long xor = value ^ next;
+            value = next;
+            if (xor == 0) {
+                out.write(0, 1);
+                return;
+            }
+            int leading = Long.numberOfLeadingZeros(xor);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= leadingZeros && trailing >= trailingZeros) {
+                out.write(0b10, 2);
+                out.write(xor >>> trailingZeros, 64 - leadingZeros - trailingZeros);
+            } else {
+                out.write(0b11, 2);
+                out.write(leading, 6);
+                // a meaningful length of 64 is stored as 0
+                out.write(64 - leading - trailing, 6);
+                out.write(xor >>> trailing, 64 - leading - trailing);
+                leadingZeros = leading;
+                trailingZeros = trailing;
+            }
+        }
+    }
+
+    private static final class XorDecoder {
+        private final BitReader in;
+        long value;
+        private int leadingZeros;
+        private int trailingZeros;
+
+        XorDecoder(BitReader in) {
+            this.in = in;
+            this.value = in.read(64);
+        }
+
+        long decode() {
+            if (in.read(1) == 0) {
+                return value;
+            }
+            if (in.read(1) == 1) {
+                leadingZeros = (int) in.read(6);
+                int meaningful = (int) in.read(6);
+                trailingZeros = 64 - leadingZeros - (meaningful == 0 ? 64 : meaningful);
+            }
+            value ^= in.read(64 - leadingZeros - trailingZeros) << trailingZeros;
+            return value;
+        }
+    }
+
+    /**
+     * Appends bits, most significant first.
+     */
+    private static final class BitWriter {
+        private byte[] bytes;
+        /** the number of bits written */
+        private long position;
+
+        BitWriter(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        /**
+         * Write the low length bits of the value.
+         */
+        void write(long value, int length) {
+            if ((position + length + 7) / 8 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, (int) ((position + length + 7) / 8)));
+            }
+            for (int remaining = length; remaining > 0; ) {
+                int index = (int) (position >>> 3);
+                int free = 8 - (int) (position & 7);
+                int bits = Math.min(free, remaining);
+                remaining -= bits;
+                int chunk = (int) ((value >>> remaining) & ((1 << bits) - 1));
+                bytes[index] |= chunk << (free - bits);
+                position += bits;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (int) ((position + 7) / 8));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] bytes;
+        private long position;
+
+        BitReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the next length bits as the low bits of a long
+         */
+        long read(int length) {
+            long value = 0;
+            for (int remaining = length; remaining > 0; ) {
+                int index = (int) (position >>> 3);
+                int available = 8 - (int) (position & 7);
+                int bits = Math.min(available, remaining);
+                int chunk = ((bytes[index] & 0xFF) >>> (available - bits)) & ((1 << bits) - 1);
+                value = (value << bits) | chunk;
+                remaining -= bits;
+                position += bits;
+            }
+            return value;
+        }
+    }
+}
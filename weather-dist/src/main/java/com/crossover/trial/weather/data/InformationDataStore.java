@@ -1,13 +1,28 @@
 package com.crossover.trial.weather.data;
 
 import com.crossover.trial.weather.model.*;
-import com.crossover.trial.weather.utils.StreamUtils;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
@@ -17,15 +32,214 @@ import java.util.stream.Collectors;
  */
 public class InformationDataStore {
 
+    private static final Logger LOGGER = Logger.getLogger(InformationDataStore.class.getName());
+
+    /**
+     * system property selecting the atmospheric information backend: "object" (default), "columnar" or "mapped"
+     */
+    public static final String STORE_BACKEND_PROPERTY = "weather.store.backend";
+
+    /**
+     * system property with the path of the file of the "mapped" backend, weather.dat by default
+     */
+    public static final String STORE_FILE_PROPERTY = "weather.store.file";
+
+    /**
+     * system property with the directory of the write ahead log, the log is disabled when it is not set
+     */
+    public static final String WAL_DIRECTORY_PROPERTY = "weather.wal.dir";
+
+    /**
+     * system property with the fsync policy of the write ahead log: "always" (default), "interval" or "never"
+     */
+    public static final String WAL_FSYNC_PROPERTY = "weather.wal.fsync";
+
+    /**
+     * system property with the fsync period in milliseconds of the "interval" policy, 100 by default
+     */
+    public static final String WAL_FSYNC_INTERVAL_PROPERTY = "weather.wal.fsyncIntervalMillis";
+
+    /**
+     * system property with the log segment size in bytes that triggers a snapshot, 64 MB by default
+     */
+    public static final String WAL_COMPACTION_THRESHOLD_PROPERTY = "weather.wal.compactionThreshold";
+
+    /**
+     * Receives the atmospheric information of the airports of a radius query.
+     */
+    public interface AtmosphericInformationConsumer {
+        void accept(AtmosphericInformation atmosphericInformation) throws IOException;
+    }
+
+    /**
+     * Receives the json encoded atmospheric information of the airports of a radius query.
+     */
+    public interface AtmosphericInformationJsonConsumer {
+
+        /**
+         * @param json the json object, shared and not to be modified
+         */
+        void accept(byte[] json) throws IOException;
+    }
+
+    /**
+     * Notified of the data point updates on the thread of the collector, which it must not block.
+     */
+    public interface UpdateListener {
+        void updated(AirportData airportData);
+    }
+
+    /**
+     * system property with the number of radius query results kept in the cache, 1024 by default, 0 to disable it
+     */
+    public static final String QUERY_CACHE_SIZE_PROPERTY = "weather.query.cacheSize";
+
+    /**
+     * system property enabling the precomputed neighbor lists of the popular radii, true by default
+     */
+    public static final String NEIGHBOR_LISTS_PROPERTY = "weather.query.neighborLists";
+
+    /**
+     * system property enabling the tree of pre-aggregated readings answering the radius aggregates, true by default
+     */
+    public static final String AGGREGATE_TREE_PROPERTY = "weather.query.aggregateTree";
+
+    /**
+     * system property with the number of readings kept in memory per airport and data point type, 8 by default, 0 to
+     * keep only the latest reading. A reading costs 32 bytes, allocated with the first reading of a type: 8 readings
+     * of the six types take 1.5 KB per airport, 128 take 24 KB. Older readings are read from the archive, when enabled.
+     */
+    public static final String HISTORY_SIZE_PROPERTY = "weather.history.size";
+
+    /**
+     * system property with the directory of the archive of the readings, the archive is disabled when it is not set
+     */
+    public static final String ARCHIVE_DIRECTORY_PROPERTY = "weather.archive.dir";
+
+    /**
+     * system property with the size in bytes after which a new archive segment is started, 256 MB by default
+     */
+    public static final String ARCHIVE_SEGMENT_SIZE_PROPERTY = "weather.archive.segmentSize";
+
+    /** the maximum total number of neighbors in the lists, about 200 MB */
+    private static final long MAX_NEIGHBORS = 16L * 1024 * 1024;
+
+    /** delay letting a burst of airport changes, such as an import, trigger a single build of the indexes */
+    private static final long INDEX_BUILD_DELAY_MILLIS = 200;
+
+    /** radius query results with more airports are streamed rather than cached */
+    private static final int MAX_CACHED_AIRPORTS = 1024;
+
     private volatile static InformationDataStore instance;
 
     /**
-     * atmospheric information for each airport based on iata code
+     * primary index: airport and its atmospheric information based on iata code
+     */
+    private final ConcurrentHashMap<String, AirportEntry> airportsByIata;
+
+    /**
+     * secondary index: the same entries as {@link #airportsByIata} for airports that have an icao code, the first
+     * one added for a code shared by several airports
      */
-    private final ConcurrentHashMap<AirportData, AtomicReference<AtmosphericInformation>> atmosphericInformationForAirports;
+    private final ConcurrentHashMap<String, AirportEntry> airportsByIcao;
+
+    /** whether airports were added with the icao code of another one, since the last clear */
+    private volatile boolean icaoShared;
+
+    /**
+     * location index used to answer radius queries
+     */
+    private final SpatialIndex spatialIndex;
+
+    /**
+     * dense slots of the airports, shared by the spatial index and the atmospheric information store
+     */
+    private final SlotAllocator slots;
+
+    /**
+     * latest atmospheric information of every airport by slot
+     */
+    private final AtmosphericInformationStore atmosphericInformationStore;
+
+    /**
+     * airports with a reading in the last day, maintained on every update so that health checks do not scan
+     */
+    private final RecentUpdatesCounter recentUpdates;
+
+    /**
+     * durable log of the mutations, null when disabled
+     */
+    private final WriteAheadLog writeAheadLog;
+
+    /**
+     * incremented after every addition or deletion of airports, telling whether a cached radius query is current
+     */
+    private final AtomicLong airportSetVersion = new AtomicLong();
+
+    /**
+     * json results of the recent radius queries
+     */
+    private final RadiusQueryCache<RadiusResult> radiusQueryCache;
+
+    /**
+     * neighbors of every airport up to the most requested radius, null until built
+     */
+    private volatile NeighborLists neighborLists;
+
+    /**
+     * pre-aggregated readings of the airports by location, null until built
+     */
+    private volatile AggregateTree aggregateTree;
+
+    private final boolean neighborListsEnabled;
+
+    private final boolean aggregateTreeEnabled;
+
+    /**
+     * builds the neighbor lists and the aggregate tree in the background
+     */
+    private final ScheduledExecutorService indexBuilder;
+
+    private final AtomicBoolean indexesScheduled = new AtomicBoolean();
+
+    /** the number of readings in the history of a data point type of an airport */
+    private final int historySize;
+
+    /**
+     * compressed readings older than the history, null when disabled
+     */
+    private final ReadingArchive readingArchive;
+
+    /**
+     * notified of every data point update, after the airport is unlocked
+     */
+    private final List<UpdateListener> updateListeners = new CopyOnWriteArrayList<>();
 
     private InformationDataStore() {
-        atmosphericInformationForAirports = new ConcurrentHashMap<>();
+        airportsByIata = new ConcurrentHashMap<>();
+        airportsByIcao = new ConcurrentHashMap<>();
+        spatialIndex = new SpatialIndex();
+        slots = new SlotAllocator();
+        atmosphericInformationStore = createAtmosphericInformationStore(
+                System.getProperty(STORE_BACKEND_PROPERTY, "object"));
+        recentUpdates = new RecentUpdatesCounter(TimeUnit.DAYS.toMillis(1));
+        historySize = Integer.getInteger(HISTORY_SIZE_PROPERTY, 8);
+        radiusQueryCache = new RadiusQueryCache<>(Integer.getInteger(QUERY_CACHE_SIZE_PROPERTY, 1024));
+        neighborListsEnabled = Boolean.parseBoolean(System.getProperty(NEIGHBOR_LISTS_PROPERTY, "true"));
+        aggregateTreeEnabled = Boolean.parseBoolean(System.getProperty(AGGREGATE_TREE_PROPERTY, "true"));
+        indexBuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "weather-index-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        atmosphericInformationStore.forEachAirport(this::restoreAirport);
+        // opened before the replay, which adds the readings of the chunks that were not sealed yet
+        String archiveDirectory = System.getProperty(ARCHIVE_DIRECTORY_PROPERTY);
+        readingArchive = archiveDirectory != null
+                ? new ReadingArchive(Paths.get(archiveDirectory),
+                        Long.getLong(ARCHIVE_SEGMENT_SIZE_PROPERTY, 256L * 1024 * 1024))
+                : null;
+        writeAheadLog = openWriteAheadLog();
     }
 
     public static InformationDataStore getInstance() {
@@ -40,40 +254,487 @@ public class InformationDataStore {
         return instance;
     }
 
+    private static AtmosphericInformationStore createAtmosphericInformationStore(String backend) {
+        switch (backend) {
+            case "object":
+                return new ObjectAtmosphericInformationStore();
+            case "columnar":
+                return new ColumnarAtmosphericInformationStore();
+            case "mapped":
+                return new MappedAtmosphericInformationStore(
+                        Paths.get(System.getProperty(STORE_FILE_PROPERTY, "weather.dat")));
+            default:
+                throw new IllegalArgumentException("Unknown atmospheric information store backend: " + backend);
+        }
+    }
+
+    /**
+     * Replay the write ahead log, if enabled, then start logging the new mutations.
+     */
+    private WriteAheadLog openWriteAheadLog() {
+        String directory = System.getProperty(WAL_DIRECTORY_PROPERTY);
+        if (directory == null) {
+            return null;
+        }
+        WriteAheadLog log = new WriteAheadLog(Paths.get(directory),
+                WriteAheadLog.FsyncPolicy.valueOf(System.getProperty(WAL_FSYNC_PROPERTY, "always").toUpperCase()),
+                Long.getLong(WAL_FSYNC_INTERVAL_PROPERTY, 100),
+                Long.getLong(WAL_COMPACTION_THRESHOLD_PROPERTY, 64L * 1024 * 1024));
+        log.replay(new Replay());
+        log.start(this::writeSnapshot);
+        return log;
+    }
+
     public Set<String> listAirportIataCodes() {
-        return Collections.unmodifiableSet(
-                StreamUtils.enumerationAsStream(atmosphericInformationForAirports.keys())
-                        .map(AirportData::getIata).collect(Collectors.toSet()));
+        return Collections.unmodifiableSet(new HashSet<>(airportsByIata.keySet()));
     }
 
     public Set<AirportData> listAirports() {
         return Collections.unmodifiableSet(
-                StreamUtils.enumerationAsStream(atmosphericInformationForAirports.keys())
-                        .collect(Collectors.toSet()));
+                airportsByIata.values().stream().map(AirportEntry::getAirportData).collect(Collectors.toSet()));
     }
 
+    /**
+     * Constant time lookup of an airport by its iata code.
+     *
+     * @param iataCode iata code
+     * @return the airport data or null if there is no such airport
+     */
     public AirportData findAirportData(String iataCode) {
-        return atmosphericInformationForAirports.searchKeys(
-                Runtime.getRuntime().availableProcessors(), ad -> ad.getIata().equals(iataCode) ? ad : null);
+        AirportEntry entry = iataCode != null ? airportsByIata.get(iataCode) : null;
+        return entry != null ? entry.getAirportData() : null;
+    }
+
+    /**
+     * Constant time lookup of an airport by its icao code.
+     *
+     * @param icaoCode icao code
+     * @return the airport data or null if there is no such airport
+     */
+    public AirportData findAirportDataByIcao(String icaoCode) {
+        AirportEntry entry = icaoCode != null ? airportsByIcao.get(icaoCode) : null;
+        return entry != null ? entry.getAirportData() : null;
+    }
+
+    /**
+     * List the airports within the given great-circle distance of the reference airport.
+     *
+     * @param reference the airport in the center of the search
+     * @param radiusKm  the radius in km
+     * @return the airports within the radius, including the reference airport
+     */
+    public List<AirportData> findAirportsWithin(AirportData reference, double radiusKm) {
+        List<AirportData> result = new ArrayList<>();
+        try {
+            forEachAirportWithin(reference, radiusKm, (airports, count) -> {
+                for (int i = 0; i < count; i++) {
+                    result.add(airports[i]);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Pass the atmospheric information of the airports within the given great-circle distance of the reference
+     * airport to the consumer as the spatial index finds them. No lock is held while the consumer runs, so it may
+     * write to a slow client.
+     *
+     * @param reference the airport in the center of the search
+     * @param radiusKm  the radius in km
+     * @param consumer  receives the information of every airport within the radius, the reference one included
+     */
+    public void forEachAtmosphericInformationWithin(AirportData reference, double radiusKm,
+                                                    AtmosphericInformationConsumer consumer) throws IOException {
+        forEachAirportWithin(reference, radiusKm, (airports, count) -> {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(findAtmosphericInformation(airports[i]));
+            }
+        });
+    }
+
+    /**
+     * Like {@link #forEachAtmosphericInformationWithin(AirportData, double, AtmosphericInformationConsumer)}, but
+     * passing the cached json of the airports that have readings so that the response is a join of fragments.
+     *
+     * @param reference the airport in the center of the search
+     * @param radiusKm  the radius in km
+     * @param consumer  receives the json object of every airport with readings within the radius
+     */
+    public void forEachAtmosphericInformationJsonWithin(AirportData reference, double radiusKm,
+                                                        AtmosphericInformationJsonConsumer consumer)
+            throws IOException {
+        forEachAirportWithin(reference, radiusKm, (airports, count) -> {
+            for (int i = 0; i < count; i++) {
+                AirportEntry entry = airportsByIata.get(airports[i].getIata());
+                JsonFragment json = entry != null ? json(entry) : null;
+                if (json != null && !json.empty) {
+                    consumer.accept(json.bytes);
+                }
+            }
+        });
+    }
+
+    /**
+     * The json array of the atmospheric information of the airports with readings within the radius, as joined by
+     * {@link #forEachAtmosphericInformationJsonWithin(AirportData, double, AtmosphericInformationJsonConsumer)}.
+     * <p>
+     * The result comes from the radius query cache as long as no airport was added or deleted and none of the
+     * matching airports got a new reading since it was computed. When only readings changed, the array is joined
+     * again from the cached fragments of the same airports, without a scan.
+     *
+     * @param reference the airport in the center of the search
+     * @param radiusKm  the radius in km
+     * @return the json array, null if the cache is disabled or the result has too many airports to be cached
+     */
+    public byte[] findAtmosphericInformationJsonWithin(AirportData reference, double radiusKm) {
+        if (!radiusQueryCache.isEnabled()) {
+            return null;
+        }
+        long setVersion = airportSetVersion.get();
+        RadiusResult cached = radiusQueryCache.get(reference.getIata(), radiusKm);
+        if (cached != null && cached.airportSetVersion == setVersion) {
+            radiusQueryCache.hit();
+            if (cached.airports == null || cached.isCurrent()) {
+                return cached.json;
+            }
+            RadiusResult refreshed = join(setVersion, cached.airports);
+            radiusQueryCache.put(reference.getIata(), radiusKm, refreshed);
+            return refreshed.json;
+        }
+
+        radiusQueryCache.miss();
+        List<AirportEntry> matches = new ArrayList<>();
+        try {
+            forEachAirportWithin(reference, radiusKm, (airports, count) -> {
+                for (int i = 0; i < count && matches.size() <= MAX_CACHED_AIRPORTS; i++) {
+                    AirportEntry entry = airportsByIata.get(airports[i].getIata());
+                    if (entry != null) {
+                        matches.add(entry);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        RadiusResult result = matches.size() > MAX_CACHED_AIRPORTS
+                ? new RadiusResult(setVersion, null, null, null)
+                : join(setVersion, matches.toArray(new AirportEntry[matches.size()]));
+        // a result scanned while airports were added or deleted may miss some of them
+        if (airportSetVersion.get() == setVersion) {
+            radiusQueryCache.put(reference.getIata(), radiusKm, result);
+        }
+        return result.json;
+    }
+
+    /**
+     * @return the number of radius queries answered from the cache
+     */
+    public long getRadiusQueryCacheHits() {
+        return radiusQueryCache.getHits();
+    }
+
+    /**
+     * @return the number of radius queries that needed a scan
+     */
+    public long getRadiusQueryCacheMisses() {
+        return radiusQueryCache.getMisses();
+    }
+
+    /**
+     * @return the number of radius query results in the cache
+     */
+    public int getRadiusQueryCacheSize() {
+        return radiusQueryCache.size();
+    }
+
+    /**
+     * @return the total number of neighbors in the precomputed lists, 0 when there are none
+     */
+    public long getNeighborListsSize() {
+        NeighborLists lists = neighborLists;
+        return lists != null ? lists.size() : 0;
+    }
+
+    /**
+     * Build the neighbor lists of the current airport set up to the most requested radius, unless they already are.
+     * Runs in the background after every change of the airport set, and when a query is not covered by the lists;
+     * builds are serialized so that a build from an older histogram never replaces a newer one.
+     */
+    synchronized void buildNeighborLists() {
+        long setVersion = airportSetVersion.get();
+        double radiusKm = NeighborLists.popularRadius(FrequencyDataStore.getInstance().radiusHistogram());
+        NeighborLists current = neighborLists;
+        if (current != null && current.airportSetVersion == setVersion && current.targetRadiusKm == radiusKm) {
+            return;
+        }
+        neighborLists = radiusKm > 0 ? NeighborLists.build(spatialIndex, setVersion, radiusKm, MAX_NEIGHBORS) : null;
+    }
+
+    /**
+     * Build the aggregate tree of the current airport set, unless it already is, then fill it with the current
+     * readings. Runs in the background after every change of the airport set.
+     */
+    synchronized void buildAggregateTree() {
+        long setVersion = airportSetVersion.get();
+        AggregateTree current = aggregateTree;
+        if (current != null && current.airportSetVersion == setVersion) {
+            return;
+        }
+        AggregateTree tree = new AggregateTree(setVersion, spatialIndex.airports());
+        // published before it is filled, so that the updates from now on reach it
+        aggregateTree = tree;
+        for (AirportEntry entry : airportsByIata.values()) {
+            synchronized (entry) {
+                if (!entry.isDeleted()) {
+                    tree.update(entry.getSlot(), atmosphericInformationStore.get(entry.getSlot()));
+                }
+            }
+        }
+        tree.ready();
+    }
+
+    private void scheduleIndexes() {
+        if ((neighborListsEnabled || aggregateTreeEnabled) && indexesScheduled.compareAndSet(false, true)) {
+            indexBuilder.schedule(() -> {
+                indexesScheduled.set(false);
+                if (neighborListsEnabled) {
+                    buildNeighborLists();
+                }
+                if (aggregateTreeEnabled) {
+                    buildAggregateTree();
+                }
+            }, INDEX_BUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Pass the airports within the radius to the consumer, walking the neighbor list of the reference airport when
+     * the lists are current and cover the radius, searching the spatial index otherwise.
+     */
+    private void forEachAirportWithin(AirportData reference, double radiusKm, SpatialIndex.BatchConsumer consumer)
+            throws IOException {
+        NeighborLists lists = neighborLists;
+        if (lists != null && lists.airportSetVersion == airportSetVersion.get() && lists.covers(radiusKm)) {
+            AirportEntry entry = airportsByIata.get(reference.getIata());
+            if (entry != null && lists.forEachWithin(entry.getSlot(), reference, radiusKm, consumer)) {
+                return;
+            }
+        }
+        scheduleIndexes();
+        spatialIndex.forEachBatchWithin(reference.getLatitude(), reference.getLongitude(), radiusKm, consumer);
+    }
+
+    /**
+     * Count, mean, minimum and maximum of the means of a data point type over the airports within the radius that
+     * have a reading of the type. Answered from the aggregate tree in logarithmic time for most radii, by a radius
+     * query while the tree is being built after a change of the airport set.
+     *
+     * @param reference     the airport in the center
+     * @param radiusKm      the radius in km
+     * @param dataPointType the data point type
+     * @return the aggregate, with a count of 0 and no mean when no airport has a reading
+     */
+    public RadiusAggregate aggregateWithin(AirportData reference, double radiusKm, DataPointType dataPointType) {
+        AggregateTree tree = aggregateTree;
+        if (tree != null && tree.isReady() && tree.airportSetVersion == airportSetVersion.get()) {
+            return tree.aggregate(reference.getLatitude(), reference.getLongitude(), radiusKm, dataPointType);
+        }
+        scheduleIndexes();
+        int[] count = new int[1];
+        double[] sumMinMax = {0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        try {
+            forEachAirportWithin(reference, radiusKm, (airports, batchCount) -> {
+                for (int i = 0; i < batchCount; i++) {
+                    AirportEntry entry = airportsByIata.get(airports[i].getIata());
+                    DataPoint dataPoint = entry != null
+                            ? atmosphericInformation(entry).getDataPoint(dataPointType)
+                            : null;
+                    if (dataPoint != null) {
+                        count[0]++;
+                        sumMinMax[0] += dataPoint.getMean();
+                        sumMinMax[1] = Math.min(sumMinMax[1], dataPoint.getMean());
+                        sumMinMax[2] = Math.max(sumMinMax[2], dataPoint.getMean());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count[0] > 0
+                ? new RadiusAggregate(count[0], sumMinMax[0] / count[0], sumMinMax[1], sumMinMax[2])
+                : new RadiusAggregate(0, null, null, null);
+    }
+
+    /**
+     * Join the fragments of the airports with readings in a json array.
+     */
+    private RadiusResult join(long setVersion, AirportEntry[] airports) {
+        long[] versions = new long[airports.length];
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+        try {
+            writer.beginArray();
+            for (int i = 0; i < airports.length; i++) {
+                JsonFragment json = json(airports[i]);
+                versions[i] = json.version;
+                if (!json.empty) {
+                    writer.writeEncoded(json.bytes);
+                }
+            }
+            writer.endArray();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new RadiusResult(setVersion, airports, versions, output.toByteArray());
+    }
+
+    /**
+     * The atmospheric information of the airport encoded as a json object. The bytes are cached with the airport
+     * until a new reading is merged, so repeated reads of a busy airport are a copy rather than a serialization.
+     *
+     * @param airportData the airport
+     * @return the json object, shared and not to be modified; null if there is no such airport
+     */
+    public byte[] findAtmosphericInformationJson(AirportData airportData) {
+        AirportEntry entry = airportsByIata.get(airportData.getIata());
+        return entry != null ? json(entry).bytes : null;
+    }
+
+    private JsonFragment json(AirportEntry entry) {
+        // read the version first: the fragment then holds readings at least as recent as the version says
+        long version = entry.getVersion();
+        JsonFragment json = entry.getJson();
+        if (json == null || json.version != version) {
+            AtmosphericInformation atmosphericInformation = atmosphericInformation(entry);
+            json = new JsonFragment(version, AtmosphericInformationJsonWriter.encode(atmosphericInformation),
+                    atmosphericInformation.isEmpty());
+            entry.setJson(json);
+        }
+        return json;
+    }
+
+    /**
+     * Read the atmospheric information of an airport without locking it. An airport deleted meanwhile reads as
+     * empty: its slot may already be cleared, or even given to another airport.
+     */
+    private AtmosphericInformation atmosphericInformation(AirportEntry entry) {
+        AtmosphericInformation atmosphericInformation =
+                entry.isDeleted() ? null : atmosphericInformationStore.get(entry.getSlot());
+        // the entry is marked deleted before its slot is cleared, so a read followed by a live entry is its own
+        if (atmosphericInformation == null || entry.isDeleted()) {
+            return new AtmosphericInformation.Builder().build();
+        }
+        return atmosphericInformation;
+    }
+
+    /**
+     * The readings of a data point type of an airport taken in a time range, from its history, and from the archive
+     * for the readings older than the history.
+     *
+     * @param airportData   the airport
+     * @param dataPointType the type of the readings
+     * @param from          the earliest time, inclusive, in milliseconds since UTC epoch
+     * @param to            the latest time, inclusive
+     * @return the json array of the readings with their time, oldest first; null if there is no such airport
+     */
+    public byte[] findHistoryJson(AirportData airportData, DataPointType dataPointType, long from, long to) {
+        AirportEntry entry = airportsByIata.get(airportData.getIata());
+        if (entry == null) {
+            return null;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+        try {
+            writer.beginArray();
+            ReadingHistory history = entry.getHistory(dataPointType);
+            ReadingHistory.Range recent = history != null ? history.range(from, to) : null;
+            long oldestTime = recent != null ? recent.getOldestTime() : Long.MAX_VALUE;
+            if (readingArchive != null && from <= oldestTime) {
+                // the readings dropped from the history are archived, the ones at its oldest time included
+                if (recent == null || to < oldestTime) {
+                    readingArchive.write(airportData.getIata(), dataPointType, from, to, writer);
+                } else {
+                    readingArchive.write(airportData.getIata(), dataPointType, from, oldestTime,
+                            recent.getDroppedAtOldestTime(), writer);
+                }
+            }
+            if (recent != null) {
+                recent.write(writer);
+            }
+            writer.endArray();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
     }
 
     public AtmosphericInformation findAtmosphericInformation(AirportData airportData) {
-        return atmosphericInformationForAirports.getOrDefault(airportData,
-                new AtomicReference<>(new AtmosphericInformation.Builder().build())).get();
+        AirportEntry entry = airportsByIata.get(airportData.getIata());
+        return entry != null ? atmosphericInformation(entry) : new AtmosphericInformation.Builder().build();
     }
 
     public List<AtmosphericInformation> listAtmosphericInformation() {
         return Collections.unmodifiableList(
-                atmosphericInformationForAirports.values().stream().map(AtomicReference::get).collect(Collectors.toList()));
+                airportsByIata.values().stream()
+                        .map(this::atmosphericInformation)
+                        .collect(Collectors.toList()));
     }
 
+    /**
+     * Add an airport, replacing any airport with the same iata code together with its atmospheric information.
+     *
+     * @param airportData the airport
+     * @return the added airport
+     */
     public AirportData addAirport(AirportData airportData) {
-        atmosphericInformationForAirports.put(airportData, new AtomicReference<>(new AtmosphericInformation.Builder().build()));
+        awaitDurable(addAirport(airportData, writeAheadLog));
         return airportData;
     }
 
+    /**
+     * Add many airports at once, waiting for the write ahead log a single time.
+     *
+     * @param airports the airports, in insertion order
+     */
+    public void addAirports(Collection<AirportData> airports) {
+        long sequence = 0;
+        for (AirportData airportData : airports) {
+            sequence = Math.max(sequence, addAirport(airportData, writeAheadLog));
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Register a listener of the data point updates.
+     */
+    public void addUpdateListener(UpdateListener listener) {
+        updateListeners.add(listener);
+    }
+
+    public void removeUpdateListener(UpdateListener listener) {
+        updateListeners.remove(listener);
+    }
+
+    /**
+     * Flush the persistent state, if any. The store must not be used afterwards.
+     */
+    public void close() {
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+        if (readingArchive != null) {
+            readingArchive.close();
+        }
+        atmosphericInformationStore.close();
+    }
+
     public void clear() {
-        atmosphericInformationForAirports.clear();
+        awaitDurable(clear(writeAheadLog));
     }
 
     /**
@@ -83,21 +744,441 @@ public class InformationDataStore {
      * @return deleted airport data or null if nothing is deleted
      */
     public AirportData deleteAirport(String iataCode) {
-        AirportData airportData = findAirportData(iataCode);
-        if (airportData != null) {
-            atmosphericInformationForAirports.remove(airportData);
+        if (iataCode == null) {
+            return null;
         }
-        return airportData;
+        AtomicReference<AirportData> deleted = new AtomicReference<>();
+        awaitDurable(deleteAirport(iataCode, deleted, writeAheadLog));
+        return deleted.get();
     }
 
     public void updateDataPoint(AirportData airportData, AtmosphericInformation newInfo) {
-        AtomicReference<AtmosphericInformation> currentInfo = atmosphericInformationForAirports.get(airportData);
-        if (currentInfo != null) {
-            currentInfo.getAndAccumulate(newInfo, AtmosphericInformation::merge);
+        awaitDurable(updateDataPoint(airportData.getIata(), newInfo, System.currentTimeMillis(), true,
+                writeAheadLog));
+    }
+
+    /**
+     * Merge readings into many airports at once, waiting for the write ahead log a single time.
+     *
+     * @param updates the readings of each airport, applied in iteration order
+     */
+    public void updateDataPoints(Map<AirportData, AtmosphericInformation> updates) {
+        long sequence = 0;
+        for (Map.Entry<AirportData, AtmosphericInformation> update : updates.entrySet()) {
+            sequence = Math.max(sequence, updateDataPoint(update.getKey().getIata(), update.getValue(),
+                    System.currentTimeMillis(), true, writeAheadLog));
         }
+        awaitDurable(sequence);
     }
 
     public int size() {
-        return atmosphericInformationForAirports.size();
+        return airportsByIata.size();
+    }
+
+    /**
+     * @return the number of airports with at least one reading during the last day
+     */
+    public int countRecentlyUpdatedAirports() {
+        return recentUpdates.count(System.currentTimeMillis());
+    }
+
+    //
+    // Mutations, applied and logged in the same critical section so that the log order of the mutations of an
+    // airport is the order in which they were applied. Each returns the log sequence of its record, 0 if nothing
+    // was logged.
+    //
+
+    private long addAirport(AirportData airportData, WriteAheadLog log) {
+        AtomicLong sequence = new AtomicLong();
+        beginMutation(log);
+        try {
+            airportsByIata.compute(airportData.getIata(), (iata, previous) -> {
+                if (previous != null) {
+                    unindex(previous);
+                }
+                int slot = slots.allocate();
+                atmosphericInformationStore.reset(slot, airportData);
+                spatialIndex.add(slot, airportData);
+                AirportEntry entry = new AirportEntry(airportData, slot, historySize);
+                indexIcao(entry);
+                if (log != null) {
+                    sequence.set(log.logAddAirport(airportData));
+                }
+                return entry;
+            });
+            publishAirportSet();
+            scheduleIndexes();
+        } finally {
+            endMutation(log);
+        }
+        return sequence.get();
+    }
+
+    private long deleteAirport(String iataCode, AtomicReference<AirportData> deleted, WriteAheadLog log) {
+        AtomicLong sequence = new AtomicLong();
+        beginMutation(log);
+        try {
+            // unindex while holding the key so that a concurrent add of the same airport is not unindexed
+            airportsByIata.computeIfPresent(iataCode, (iata, entry) -> {
+                unindex(entry);
+                deleted.set(entry.getAirportData());
+                if (log != null) {
+                    sequence.set(log.logDeleteAirport(iata));
+                }
+                return null;
+            });
+            if (deleted.get() != null) {
+                publishAirportSet();
+                scheduleIndexes();
+            }
+        } finally {
+            endMutation(log);
+        }
+        return sequence.get();
+    }
+
+    /**
+     * @param reading false to only restore the latest data points of the airport, as read back from a snapshot,
+     *                without recording them again in its history and in the archive
+     */
+    private long updateDataPoint(String iataCode, AtmosphericInformation newInfo, long updateTime, boolean reading,
+                                 WriteAheadLog log) {
+        AirportEntry entry = airportsByIata.get(iataCode);
+        if (entry == null) {
+            return 0;
+        }
+        long sequence;
+        beginMutation(log);
+        try {
+            // updates of the same airport are serialized to keep the recent updates count exact, readers never lock
+            synchronized (entry) {
+                if (entry.isDeleted()) {
+                    return 0;
+                }
+                long previousUpdateTime = atmosphericInformationStore.merge(entry.getSlot(), newInfo, updateTime);
+                if (previousUpdateTime != AtmosphericInformationStore.EMPTY) {
+                    recentUpdates.remove(previousUpdateTime);
+                }
+                recentUpdates.add(updateTime);
+                entry.invalidateJson();
+                if (reading) {
+                    entry.addHistory(newInfo, updateTime);
+                }
+                AggregateTree tree = aggregateTree;
+                if (tree != null) {
+                    tree.update(entry.getSlot(), newInfo);
+                }
+                if (reading && readingArchive != null) {
+                    readingArchive.add(iataCode, newInfo, updateTime);
+                }
+                sequence = log != null ? log.logUpdateDataPoint(iataCode, newInfo, updateTime) : 0;
+            }
+        } finally {
+            endMutation(log);
+        }
+        for (UpdateListener listener : updateListeners) {
+            listener.updated(entry.getAirportData());
+        }
+        return sequence;
+    }
+
+    private long clear(WriteAheadLog log) {
+        beginMutation(log);
+        try {
+            // queries and updates still holding an entry then see it as deleted, as after deleteAirport
+            for (AirportEntry entry : airportsByIata.values()) {
+                synchronized (entry) {
+                    entry.markDeleted();
+                }
+            }
+            airportsByIata.clear();
+            airportsByIcao.clear();
+            icaoShared = false;
+            spatialIndex.clear();
+            slots.clear();
+            atmosphericInformationStore.clear();
+            recentUpdates.clear();
+            radiusQueryCache.clear();
+            airportSetVersion.incrementAndGet();
+            neighborLists = null;
+            aggregateTree = null;
+            return log != null ? log.logClear() : 0;
+        } finally {
+            endMutation(log);
+        }
+    }
+
+    private static void beginMutation(WriteAheadLog log) {
+        if (log != null) {
+            log.beginMutation();
+        }
+    }
+
+    private static void endMutation(WriteAheadLog log) {
+        if (log != null) {
+            log.endMutation();
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        if (writeAheadLog != null) {
+            writeAheadLog.awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Write every airport and its atmospheric information as a snapshot, for the compaction of the log. The readings
+     * logged before the snapshot are only kept by the archive from then on, so it is flushed first.
+     */
+    private void writeSnapshot(WriteAheadLog.Snapshot snapshot) {
+        if (readingArchive != null) {
+            readingArchive.flush();
+        }
+        for (AirportEntry entry : airportsByIata.values()) {
+            synchronized (entry) {
+                if (entry.isDeleted()) {
+                    continue;
+                }
+                AirportData airportData = entry.getAirportData();
+                snapshot.addAirport(airportData);
+                AtmosphericInformation atmosphericInformation = atmosphericInformationStore.get(entry.getSlot());
+                if (!atmosphericInformation.isEmpty()) {
+                    snapshot.restoreDataPoint(airportData.getIata(), atmosphericInformation,
+                            atmosphericInformation.getLastUpdateTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the mutations read back from the write ahead log, without logging them again.
+     */
+    private class Replay implements WriteAheadLog.Mutations {
+
+        @Override
+        public void addAirport(AirportData airportData) {
+            InformationDataStore.this.addAirport(airportData, null);
+        }
+
+        @Override
+        public void deleteAirport(String iataCode) {
+            InformationDataStore.this.deleteAirport(iataCode, new AtomicReference<>(), null);
+        }
+
+        @Override
+        public void updateDataPoint(String iataCode, AtmosphericInformation newInfo, long updateTime) {
+            InformationDataStore.this.updateDataPoint(iataCode, newInfo, updateTime, true, null);
+        }
+
+        @Override
+        public void restoreDataPoint(String iataCode, AtmosphericInformation information, long updateTime) {
+            InformationDataStore.this.updateDataPoint(iataCode, information, updateTime, false, null);
+        }
+
+        @Override
+        public void clear() {
+            InformationDataStore.this.clear(null);
+        }
+    }
+
+    /**
+     * Publish a new version of the set of airports, invalidating the radius results and the indexes built for the
+     * previous ones.
+     */
+    private void publishAirportSet() {
+        slots.publish();
+        airportSetVersion.incrementAndGet();
+    }
+
+    /**
+     * Index an airport read back from a persistent store at the slot it had before the restart.
+     */
+    private void restoreAirport(AirportData airportData, int slot) {
+        slots.reserve(slot);
+        spatialIndex.add(slot, airportData);
+        AirportEntry entry = new AirportEntry(airportData, slot, historySize);
+        airportsByIata.put(airportData.getIata(), entry);
+        indexIcao(entry);
+        long lastUpdateTime = atmosphericInformationStore.lastUpdateTime(slot);
+        if (lastUpdateTime != AtmosphericInformationStore.EMPTY) {
+            recentUpdates.add(lastUpdateTime);
+        }
+    }
+
+    private void unindex(AirportEntry entry) {
+        synchronized (entry) {
+            entry.markDeleted();
+            long lastUpdateTime = atmosphericInformationStore.lastUpdateTime(entry.getSlot());
+            if (lastUpdateTime != AtmosphericInformationStore.EMPTY) {
+                recentUpdates.remove(lastUpdateTime);
+            }
+        }
+        spatialIndex.remove(entry.getSlot());
+        atmosphericInformationStore.remove(entry.getSlot());
+        // queries may still hold the entry, the slot is only reused once newer airport sets are published
+        slots.retire(entry.getSlot());
+        String icao = entry.getAirportData().getIcao();
+        if (icao != null && airportsByIcao.remove(icao, entry) && icaoShared) {
+            // another airport with the same code is found from now on
+            for (AirportEntry other : airportsByIata.values()) {
+                if (other != entry && !other.isDeleted() && icao.equals(other.getAirportData().getIcao())) {
+                    airportsByIcao.putIfAbsent(icao, other);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Index the airport by its icao code, unless another airport has it already: it keeps being the one found.
+     */
+    private void indexIcao(AirportEntry entry) {
+        String icao = entry.getAirportData().getIcao();
+        if (icao == null || icao.isEmpty()) {
+            return;
+        }
+        AirportEntry previous = airportsByIcao.putIfAbsent(icao, entry);
+        if (previous != null) {
+            icaoShared = true;
+            LOGGER.warning("Airports " + previous.getAirportData().getIata() + " and "
+                    + entry.getAirportData().getIata() + " share the icao code " + icao + ", "
+                    + previous.getAirportData().getIata() + " is found by it");
+        }
+    }
+
+    /**
+     * An airport together with its slot, shared by the iata and icao indexes.
+     */
+    private static class AirportEntry {
+
+        private final AirportData airportData;
+
+        /** the slot of the airport in the spatial index and the atmospheric information store */
+        private final int slot;
+
+        /** set once the entry left the indexes, under the entry monitor; read without it by the queries */
+        private volatile boolean deleted;
+
+        /** incremented after every merge of readings, written under the entry monitor */
+        private volatile long version;
+
+        /** the json of the atmospheric information at some version, null until first requested */
+        private volatile JsonFragment json;
+
+        /** the readings of every data point type by ordinal, null when no history is kept */
+        private final ReadingHistory[] history;
+
+        AirportEntry(AirportData airportData, int slot, int historySize) {
+            this.airportData = airportData;
+            this.slot = slot;
+            if (historySize > 0) {
+                history = new ReadingHistory[DataPointType.values().length];
+                for (int i = 0; i < history.length; i++) {
+                    history[i] = new ReadingHistory(historySize);
+                }
+            } else {
+                history = null;
+            }
+        }
+
+        AirportData getAirportData() {
+            return airportData;
+        }
+
+        int getSlot() {
+            return slot;
+        }
+
+        boolean isDeleted() {
+            return deleted;
+        }
+
+        void markDeleted() {
+            deleted = true;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        JsonFragment getJson() {
+            return json;
+        }
+
+        void setJson(JsonFragment json) {
+            this.json = json;
+        }
+
+        /**
+         * Called with the entry monitor held once a new reading is merged.
+         */
+        void invalidateJson() {
+            version++;
+            json = null;
+        }
+
+        ReadingHistory getHistory(DataPointType dataPointType) {
+            return history != null ? history[dataPointType.ordinal()] : null;
+        }
+
+        /**
+         * Called with the entry monitor held once a new reading is merged.
+         */
+        void addHistory(AtmosphericInformation newInfo, long updateTime) {
+            if (history == null) {
+                return;
+            }
+            for (DataPointType type : DataPointType.values()) {
+                DataPoint dataPoint = newInfo.getDataPoint(type);
+                if (dataPoint != null) {
+                    history[type.ordinal()].add(updateTime, dataPoint);
+                }
+            }
+        }
+    }
+
+    /**
+     * A cached radius query: the matching airports with the versions of their readings, and the json array.
+     */
+    private static final class RadiusResult {
+        final long airportSetVersion;
+        /** null when there were too many airports to cache the result */
+        final AirportEntry[] airports;
+        final long[] versions;
+        final byte[] json;
+
+        RadiusResult(long airportSetVersion, AirportEntry[] airports, long[] versions, byte[] json) {
+            this.airportSetVersion = airportSetVersion;
+            this.airports = airports;
+            this.versions = versions;
+            this.json = json;
+        }
+
+        /**
+         * @return whether none of the airports got a new reading since the json was joined
+         */
+        boolean isCurrent() {
+            for (int i = 0; i < airports.length; i++) {
+                if (airports[i].getVersion() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Encoded atmospheric information of an airport, valid while the version of the airport is unchanged.
+     */
+    private static final class JsonFragment {
+        final long version;
+        final byte[] bytes;
+        final boolean empty;
+
+        JsonFragment(long version, byte[] bytes, boolean empty) {
+            this.version = version;
+            this.bytes = bytes;
+            this.empty = empty;
+        }
     }
 }
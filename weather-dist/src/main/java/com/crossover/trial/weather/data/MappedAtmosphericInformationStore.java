@@ -0,0 +1,367 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DST;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Persistent {@link AtmosphericInformationStore} keeping every airport and its latest data points in a memory-mapped
+ * file of fixed size records, one per slot.
+ * <p>
+ * The file is a {@link #HEADER_SIZE} bytes header followed by segments of {@link #SEGMENT_RECORDS} records of
+ * {@link #RECORD_SIZE} bytes, each segment mapped on its own so the file grows without remapping. Reopening the file
+ * after a restart only maps it: the airports are read back from their records by {@link #forEachAirport}, nothing
+ * is parsed and no collector update has to be replayed. The operating system writes the pages back, {@link #close()}
+ * forces them to disk.
+ */
+class MappedAtmosphericInformationStore implements AtmosphericInformationStore {
+
+    private static final int MAGIC = 0x57544852; // WTHR
+
+    private static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 4096;
+
+    static final int RECORD_SIZE = 512;
+
+    static final int SEGMENT_RECORDS = 1024;
+
+    private static final long SEGMENT_SIZE = (long) RECORD_SIZE * SEGMENT_RECORDS;
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    // record layout, offsets in bytes
+    private static final int STATE = 0;
+    private static final int PRESENT_TYPES = 4;
+    private static final int LAST_UPDATE_TIME = 8;
+    private static final int LATITUDE = 16;
+    private static final int LONGITUDE = 24;
+    private static final int ALTITUDE = 32;
+    private static final int TIMEZONE = 40;
+    private static final int DST_ORDINAL = 48;
+    private static final int IATA = 52;
+    private static final int ICAO = 68;
+    private static final int NAME = 84;
+    private static final int CITY = 180;
+    private static final int COUNTRY = 244;
+    private static final int DATA_POINTS = 312;
+
+    private static final int CODE_WIDTH = 16;
+    private static final int NAME_WIDTH = 96;
+    private static final int PLACE_WIDTH = 64;
+
+    // data point layout, relative to DATA_POINTS + type.ordinal() * DATA_POINT_SIZE
+    private static final int DATA_POINT_SIZE = 32;
+    private static final int MEAN = 0;
+    private static final int FIRST = 8;
+    private static final int SECOND = 12;
+    private static final int THIRD = 16;
+    private static final int COUNT = 20;
+    private static final int TIME = 24;
+
+    private static final int FREE = 0;
+    private static final int USED = 1;
+
+    private final FileChannel channel;
+
+    /** only ever appended so that growing never loses a concurrent write */
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * Open the store file, creating it if it does not exist.
+     *
+     * @param file the store file
+     * @throws UncheckedIOException if the file can not be opened or mapped
+     * @throws IllegalStateException if the file is not a store file of this version
+     */
+    MappedAtmosphericInformationStore(Path file) {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getInt(0) == 0) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, RECORD_SIZE);
+                header.putInt(12, SEGMENT_RECORDS);
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(8) != RECORD_SIZE || header.getInt(12) != SEGMENT_RECORDS) {
+                throw new IllegalStateException(file + " is not a weather store file of version " + VERSION);
+            }
+            long segmentCount = (channel.size() - HEADER_SIZE) / SEGMENT_SIZE;
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(map(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void reset(int slot, AirportData airportData) {
+        ensureCapacity(slot);
+        Segment segment = segment(slot);
+        int record = record(slot);
+        long stamp = segment.lock.writeLock();
+        try {
+            ByteBuffer buffer = segment.buffer;
+            buffer.putInt(record + STATE, FREE);
+            buffer.putInt(record + PRESENT_TYPES, 0);
+            buffer.putLong(record + LAST_UPDATE_TIME, System.currentTimeMillis());
+            buffer.putDouble(record + LATITUDE, airportData.getLatitude());
+            buffer.putDouble(record + LONGITUDE, airportData.getLongitude());
+            buffer.putDouble(record + ALTITUDE, airportData.getAltitude());
+            buffer.putDouble(record + TIMEZONE, airportData.getTimezone());
+            buffer.putInt(record + DST_ORDINAL, airportData.getDst() != null ? airportData.getDst().ordinal() + 1 : 0);
+            putCode(buffer, record + IATA, airportData.getIata());
+            putCode(buffer, record + ICAO, airportData.getIcao());
+            putString(buffer, record + NAME, NAME_WIDTH, airportData.getName());
+            putString(buffer, record + CITY, PLACE_WIDTH, airportData.getCity());
+            putString(buffer, record + COUNTRY, PLACE_WIDTH, airportData.getCountry());
+            // written last so that a record torn by a crash is never read back
+            buffer.putInt(record + STATE, USED);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(int slot) {
+        Segment segment = segment(slot);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.buffer.putInt(record(slot) + STATE, FREE);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public AtmosphericInformation get(int slot) {
+        Segment segment = segment(slot);
+        int record = record(slot);
+        long stamp = segment.lock.tryOptimisticRead();
+        AtmosphericInformation atmosphericInformation = readAtmosphericInformation(segment.buffer, record);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                atmosphericInformation = readAtmosphericInformation(segment.buffer, record);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return atmosphericInformation;
+    }
+
+    @Override
+    public long lastUpdateTime(int slot) {
+        Segment segment = segment(slot);
+        int record = record(slot);
+        long stamp = segment.lock.readLock();
+        try {
+            return segment.buffer.getInt(record + PRESENT_TYPES) == 0
+                    ? EMPTY : segment.buffer.getLong(record + LAST_UPDATE_TIME);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long merge(int slot, AtmosphericInformation newInfo, long updateTime) {
+        Segment segment = segment(slot);
+        int record = record(slot);
+        long stamp = segment.lock.writeLock();
+        try {
+            ByteBuffer buffer = segment.buffer;
+            int present = buffer.getInt(record + PRESENT_TYPES);
+            long previousUpdateTime = present == 0 ? EMPTY : buffer.getLong(record + LAST_UPDATE_TIME);
+            for (DataPointType type : TYPES) {
+                DataPoint dataPoint = newInfo.getDataPoint(type);
+                if (dataPoint != null) {
+                    int offset = record + DATA_POINTS + type.ordinal() * DATA_POINT_SIZE;
+                    buffer.putDouble(offset + MEAN, dataPoint.getMean());
+                    buffer.putInt(offset + FIRST, dataPoint.getFirst());
+                    buffer.putInt(offset + SECOND, dataPoint.getSecond());
+                    buffer.putInt(offset + THIRD, dataPoint.getThird());
+                    buffer.putInt(offset + COUNT, dataPoint.getCount());
+                    buffer.putLong(offset + TIME, updateTime);
+                    present |= 1 << type.ordinal();
+                }
+            }
+            buffer.putInt(record + PRESENT_TYPES, present);
+            buffer.putLong(record + LAST_UPDATE_TIME, updateTime);
+            return previousUpdateTime;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                for (int i = 0; i < SEGMENT_RECORDS; i++) {
+                    segment.buffer.putInt(i * RECORD_SIZE + STATE, FREE);
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public void forEachAirport(ObjIntConsumer<AirportData> consumer) {
+        for (int i = 0; i < segments.size(); i++) {
+            ByteBuffer buffer = segments.get(i).buffer;
+            for (int j = 0; j < SEGMENT_RECORDS; j++) {
+                int record = j * RECORD_SIZE;
+                if (buffer.getInt(record + STATE) == USED) {
+                    consumer.accept(readAirportData(buffer, record), i * SEGMENT_RECORDS + j);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Segment segment(int slot) {
+        return segments.get(slot / SEGMENT_RECORDS);
+    }
+
+    private static int record(int slot) {
+        return (slot % SEGMENT_RECORDS) * RECORD_SIZE;
+    }
+
+    private synchronized void ensureCapacity(int slot) {
+        try {
+            while (segments.size() <= slot / SEGMENT_RECORDS) {
+                segments.add(map(segments.size()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Segment map(int index) throws IOException {
+        return new Segment(channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + index * SEGMENT_SIZE,
+                SEGMENT_SIZE));
+    }
+
+    private static AtmosphericInformation readAtmosphericInformation(ByteBuffer buffer, int record) {
+        AtmosphericInformation.Builder builder = new AtmosphericInformation.Builder();
+        int present = buffer.getInt(record + PRESENT_TYPES);
+        for (DataPointType type : TYPES) {
+            if ((present & 1 << type.ordinal()) != 0) {
+                int offset = record + DATA_POINTS + type.ordinal() * DATA_POINT_SIZE;
+                builder.withDataPoint(type, new DataPoint.Builder()
+                        .withMean(buffer.getDouble(offset + MEAN))
+                        .withFirst(buffer.getInt(offset + FIRST))
+                        .withMedian(buffer.getInt(offset + SECOND))
+                        .withLast(buffer.getInt(offset + THIRD))
+                        .withCount(buffer.getInt(offset + COUNT))
+                        .build());
+            }
+        }
+        AtmosphericInformation atmosphericInformation = builder.build();
+        atmosphericInformation.setLastUpdateTime(buffer.getLong(record + LAST_UPDATE_TIME));
+        return atmosphericInformation;
+    }
+
+    private static AirportData readAirportData(ByteBuffer buffer, int record) {
+        int dst = buffer.getInt(record + DST_ORDINAL);
+        return new AirportData.Builder()
+                .withIata(getString(buffer, record + IATA))
+                .withIcao(getString(buffer, record + ICAO))
+                .withName(getString(buffer, record + NAME))
+                .withCity(getString(buffer, record + CITY))
+                .withCountry(getString(buffer, record + COUNTRY))
+                .withLatitude(buffer.getDouble(record + LATITUDE))
+                .withLongitude(buffer.getDouble(record + LONGITUDE))
+                .withAltitude(buffer.getDouble(record + ALTITUDE))
+                .withTimezone(buffer.getDouble(record + TIMEZONE))
+                .withDst(dst > 0 ? DST.values()[dst - 1] : null)
+                .build();
+    }
+
+    /**
+     * Codes identify the airport and are never truncated.
+     */
+    private static void putCode(ByteBuffer buffer, int offset, String code) {
+        if (code != null && code.getBytes(StandardCharsets.UTF_8).length >= CODE_WIDTH) {
+            throw new IllegalArgumentException("Airport code too long for the store file: " + code);
+        }
+        putString(buffer, offset, CODE_WIDTH, code);
+    }
+
+    /**
+     * Write a string as a length byte followed by its UTF-8 bytes, truncated on a character boundary to fit in width
+     * bytes; a length of 255 stands for null.
+     */
+    private static void putString(ByteBuffer buffer, int offset, int width, String value) {
+        if (value == null) {
+            buffer.put(offset, (byte) 0xFF);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, width - 1);
+        if (length < bytes.length) {
+            while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                length--;
+            }
+        }
+        buffer.put(offset, (byte) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put(offset + 1 + i, bytes[i]);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int offset) {
+        int length = buffer.get(offset) & 0xFF;
+        if (length == 0xFF) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 1 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A mapped region of {@link #SEGMENT_RECORDS} records, accessed with absolute gets and puts only.
+     */
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        final StampedLock lock = new StampedLock();
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
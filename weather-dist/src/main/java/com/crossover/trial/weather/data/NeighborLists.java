@@ -0,0 +1,228 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Precomputed neighbors of every airport up to a radius: the slots of the airports within the radius sorted by
+ * distance, with their haversine values. Airports do not move, so a radius query up to that radius is a binary
+ * search and a walk over a prefix of an int[] instead of a geometric search.
+ * <p>
+ * The lists are an immutable snapshot of one version of the airport set; they answer nothing once an airport has
+ * been added or deleted, until they are built again.
+ */
+class NeighborLists {
+
+    /** share of the requests whose radius the lists should cover */
+    private static final double COVERED_REQUESTS = 0.9;
+
+    private static final int BATCH_SIZE = 256;
+
+    /** the airport set version the lists were built from */
+    final long airportSetVersion;
+
+    /** the radius asked for, from the request frequencies */
+    final double targetRadiusKm;
+
+    /** the radius actually covered, smaller than the target when the lists would have been too large */
+    final double radiusKm;
+
+    private final AirportData[] airports;
+
+    private final int[][] neighbors;
+
+    private final double[][] haversines;
+
+    private final long size;
+
+    private NeighborLists(long airportSetVersion, double targetRadiusKm, double radiusKm, AirportData[] airports,
+                          int[][] neighbors, double[][] haversines, long size) {
+        this.airportSetVersion = airportSetVersion;
+        this.targetRadiusKm = targetRadiusKm;
+        this.radiusKm = radiusKm;
+        this.airports = airports;
+        this.neighbors = neighbors;
+        this.haversines = haversines;
+        this.size = size;
+    }
+
+    /**
+     * The smallest radius, as a bound of the ranges of {@link FrequencyDataStore#radiusHistogram()}, covering most
+     * of the requests. The last range counts every larger radius, so the result is at most the start of that range.
+     *
+     * @return the radius in km, 0 if there was no request
+     */
+    static double popularRadius(int[] radiusHistogram) {
+        long total = 0;
+        for (int count : radiusHistogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long covered = 0;
+        for (int i = 0; i < radiusHistogram.length - 1; i++) {
+            covered += radiusHistogram[i];
+            if (covered >= total * COVERED_REQUESTS) {
+                return (i + 1) * FrequencyDataStore.RADIUS_HISTOGRAM_STEP;
+            }
+        }
+        return (radiusHistogram.length - 1) * FrequencyDataStore.RADIUS_HISTOGRAM_STEP;
+    }
+
+    /**
+     * Build the lists of every airport of the index, halving the radius until they hold at most maxSize neighbors.
+     *
+     * @param index             the airports
+     * @param airportSetVersion the version of the airport set, read before calling
+     * @param radiusKm          the radius to cover
+     * @param maxSize           the maximum total number of neighbors
+     * @return the lists, null if even a radius of 1 km does not fit
+     */
+    static NeighborLists build(SpatialIndex index, long airportSetVersion, double radiusKm, long maxSize) {
+        AirportData[] airports = index.airports();
+        for (double radius = radiusKm; radius >= 1; radius /= 2) {
+            NeighborLists lists = build(index, airports, airportSetVersion, radiusKm, radius, maxSize);
+            if (lists != null) {
+                return lists;
+            }
+        }
+        return null;
+    }
+
+    private static NeighborLists build(SpatialIndex index, AirportData[] airports, long airportSetVersion,
+                                       double targetRadiusKm, double radiusKm, long maxSize) {
+        int[][] neighbors = new int[airports.length][];
+        double[][] haversines = new double[airports.length][];
+        Neighbors collected = new Neighbors();
+        long size = 0;
+        for (int slot = 0; slot < airports.length; slot++) {
+            if (airports[slot] == null) {
+                continue;
+            }
+            collected.count = 0;
+            index.forEachNeighbor(slot, radiusKm, collected);
+            size += collected.count;
+            if (size > maxSize) {
+                return null;
+            }
+            sort(collected.haversines, collected.slots, 0, collected.count - 1);
+            neighbors[slot] = Arrays.copyOf(collected.slots, collected.count);
+            haversines[slot] = Arrays.copyOf(collected.haversines, collected.count);
+        }
+        return new NeighborLists(airportSetVersion, targetRadiusKm, radiusKm, airports, neighbors, haversines, size);
+    }
+
+    boolean covers(double radiusKm) {
+        return radiusKm <= this.radiusKm;
+    }
+
+    /**
+     * @return the total number of neighbors
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Pass the airports within the radius of the airport at the slot to the consumer, nearest first.
+     *
+     * @param slot      the slot of the reference airport
+     * @param reference the reference airport, to check that the slot is still its own
+     * @param radiusKm  the radius in km, covered by the lists
+     * @param consumer  receives the airports
+     * @return false if the airport is not in the lists, nothing being passed to the consumer
+     */
+    boolean forEachWithin(int slot, AirportData reference, double radiusKm, SpatialIndex.BatchConsumer consumer)
+            throws IOException {
+        if (slot >= airports.length || neighbors[slot] == null || !reference.equals(airports[slot])) {
+            return false;
+        }
+        int[] slots = neighbors[slot];
+        int end = upperBound(haversines[slot], SpatialIndex.maxHaversine(radiusKm));
+        AirportData[] batch = new AirportData[Math.min(end, BATCH_SIZE)];
+        for (int start = 0; start < end; start += batch.length) {
+            int count = Math.min(batch.length, end - start);
+            for (int i = 0; i < count; i++) {
+                batch[i] = airports[slots[start + i]];
+            }
+            consumer.accept(batch, count);
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first value greater than the key
+     */
+    private static int upperBound(double[] sorted, double key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sort the keys in place, applying the same permutation to the values.
+     */
+    private static void sort(double[] keys, int[] values, int from, int to) {
+        while (from < to) {
+            double pivot = keys[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    int value = values[i];
+                    values[i] = values[j];
+                    values[j] = value;
+                    i++;
+                    j--;
+                }
+            }
+            // recurse into the smaller part to bound the stack depth
+            if (j - from < to - i) {
+                sort(keys, values, from, j);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j;
+            }
+        }
+    }
+
+    /**
+     * The neighbors of one airport, reused from one airport to the next while building.
+     */
+    private static final class Neighbors implements SpatialIndex.NeighborConsumer {
+        int[] slots = new int[64];
+        double[] haversines = new double[64];
+        int count;
+
+        @Override
+        public void accept(int slot, double haversine) {
+            if (count == slots.length) {
+                slots = Arrays.copyOf(slots, count * 2);
+                haversines = Arrays.copyOf(haversines, count * 2);
+            }
+            slots[count] = slot;
+            haversines[count++] = haversine;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Default {@link AtmosphericInformationStore} keeping one immutable {@link AtmosphericInformation} per slot,
+ * replaced by a merged copy on every update.
+ */
+class ObjectAtmosphericInformationStore implements AtmosphericInformationStore {
+
+    private static final int PAGE_SIZE = 1024;
+
+    /** fixed size pages of slots, only ever appended so that growing never loses a concurrent write */
+    private final List<AtomicReferenceArray<AtmosphericInformation>> pages = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void reset(int slot, AirportData airportData) {
+        ensureCapacity(slot);
+        page(slot).set(slot % PAGE_SIZE, new AtmosphericInformation.Builder().build());
+    }
+
+    @Override
+    public void remove(int slot) {
+        page(slot).set(slot % PAGE_SIZE, null);
+    }
+
+    @Override
+    public AtmosphericInformation get(int slot) {
+        return page(slot).get(slot % PAGE_SIZE);
+    }
+
+    @Override
+    public long lastUpdateTime(int slot) {
+        AtmosphericInformation current = get(slot);
+        return current == null || current.isEmpty() ? EMPTY : current.getLastUpdateTime();
+    }
+
+    @Override
+    public long merge(int slot, AtmosphericInformation newInfo, long updateTime) {
+        AtmosphericInformation current = get(slot);
+        AtmosphericInformation merged = current.merge(newInfo);
+        merged.setLastUpdateTime(updateTime);
+        page(slot).set(slot % PAGE_SIZE, merged);
+        return current.isEmpty() ? EMPTY : current.getLastUpdateTime();
+    }
+
+    @Override
+    public void clear() {
+        // the pages are kept for the queries still reading a slot, as in remove
+        for (AtomicReferenceArray<AtmosphericInformation> page : pages) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                page.set(i, null);
+            }
+        }
+    }
+
+    private AtomicReferenceArray<AtmosphericInformation> page(int slot) {
+        return pages.get(slot / PAGE_SIZE);
+    }
+
+    private synchronized void ensureCapacity(int slot) {
+        while (pages.size() <= slot / PAGE_SIZE) {
+            pages.add(new AtomicReferenceArray<>(PAGE_SIZE));
+        }
+    }
+}
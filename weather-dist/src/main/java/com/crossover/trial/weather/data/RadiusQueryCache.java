@@ -0,0 +1,164 @@
+package com.crossover.trial.weather.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of radius query results by iata code and radius, with hit and miss counts, evicting about the least
+ * recently used results.
+ * <p>
+ * Reads never lock: a hit only stamps its result with the current value of a clock that advances on every put. Once
+ * the cache grows past its capacity, the put that notices it evicts the results with the oldest stamps down to 7/8 of
+ * the capacity, so the scan is paid once every capacity / 8 puts. The cache only stores and evicts; telling whether a
+ * result is still valid is left to the caller, which versions its values.
+ *
+ * @param <V> the cached results
+ */
+class RadiusQueryCache<V> {
+
+    private final int capacity;
+
+    private final ConcurrentHashMap<Key, Stamped<V>> results = new ConcurrentHashMap<>();
+
+    /** advanced by every put, read by the hits */
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the maximum number of results, 0 to disable the cache
+     */
+    RadiusQueryCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @return the cached result, null if there is none
+     */
+    V get(String iataCode, double radiusKm) {
+        Stamped<V> stamped = results.get(new Key(iataCode, radiusKm));
+        if (stamped == null) {
+            return null;
+        }
+        long now = clock.get();
+        // hot results are not written again until the next put
+        if (stamped.lastAccess != now) {
+            stamped.lastAccess = now;
+        }
+        return stamped.value;
+    }
+
+    void put(String iataCode, double radiusKm, V result) {
+        if (isEnabled()) {
+            results.put(new Key(iataCode, radiusKm), new Stamped<>(result, clock.incrementAndGet()));
+            if (results.size() > capacity) {
+                evict();
+            }
+        }
+    }
+
+    void clear() {
+        results.clear();
+    }
+
+    int size() {
+        return results.size();
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Evict the results with the oldest stamps, down to 7/8 of the capacity. A single put evicts at a time, the others
+     * go on meanwhile.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Map.Entry<Key, Stamped<V>>> entries = new ArrayList<>(results.entrySet());
+            int excess = entries.size() - (capacity - capacity / 8);
+            if (excess <= 0) {
+                return;
+            }
+            long[] stamps = new long[entries.size()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = entries.get(i).getValue().lastAccess;
+            }
+            Arrays.sort(stamps);
+            long newestEvicted = stamps[excess - 1];
+            for (Map.Entry<Key, Stamped<V>> entry : entries) {
+                // a result replaced meanwhile is kept
+                if (excess > 0 && entry.getValue().lastAccess <= newestEvicted
+                        && results.remove(entry.getKey(), entry.getValue())) {
+                    excess--;
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static final class Stamped<V> {
+        final V value;
+        /** the clock of the put or of the latest hit */
+        volatile long lastAccess;
+
+        Stamped(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Key {
+        private final String iataCode;
+        private final double radiusKm;
+
+        Key(String iataCode, double radiusKm) {
+            this.iataCode = iataCode;
+            this.radiusKm = radiusKm;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return Double.compare(key.radiusKm, radiusKm) == 0 && iataCode.equals(key.iataCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * iataCode.hashCode() + Double.hashCode(radiusKm);
+        }
+    }
+}
@@ -0,0 +1,724 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Long term, compressed history of the readings on disk.
+ * <p>
+ * The readings of an airport and data point type are collected in memory for the current hour, then sealed by the
+ * weather-archive thread, never by the writers of the readings: the chunk is compressed with the {@link GorillaCodec}
+ * and appended to the current archive-N.seg segment, a new segment being started once it grows past the segment size.
+ * Every chunk is framed with its length and CRC32, and gets an entry in the archive-N.idx file of its segment, from
+ * which the in-memory index of the chunks of every airport and type is loaded on startup. Chunks appended after the
+ * last index entry, such as when a crash happened between both writes, are indexed again by scanning the end of the
+ * segment.
+ * <p>
+ * Range reads look up the chunks overlapping the range by binary search in the index and only read and decompress
+ * those. Readings are kept in time order: a reading older than the latest one of its hour is archived at the time of
+ * the latest one, and a reading not newer than the last one of a closed chunk is dropped, so that readings replayed
+ * from the write ahead log are not archived twice. The log only replays readings as they were logged: the latest data
+ * points restored from its snapshots are not readings and are not added. As the readings logged before a snapshot
+ * are then only kept here, the archive is {@link #flush() flushed}, the chunks of the current hour included, before
+ * the log is compacted. The archive outlives the deletion of airports.
+ */
+class ReadingArchive {
+
+    private static final Logger LOGGER = Logger.getLogger(ReadingArchive.class.getName());
+
+    /** the time covered by a chunk */
+    static final long CHUNK_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    /** chunk length and CRC32 of the chunk */
+    private static final int FRAME_SIZE = 8;
+
+    /** iata, type, first and last time, position in the segment, length of the chunk and number of readings */
+    private static final int INDEX_ENTRY_SIZE = 8 + 1 + 8 + 8 + 8 + 4 + 4;
+
+    /** the longest iata code that fits an index entry */
+    private static final int MAX_IATA_LENGTH = 8;
+
+    /** bits of the position of a chunk within its segment, the generation of the segment in the others */
+    private static final int OFFSET_BITS = 40;
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    private final Path directory;
+
+    private final long segmentSize;
+
+    /** the series of every iata code, by type ordinal */
+    private final Map<String, Series[]> series = new ConcurrentHashMap<>();
+
+    /** the open segments by generation, all readable, the last one written */
+    private final Map<Long, FileChannel> segments = new ConcurrentHashMap<>();
+
+    /** guarded by this */
+    private long generation;
+
+    /** guarded by this */
+    private FileChannel segment;
+
+    /** guarded by this */
+    private FileChannel index;
+
+    private final ScheduledExecutorService sealer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "weather-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Open the archive of the directory, creating it if needed, and load the index of its chunks.
+     *
+     * @param directory   the directory of the segments
+     * @param segmentSize the size in bytes after which a new segment is started
+     */
+    ReadingArchive(Path directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            List<Long> generations = generations();
+            for (long existing : generations) {
+                load(existing);
+            }
+            if (generations.isEmpty()) {
+                roll(1);
+            } else {
+                generation = generations.get(generations.size() - 1);
+                segment = segments.get(generation);
+                index = FileChannel.open(file(generation, INDEX_SUFFIX), StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the reading archive in " + directory, e);
+        }
+        long period = TimeUnit.MINUTES.toMillis(1);
+        sealer.scheduleAtFixedRate(() -> {
+            try {
+                seal(System.currentTimeMillis() / CHUNK_MILLIS);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Sealing archive chunks failed", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add the data points of an update to the chunks of the airport.
+     *
+     * @param iata       the airport
+     * @param newInfo    the data points of the update
+     * @param updateTime the time of the update, in milliseconds since UTC epoch
+     */
+    void add(String iata, AtmosphericInformation newInfo, long updateTime) {
+        if (iata.length() > MAX_IATA_LENGTH) {
+            return;
+        }
+        Series[] airport = series(iata);
+        for (DataPointType type : TYPES) {
+            DataPoint dataPoint = newInfo.getDataPoint(type);
+            if (dataPoint != null) {
+                airport[type.ordinal()].add(updateTime, dataPoint);
+            }
+        }
+    }
+
+    /**
+     * Write the archived readings taken between the two times, oldest first, as elements of the array of the writer.
+     *
+     * @param from   the earliest time, inclusive
+     * @param to     the latest time, inclusive
+     * @param writer the writer, with an array begun
+     * @return the number of readings written
+     */
+    int write(String iata, DataPointType type, long from, long to, AtmosphericInformationJsonWriter writer)
+            throws IOException {
+        return write(iata, type, from, to, Integer.MAX_VALUE, writer);
+    }
+
+    /**
+     * Write the archived readings taken between the two times, leaving out the latest ones taken at the latest time.
+     *
+     * @param from   the earliest time, inclusive
+     * @param to     the latest time, inclusive
+     * @param limit  the number of readings taken at the latest time that are written, the earliest ones
+     * @param writer the writer, with an array begun
+     * @return the number of readings written
+     */
+    int write(String iata, DataPointType type, long from, long to, int limit,
+              AtmosphericInformationJsonWriter writer) throws IOException {
+        Series[] airport = series.get(iata);
+        return airport != null && from <= to ? airport[type.ordinal()].write(from, to, limit, writer) : 0;
+    }
+
+    /**
+     * Seal the chunks of the hours that ended before the given time.
+     */
+    void sealEnded(long now) {
+        await(sealer.submit(() -> seal(now / CHUNK_MILLIS)));
+    }
+
+    /**
+     * Seal every chunk, the ones of the current hour included, and force them to disk.
+     */
+    void flush() {
+        await(sealer.submit(() -> {
+            seal(Long.MAX_VALUE);
+            force();
+        }));
+    }
+
+    /**
+     * Seal every chunk and close the files. The archive must not be used afterwards.
+     */
+    void close() {
+        Future<?> sealed = sealer.submit(() -> seal(Long.MAX_VALUE));
+        sealer.shutdown();
+        await(sealed);
+        synchronized (this) {
+            try {
+                segment.force(false);
+                index.force(false);
+                index.close();
+                for (FileChannel channel : segments.values()) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of sealed chunks
+     */
+    long chunkCount() {
+        long count = 0;
+        for (Series[] airport : series.values()) {
+            for (Series typeSeries : airport) {
+                count += typeSeries.chunkCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Seal the chunks of the hours before the given one. Only run by the sealer.
+     */
+    private void seal(long endHour) {
+        for (Series[] airport : series.values()) {
+            for (Series typeSeries : airport) {
+                typeSeries.sealBefore(endHour);
+            }
+        }
+    }
+
+    /**
+     * Seal the chunks closed by the writers of the readings, in the background.
+     */
+    private void sealLater(Series typeSeries) {
+        try {
+            sealer.execute(typeSeries::sealClosed);
+        } catch (RejectedExecutionException e) {
+            // closed: the archive must not be used anymore
+        }
+    }
+
+    private synchronized void force() {
+        try {
+            segment.force(false);
+            index.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Series[] series(String iata) {
+        return series.computeIfAbsent(iata, key -> {
+            Series[] airport = new Series[TYPES.length];
+            for (int i = 0; i < airport.length; i++) {
+                airport[i] = new Series(key, TYPES[i]);
+            }
+            return airport;
+        });
+    }
+
+    //
+    // segments
+    //
+
+    /**
+     * Append a chunk to the current segment and index it.
+     *
+     * @return the position of the chunk: the generation of the segment and the offset of its frame
+     */
+    private synchronized long append(String iata, DataPointType type, long firstTime, long lastTime, int count,
+                                     byte[] chunk) {
+        try {
+            if (segment.size() >= segmentSize) {
+                roll(generation + 1);
+            }
+            long offset = segment.size();
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE + chunkHeaderSize(iata) + chunk.length);
+            frame.position(FRAME_SIZE);
+            byte[] iataBytes = iata.getBytes(StandardCharsets.US_ASCII);
+            frame.put((byte) iataBytes.length).put(iataBytes).put((byte) type.ordinal())
+                    .putLong(firstTime).putLong(lastTime).putInt(count).put(chunk);
+            CRC32 crc = new CRC32();
+            crc.update(frame.array(), FRAME_SIZE, frame.capacity() - FRAME_SIZE);
+            frame.putInt(0, frame.capacity() - FRAME_SIZE).putInt(4, (int) crc.getValue());
+            frame.rewind();
+            writeFully(segment, frame, offset);
+            writeFully(index, indexEntry(iataBytes, type, firstTime, lastTime, offset, frame.capacity(), count),
+                    -1);
+            return generation << OFFSET_BITS | offset;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive a chunk of " + iata, e);
+        }
+    }
+
+    private static int chunkHeaderSize(String iata) {
+        return 1 + iata.length() + 1 + 8 + 8 + 4;
+    }
+
+    /**
+     * Start a new segment with the given generation.
+     */
+    private void roll(long nextGeneration) throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            index.force(false);
+            index.close();
+        }
+        generation = nextGeneration;
+        segment = FileChannel.open(file(generation, SEGMENT_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(generation, segment);
+        index = FileChannel.open(file(generation, INDEX_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Index the chunks of a segment from its index file, then from the chunks appended after the last entry.
+     */
+    private void load(long segmentGeneration) throws IOException {
+        FileChannel channel = FileChannel.open(file(segmentGeneration, SEGMENT_SUFFIX), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segments.put(segmentGeneration, channel);
+        long indexed = 0;
+        Path indexFile = file(segmentGeneration, INDEX_SUFFIX);
+        try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long entries = indexChannel.size() / INDEX_ENTRY_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate((int) (entries * INDEX_ENTRY_SIZE));
+            readFully(indexChannel, buffer, 0);
+            buffer.flip();
+            byte[] iataBytes = new byte[MAX_IATA_LENGTH];
+            long valid = 0;
+            for (; valid < entries; valid++) {
+                buffer.get(iataBytes);
+                String iata = new String(iataBytes, StandardCharsets.US_ASCII).trim();
+                DataPointType type = TYPES[buffer.get()];
+                long firstTime = buffer.getLong();
+                long lastTime = buffer.getLong();
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                int count = buffer.getInt();
+                if (offset + length > channel.size()) {
+                    break;
+                }
+                series(iata)[type.ordinal()].index(firstTime, lastTime, segmentGeneration << OFFSET_BITS | offset,
+                        length, count);
+                indexed = offset + length;
+            }
+            // drop torn or dangling entries, then index the chunks written after the last entry
+            indexChannel.truncate(valid * INDEX_ENTRY_SIZE);
+            recover(segmentGeneration, channel, indexed, indexChannel);
+        }
+    }
+
+    /**
+     * Index the valid chunks from the given offset of the segment, truncating it after the last one.
+     */
+    private void recover(long segmentGeneration, FileChannel channel, long offset, FileChannel indexChannel)
+            throws IOException {
+        long size = channel.size();
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        CRC32 crc = new CRC32();
+        while (size - offset >= FRAME_SIZE) {
+            frame.clear();
+            readFully(channel, frame, offset);
+            int length = frame.getInt(0);
+            int checksum = frame.getInt(4);
+            if (length <= 0 || length > size - offset - FRAME_SIZE) {
+                break;
+            }
+            ByteBuffer chunk = ByteBuffer.allocate(length);
+            readFully(channel, chunk, offset + FRAME_SIZE);
+            crc.reset();
+            crc.update(chunk.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            chunk.flip();
+            byte[] iataBytes = new byte[chunk.get()];
+            chunk.get(iataBytes);
+            DataPointType type = TYPES[chunk.get()];
+            long firstTime = chunk.getLong();
+            long lastTime = chunk.getLong();
+            int count = chunk.getInt();
+            int frameLength = FRAME_SIZE + length;
+            series(new String(iataBytes, StandardCharsets.US_ASCII))[type.ordinal()]
+                    .index(firstTime, lastTime, segmentGeneration << OFFSET_BITS | offset, frameLength, count);
+            writeFully(indexChannel, indexEntry(iataBytes, type, firstTime, lastTime, offset, frameLength, count),
+                    indexChannel.size());
+            offset += frameLength;
+        }
+        if (offset < size) {
+            LOGGER.warning("Ignoring " + (size - offset) + " bytes of torn chunks at the end of "
+                    + file(segmentGeneration, SEGMENT_SUFFIX));
+            channel.truncate(offset);
+        }
+    }
+
+    private static ByteBuffer indexEntry(byte[] iataBytes, DataPointType type, long firstTime, long lastTime,
+                                         long offset, int length, int count) {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        entry.put(iataBytes);
+        for (int i = iataBytes.length; i < MAX_IATA_LENGTH; i++) {
+            entry.put((byte) ' ');
+        }
+        entry.put((byte) type.ordinal()).putLong(firstTime).putLong(lastTime).putLong(offset).putInt(length)
+                .putInt(count);
+        entry.flip();
+        return entry;
+    }
+
+    /**
+     * @return the compressed readings of the chunk at the position
+     */
+    private byte[] read(long position, int length, String iata) throws IOException {
+        FileChannel channel = segments.get(position >>> OFFSET_BITS);
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        readFully(channel, frame, position & ((1L << OFFSET_BITS) - 1));
+        int skip = FRAME_SIZE + chunkHeaderSize(iata);
+        return Arrays.copyOfRange(frame.array(), skip, length);
+    }
+
+    /**
+     * @param position the position to write at, -1 to append to a channel opened for appending
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (position < 0) {
+                channel.write(buffer);
+            } else {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of archive segment");
+            }
+            position += read;
+        }
+    }
+
+    private Path file(long fileGeneration, String suffix) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, fileGeneration, suffix));
+    }
+
+    private List<Long> generations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                generations.add(Long.parseLong(
+                        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * The readings of an hour in growing primitive arrays, no longer written once closed.
+     */
+    private static final class Chunk {
+        private final long hour;
+        private int size;
+        private long[] times;
+        private double[] means;
+        private int[] firsts;
+        private int[] seconds;
+        private int[] thirds;
+        private int[] counts;
+
+        Chunk(long hour, int capacity) {
+            this.hour = hour;
+            times = new long[capacity];
+            means = new double[capacity];
+            firsts = new int[capacity];
+            seconds = new int[capacity];
+            thirds = new int[capacity];
+            counts = new int[capacity];
+        }
+
+        void add(long time, DataPoint dataPoint) {
+            if (size == times.length) {
+                int capacity = Math.max(16, size * 2);
+                times = Arrays.copyOf(times, capacity);
+                means = Arrays.copyOf(means, capacity);
+                firsts = Arrays.copyOf(firsts, capacity);
+                seconds = Arrays.copyOf(seconds, capacity);
+                thirds = Arrays.copyOf(thirds, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            times[size] = time;
+            means[size] = dataPoint.getMean();
+            firsts[size] = dataPoint.getFirst();
+            seconds[size] = dataPoint.getSecond();
+            thirds[size] = dataPoint.getThird();
+            counts[size] = dataPoint.getCount();
+            size++;
+        }
+
+        long lastTime() {
+            return times[size - 1];
+        }
+
+        Chunk copy() {
+            Chunk copy = new Chunk(hour, 0);
+            copy.size = size;
+            copy.times = Arrays.copyOf(times, size);
+            copy.means = Arrays.copyOf(means, size);
+            copy.firsts = Arrays.copyOf(firsts, size);
+            copy.seconds = Arrays.copyOf(seconds, size);
+            copy.thirds = Arrays.copyOf(thirds, size);
+            copy.counts = Arrays.copyOf(counts, size);
+            return copy;
+        }
+    }
+
+    /**
+     * The readings of one airport and data point type: the open chunk of the current hour, the closed chunks waiting
+     * for the sealer, and the index of the sealed chunks in time order. All guarded by the series monitor, the
+     * closed chunks being encoded and appended without holding it.
+     */
+    private final class Series {
+        private final String iata;
+        private final DataPointType type;
+
+        /** the chunk of the current hour, null until the next reading */
+        private Chunk open;
+
+        /** the chunks closed and not sealed yet, oldest first */
+        private final ArrayDeque<Chunk> closed = new ArrayDeque<>();
+
+        /** the last time of the closed chunks, readings up to it are dropped */
+        private long sealedTime = Long.MIN_VALUE;
+
+        private int chunks;
+        private long[] chunkFirstTimes = new long[0];
+        private long[] chunkLastTimes = new long[0];
+        private long[] chunkPositions = new long[0];
+        private int[] chunkLengths = new int[0];
+        private int[] chunkCounts = new int[0];
+
+        Series(String iata, DataPointType type) {
+            this.iata = iata;
+            this.type = type;
+        }
+
+        synchronized void add(long time, DataPoint dataPoint) {
+            if (time <= sealedTime) {
+                return;
+            }
+            if (open != null) {
+                if (time / CHUNK_MILLIS > open.hour) {
+                    close();
+                    sealLater(this);
+                } else {
+                    time = Math.max(time, open.lastTime());
+                }
+            }
+            if (open == null) {
+                open = new Chunk(time / CHUNK_MILLIS, 16);
+            }
+            open.add(time, dataPoint);
+        }
+
+        /**
+         * Close the open chunk if its hour is before the given one, then seal the closed chunks. Only run by the
+         * sealer.
+         */
+        void sealBefore(long endHour) {
+            synchronized (this) {
+                if (open != null && open.hour < endHour) {
+                    close();
+                }
+            }
+            sealClosed();
+        }
+
+        /**
+         * Seal the closed chunks, oldest first. Only run by the sealer.
+         */
+        void sealClosed() {
+            while (true) {
+                Chunk chunk;
+                synchronized (this) {
+                    chunk = closed.peekFirst();
+                }
+                if (chunk == null) {
+                    return;
+                }
+                byte[] encoded = GorillaCodec.encode(chunk.times, chunk.means, chunk.firsts, chunk.seconds,
+                        chunk.thirds, chunk.counts, chunk.size);
+                long firstTime = chunk.times[0];
+                long position = append(iata, type, firstTime, chunk.lastTime(), chunk.size, encoded);
+                synchronized (this) {
+                    index(firstTime, chunk.lastTime(), position,
+                            FRAME_SIZE + chunkHeaderSize(iata) + encoded.length, chunk.size);
+                    closed.removeFirst();
+                }
+            }
+        }
+
+        private void close() {
+            closed.addLast(open);
+            sealedTime = Math.max(sealedTime, open.lastTime());
+            open = null;
+        }
+
+        synchronized void index(long firstTime, long lastTime, long position, int length, int count) {
+            if (chunks == chunkFirstTimes.length) {
+                int capacity = Math.max(8, chunks * 2);
+                chunkFirstTimes = Arrays.copyOf(chunkFirstTimes, capacity);
+                chunkLastTimes = Arrays.copyOf(chunkLastTimes, capacity);
+                chunkPositions = Arrays.copyOf(chunkPositions, capacity);
+                chunkLengths = Arrays.copyOf(chunkLengths, capacity);
+                chunkCounts = Arrays.copyOf(chunkCounts, capacity);
+            }
+            chunkFirstTimes[chunks] = firstTime;
+            chunkLastTimes[chunks] = lastTime;
+            chunkPositions[chunks] = position;
+            chunkLengths[chunks] = length;
+            chunkCounts[chunks] = count;
+            chunks++;
+            sealedTime = Math.max(sealedTime, lastTime);
+        }
+
+        synchronized int chunkCount() {
+            return chunks;
+        }
+
+        int write(long from, long to, int limit, AtmosphericInformationJsonWriter writer) throws IOException {
+            long[] positions;
+            int[] lengths;
+            int[] readings;
+            List<Chunk> unsealed;
+            // copy what overlaps the range so that the chunks are read and decoded without holding the monitor
+            synchronized (this) {
+                int start = firstChunkEndingAtOrAfter(from);
+                int end = start;
+                while (end < chunks && chunkFirstTimes[end] <= to) {
+                    end++;
+                }
+                positions = Arrays.copyOfRange(chunkPositions, start, end);
+                lengths = Arrays.copyOfRange(chunkLengths, start, end);
+                readings = Arrays.copyOfRange(chunkCounts, start, end);
+                unsealed = new ArrayList<>(closed);
+                if (open != null) {
+                    unsealed.add(open.copy());
+                }
+            }
+            // the number of readings written, and of the ones taken at the latest time
+            int[] written = new int[2];
+            GorillaCodec.ReadingConsumer inRange = (time, mean, first, second, third, count) -> {
+                if (time >= from && time <= to && (time < to || written[1]++ < limit)) {
+                    writer.writeReading(time, mean, first, second, third, count);
+                    written[0]++;
+                }
+            };
+            for (int i = 0; i < positions.length; i++) {
+                GorillaCodec.decode(read(positions[i], lengths[i], iata), readings[i], inRange);
+            }
+            for (Chunk chunk : unsealed) {
+                for (int i = 0; i < chunk.size; i++) {
+                    inRange.accept(chunk.times[i], chunk.means[i], chunk.firsts[i], chunk.seconds[i],
+                            chunk.thirds[i], chunk.counts[i]);
+                }
+            }
+            return written[0];
+        }
+
+        /**
+         * @return the first sealed chunk whose last time is at or after the time, chunks if there is none
+         */
+        private int firstChunkEndingAtOrAfter(long time) {
+            int low = 0;
+            int high = chunks;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (chunkLastTimes[middle] < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
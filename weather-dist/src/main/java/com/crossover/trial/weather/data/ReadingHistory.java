@@ -0,0 +1,194 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
+
+import java.io.IOException;
+
+/**
+ * The last readings of one data point type of an airport, in a ring of parallel primitive arrays.
+ * <p>
+ * The arrays are allocated on the first reading and never grow: once full, every reading overwrites the oldest one.
+ * Readings are kept in time order, a reading older than the newest one being recorded at the time of the newest, so
+ * a range is found by binary search and written straight from the arrays, without a {@link DataPoint} per reading.
+ */
+class ReadingHistory {
+
+    private final int capacity;
+
+    /** null until the first reading, all guarded by this */
+    private long[] times;
+    private double[] means;
+    private int[] firsts;
+    private int[] seconds;
+    private int[] thirds;
+    private int[] counts;
+
+    /** the physical index of the oldest reading */
+    private int start;
+
+    private int size;
+
+    /** the number of dropped readings taken at the time of the oldest one kept */
+    private int droppedAtStart;
+
+    /**
+     * @param capacity the number of readings kept
+     */
+    ReadingHistory(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Record a reading, dropping the oldest one if the history is full.
+     *
+     * @param time      the time of the reading, in milliseconds since UTC epoch
+     * @param dataPoint the reading
+     */
+    synchronized void add(long time, DataPoint dataPoint) {
+        if (times == null) {
+            times = new long[capacity];
+            means = new double[capacity];
+            firsts = new int[capacity];
+            seconds = new int[capacity];
+            thirds = new int[capacity];
+            counts = new int[capacity];
+        }
+        if (size > 0) {
+            time = Math.max(time, times[physical(size - 1)]);
+        }
+        int index;
+        long droppedTime = Long.MIN_VALUE;
+        if (size < capacity) {
+            index = physical(size++);
+        } else {
+            index = start;
+            droppedTime = times[start];
+            start = physical(1);
+        }
+        times[index] = time;
+        means[index] = dataPoint.getMean();
+        firsts[index] = dataPoint.getFirst();
+        seconds[index] = dataPoint.getSecond();
+        thirds[index] = dataPoint.getThird();
+        counts[index] = dataPoint.getCount();
+        if (droppedTime != Long.MIN_VALUE) {
+            droppedAtStart = times[start] == droppedTime ? droppedAtStart + 1 : 0;
+        }
+    }
+
+    /**
+     * Write the readings taken between the two times, oldest first, as elements of the array of the writer.
+     *
+     * @param from   the earliest time, inclusive
+     * @param to     the latest time, inclusive
+     * @param writer the writer, with an array begun
+     * @return the number of readings written
+     */
+    int write(long from, long to, AtmosphericInformationJsonWriter writer) throws IOException {
+        return range(from, to).write(writer);
+    }
+
+    /**
+     * Copy the readings taken between the two times together with the bounds of the history, in one critical
+     * section, so that they are written without holding the monitor and split from the older readings exactly.
+     *
+     * @param from the earliest time, inclusive
+     * @param to   the latest time, inclusive
+     */
+    synchronized Range range(long from, long to) {
+        int first = search(from, false);
+        int length = Math.max(0, search(to, true) - first);
+        Range range = new Range(size > 0 ? times[start] : Long.MAX_VALUE, droppedAtStart, length);
+        for (int i = 0; i < length; i++) {
+            int index = physical(first + i);
+            range.times[i] = times[index];
+            range.means[i] = means[index];
+            range.firsts[i] = firsts[index];
+            range.seconds[i] = seconds[index];
+            range.thirds[i] = thirds[index];
+            range.counts[i] = counts[index];
+        }
+        return range;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the logical index of the first reading at or after the time, or strictly after it, size if there is
+     * none
+     */
+    private int search(long time, boolean after) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long middleTime = times[physical(middle)];
+            if (middleTime < time || after && middleTime == time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int physical(int logical) {
+        int index = start + logical;
+        return index < capacity ? index : index - capacity;
+    }
+
+    /**
+     * Readings copied from the history, with the time of the oldest reading it kept then.
+     */
+    static final class Range {
+        private final long oldestTime;
+        private final int droppedAtOldestTime;
+        private final long[] times;
+        private final double[] means;
+        private final int[] firsts;
+        private final int[] seconds;
+        private final int[] thirds;
+        private final int[] counts;
+
+        private Range(long oldestTime, int droppedAtOldestTime, int length) {
+            this.oldestTime = oldestTime;
+            this.droppedAtOldestTime = droppedAtOldestTime;
+            times = new long[length];
+            means = new double[length];
+            firsts = new int[length];
+            seconds = new int[length];
+            thirds = new int[length];
+            counts = new int[length];
+        }
+
+        /**
+         * @return the time of the oldest reading kept by the history, Long.MAX_VALUE if there was none
+         */
+        long getOldestTime() {
+            return oldestTime;
+        }
+
+        /**
+         * @return the number of readings taken at the oldest time that the history had already dropped, the earliest
+         * ones at that time
+         */
+        int getDroppedAtOldestTime() {
+            return droppedAtOldestTime;
+        }
+
+        /**
+         * Write the readings, oldest first, as elements of the array of the writer.
+         *
+         * @return the number of readings written
+         */
+        int write(AtmosphericInformationJsonWriter writer) throws IOException {
+            for (int i = 0; i < times.length; i++) {
+                writer.writeReading(times[i], means[i], firsts[i], seconds[i], thirds[i], counts[i]);
+            }
+            return times.length;
+        }
+    }
+}
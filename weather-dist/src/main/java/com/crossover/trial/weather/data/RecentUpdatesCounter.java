@@ -0,0 +1,91 @@
+package com.crossover.trial.weather.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the airports whose latest reading is younger than a sliding time window, without scanning the airports.
+ * <p>
+ * Every airport is counted in the one minute bucket of its last update. Buckets live in a ring covering the window
+ * and each one packs the minute it belongs to with its count in a single long, so a bucket that falls out of the
+ * window is simply ignored by {@link #count(long)} and reset by the next increment that reuses it.
+ */
+class RecentUpdatesCounter {
+
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final int bucketCount;
+
+    /** minute of the bucket in the high 32 bits, number of airports in the low 32 bits */
+    private final AtomicLongArray buckets;
+
+    /**
+     * @param windowMillis the age after which an update is no longer counted
+     */
+    RecentUpdatesCounter(long windowMillis) {
+        bucketCount = (int) (windowMillis / BUCKET_MILLIS);
+        buckets = new AtomicLongArray(bucketCount);
+    }
+
+    /**
+     * Count an airport updated at the given time.
+     */
+    void add(long updateTime) {
+        long minute = updateTime / BUCKET_MILLIS;
+        int index = (int) (minute % bucketCount);
+        long bucket;
+        long updated;
+        do {
+            bucket = buckets.get(index);
+            long bucketMinute = bucket >>> 32;
+            if (bucketMinute == minute) {
+                updated = bucket + 1;
+            } else if (bucketMinute < minute) {
+                updated = (minute << 32) | 1;
+            } else {
+                // the update is older than the whole window
+                return;
+            }
+        } while (!buckets.compareAndSet(index, bucket, updated));
+    }
+
+    /**
+     * Stop counting an airport last updated at the given time, because it was updated again or deleted.
+     */
+    void remove(long updateTime) {
+        long minute = updateTime / BUCKET_MILLIS;
+        int index = (int) (minute % bucketCount);
+        long bucket;
+        do {
+            bucket = buckets.get(index);
+            if (bucket >>> 32 != minute || (bucket & COUNT_MASK) == 0) {
+                // expired, the airport is no longer counted
+                return;
+            }
+        } while (!buckets.compareAndSet(index, bucket, bucket - 1));
+    }
+
+    /**
+     * @param now the current time
+     * @return the number of airports updated during the window ending now
+     */
+    int count(long now) {
+        long oldestMinute = now / BUCKET_MILLIS - bucketCount;
+        int count = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long bucket = buckets.get(i);
+            if (bucket >>> 32 > oldestMinute) {
+                count += (int) (bucket & COUNT_MASK);
+            }
+        }
+        return count;
+    }
+
+    void clear() {
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
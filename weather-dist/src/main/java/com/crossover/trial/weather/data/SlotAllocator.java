@@ -0,0 +1,87 @@
+package com.crossover.trial.weather.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hands out dense integer slots to airports. The slot of an airport indexes its data in the primitive arrays of the
+ * spatial index and of the atmospheric information store; released slots are reused first so the arrays stay dense.
+ */
+class SlotAllocator {
+
+    private int[] freeSlots = new int[64];
+
+    private int freeSlotCount;
+
+    /** one past the highest slot ever allocated */
+    private int slotLimit;
+
+    /** slots of deleted airports since the last publication of the airport set */
+    private final List<Integer> retiring = new ArrayList<>();
+
+    /** slots retired before the last publication, free at the next one */
+    private final List<Integer> retired = new ArrayList<>();
+
+    synchronized int allocate() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        return slotLimit++;
+    }
+
+    /**
+     * Take a given slot, as when restoring the airports of a persistent store. The slots below it that were never
+     * allocated become free.
+     */
+    synchronized void reserve(int slot) {
+        while (slotLimit < slot) {
+            release(slotLimit++);
+        }
+        if (slot == slotLimit) {
+            slotLimit++;
+            return;
+        }
+        for (int i = 0; i < freeSlotCount; i++) {
+            if (freeSlots[i] == slot) {
+                freeSlots[i] = freeSlots[--freeSlotCount];
+                return;
+            }
+        }
+        throw new IllegalStateException("Slot " + slot + " is already allocated");
+    }
+
+    synchronized void release(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Release the slot of a deleted airport once the airport sets are published twice, rather than right away: a
+     * query that looked the airport up before it was deleted may still read its slot in the meantime.
+     */
+    synchronized void retire(int slot) {
+        retiring.add(slot);
+    }
+
+    /**
+     * Called with every new airport set, frees the slots retired before the previous one.
+     */
+    synchronized void publish() {
+        for (int slot : retired) {
+            release(slot);
+        }
+        retired.clear();
+        retired.addAll(retiring);
+        retiring.clear();
+    }
+
+    synchronized void clear() {
+        freeSlotCount = 0;
+        slotLimit = 0;
+        retiring.clear();
+        retired.clear();
+    }
+}
@@ -0,0 +1,500 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Great-circle distance engine over the airport locations.
+ * <p>
+ * Airports are stored at the slot given by the {@link SlotAllocator}. Their coordinates are kept as radians together
+ * with their sines and cosines in primitive column arrays indexed by slot, so the haversine test needs no trigonometric
+ * call and no allocation per airport. Slots are grouped in a grid of one degree latitude/longitude cells; a radius
+ * query only scans the cells overlapping the bounding box of the search circle, or every column when that box covers
+ * most of the globe.
+ */
+class SpatialIndex {
+
+    /** earth radius in KM */
+    static final double EARTH_RADIUS_KM = 6372.8;
+
+    private static final int LATITUDE_CELLS = 181;
+
+    private static final int LONGITUDE_CELLS = 360;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** the number of slots, or of matches over whole cells, collected per batch */
+    private static final int BATCH_SIZE = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** reject candidates outside the bounding box of the search circle before the exact test */
+    private final boolean boundingBoxPrefilter;
+
+    private final Cell[] cells = new Cell[LATITUDE_CELLS * LONGITUDE_CELLS];
+
+    private AirportData[] airports = new AirportData[INITIAL_CAPACITY];
+
+    private int[] cellOfSlot = new int[INITIAL_CAPACITY];
+
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+
+    private double[] sinLatitudes = new double[INITIAL_CAPACITY];
+
+    private double[] cosLatitudes = new double[INITIAL_CAPACITY];
+
+    private double[] sinLongitudes = new double[INITIAL_CAPACITY];
+
+    private double[] cosLongitudes = new double[INITIAL_CAPACITY];
+
+    /** one past the highest slot ever used */
+    private int slotLimit;
+
+    private int size;
+
+    SpatialIndex() {
+        this(true);
+    }
+
+    SpatialIndex(boolean boundingBoxPrefilter) {
+        this.boundingBoxPrefilter = boundingBoxPrefilter;
+    }
+
+    /**
+     * @param slot        the free slot of the airport
+     * @param airportData the airport to index
+     */
+    void add(int slot, AirportData airportData) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(slot);
+            double latitude = Math.toRadians(airportData.getLatitude());
+            double longitude = Math.toRadians(airportData.getLongitude());
+            airports[slot] = airportData;
+            latitudes[slot] = latitude;
+            longitudes[slot] = longitude;
+            sinLatitudes[slot] = Math.sin(latitude);
+            cosLatitudes[slot] = Math.cos(latitude);
+            sinLongitudes[slot] = Math.sin(longitude);
+            cosLongitudes[slot] = Math.cos(longitude);
+
+            int cell = cellOf(airportData.getLatitude(), airportData.getLongitude());
+            if (cells[cell] == null) {
+                cells[cell] = new Cell();
+            }
+            cells[cell].add(slot);
+            cellOfSlot[slot] = cell;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int slot) {
+        lock.writeLock().lock();
+        try {
+            cells[cellOfSlot[slot]].remove(slot);
+            airports[slot] = null;
+            size--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(cells, null);
+            Arrays.fill(airports, null);
+            slotLimit = 0;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * List the airports within radiusKm of the given point.
+     *
+     * @param latitude  latitude of the center in degrees
+     * @param longitude longitude of the center in degrees
+     * @param radiusKm  the search radius in km
+     * @return the airports within the radius, the one in the center included
+     */
+    List<AirportData> within(double latitude, double longitude, double radiusKm) {
+        List<AirportData> result = new ArrayList<>();
+        forEachWithin(latitude, longitude, radiusKm, slot -> result.add(airports[slot]));
+        return result;
+    }
+
+    /**
+     * Pass the slot of every airport within radiusKm of the given point to the consumer, under the read lock.
+     *
+     * @param latitude  latitude of the center in degrees
+     * @param longitude longitude of the center in degrees
+     * @param radiusKm  the search radius in km
+     * @param consumer  receives the matching slots, must not block
+     */
+    void forEachWithin(double latitude, double longitude, double radiusKm, IntConsumer consumer) {
+        forEachWithin(new Query(latitude, longitude, radiusKm), consumer);
+    }
+
+    /**
+     * Pass every airport within radiusKm of the airport at the slot to the consumer, under the read lock, with its
+     * haversine value sin^2(d/2), the value radius queries compare with {@link #maxHaversine(double)}.
+     *
+     * @param slot     the slot of the airport in the center
+     * @param radiusKm the search radius in km
+     * @param consumer receives the matching slots, the center one included, must not block
+     */
+    void forEachNeighbor(int slot, double radiusKm, NeighborConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            AirportData center = slot < slotLimit ? airports[slot] : null;
+            if (center == null) {
+                return;
+            }
+            Query query = new Query(center.getLatitude(), center.getLongitude(), radiusKm);
+            forEachWithin(query, neighbor -> consumer.accept(neighbor, haversine(query, neighbor)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the airports by slot, null for the free slots
+     */
+    AirportData[] airports() {
+        lock.readLock().lock();
+        try {
+            return Arrays.copyOf(airports, slotLimit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void forEachWithin(Query query, IntConsumer consumer) {
+        double latitude = query.latitudeDegrees;
+        double longitude = query.longitudeDegrees;
+        lock.readLock().lock();
+        try {
+            int minLatitudeCell = latitudeCell(Math.max(-90, latitude - Math.toDegrees(query.angularRadius)));
+            int maxLatitudeCell = latitudeCell(Math.min(90, latitude + Math.toDegrees(query.angularRadius)));
+            int longitudeCells = longitudeCellSpan(query);
+            if ((long) (maxLatitudeCell - minLatitudeCell + 1) * longitudeCells >= size) {
+                scan(query, consumer);
+                return;
+            }
+
+            int firstLongitudeCell = longitudeCell(longitude) - longitudeCells / 2;
+            for (int latitudeCell = minLatitudeCell; latitudeCell <= maxLatitudeCell; latitudeCell++) {
+                for (int i = 0; i < longitudeCells; i++) {
+                    Cell cell = cells[latitudeCell * LONGITUDE_CELLS
+                            + Math.floorMod(firstLongitudeCell + i, LONGITUDE_CELLS)];
+                    if (cell != null) {
+                        scan(query, cell.slots, cell.size, consumer);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pass the airports within radiusKm of the given point to the consumer in batches. A batch is collected under
+     * the read lock and consumed without it, so the consumer may block, for instance on a slow client, without
+     * holding up writers; the batches are bounded so that memory does not grow with the number of matches.
+     *
+     * @param latitude  latitude of the center in degrees
+     * @param longitude longitude of the center in degrees
+     * @param radiusKm  the search radius in km
+     * @param consumer  receives the matching airports
+     */
+    void forEachBatchWithin(double latitude, double longitude, double radiusKm, BatchConsumer consumer)
+            throws IOException {
+        Query query = new Query(latitude, longitude, radiusKm);
+        int minLatitudeCell = latitudeCell(Math.max(-90, latitude - Math.toDegrees(query.angularRadius)));
+        int maxLatitudeCell = latitudeCell(Math.min(90, latitude + Math.toDegrees(query.angularRadius)));
+        int longitudeCells = longitudeCellSpan(query);
+        int firstLongitudeCell = longitudeCell(longitude) - longitudeCells / 2;
+        Batch batch = new Batch();
+        boolean fullScan;
+        lock.readLock().lock();
+        try {
+            fullScan = (long) (maxLatitudeCell - minLatitudeCell + 1) * longitudeCells >= size;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (fullScan) {
+            int slot = 0;
+            while (true) {
+                lock.readLock().lock();
+                try {
+                    int limit = Math.min(slotLimit, slot + BATCH_SIZE);
+                    for (; slot < limit; slot++) {
+                        if (airports[slot] != null && matches(query, slot)) {
+                            batch.add(airports[slot]);
+                        }
+                    }
+                    if (slot >= slotLimit && batch.count == 0) {
+                        return;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                batch.flush(consumer);
+            }
+        }
+
+        int cellCount = (maxLatitudeCell - minLatitudeCell + 1) * longitudeCells;
+        int next = 0;
+        while (next < cellCount) {
+            lock.readLock().lock();
+            try {
+                for (; next < cellCount && batch.count < BATCH_SIZE; next++) {
+                    Cell cell = cells[(minLatitudeCell + next / longitudeCells) * LONGITUDE_CELLS
+                            + Math.floorMod(firstLongitudeCell + next % longitudeCells, LONGITUDE_CELLS)];
+                    if (cell != null) {
+                        for (int i = 0; i < cell.size; i++) {
+                            if (matches(query, cell.slots[i])) {
+                                batch.add(airports[cell.slots[i]]);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            batch.flush(consumer);
+        }
+    }
+
+    /**
+     * @return the largest haversine value sin^2(d/2) of a point within radiusKm
+     */
+    static double maxHaversine(double radiusKm) {
+        double sinHalfRadius = Math.sin(Math.min(radiusKm / EARTH_RADIUS_KM, Math.PI) / 2);
+        return sinHalfRadius * sinHalfRadius;
+    }
+
+    /**
+     * Haversine distance between two points.
+     *
+     * @return the distance in KM
+     */
+    static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLat = Math.toRadians(latitude2 - latitude1);
+        double deltaLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2) + Math.sin(deltaLon / 2) * Math.sin(deltaLon / 2)
+                * Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2));
+        return EARTH_RADIUS_KM * 2 * Math.asin(Math.sqrt(a));
+    }
+
+    private void scan(Query query, IntConsumer consumer) {
+        for (int slot = 0; slot < slotLimit; slot++) {
+            if (airports[slot] != null && matches(query, slot)) {
+                consumer.accept(slot);
+            }
+        }
+    }
+
+    private void scan(Query query, int[] slots, int count, IntConsumer consumer) {
+        for (int i = 0; i < count; i++) {
+            if (matches(query, slots[i])) {
+                consumer.accept(slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Haversine test written with the precomputed sines and cosines: with sin^2(x/2) = (1 - cos x) / 2 and the
+     * angle difference identities, a = sin^2(dLat/2) + cos(lat1) cos(lat2) sin^2(dLon/2) needs only products, and
+     * comparing a with sin^2(r/2) avoids the asin and sqrt of the distance itself.
+     */
+    private boolean matches(Query query, int slot) {
+        if (boundingBoxPrefilter && outsideBoundingBox(query, slot)) {
+            return false;
+        }
+        return haversine(query, slot) <= query.maxHaversine;
+    }
+
+    private double haversine(Query query, int slot) {
+        double cosDeltaLat = query.cosLatitude * cosLatitudes[slot] + query.sinLatitude * sinLatitudes[slot];
+        double cosDeltaLon = query.cosLongitude * cosLongitudes[slot] + query.sinLongitude * sinLongitudes[slot];
+        return (1 - cosDeltaLat) / 2 + query.cosLatitude * cosLatitudes[slot] * (1 - cosDeltaLon) / 2;
+    }
+
+    /**
+     * Equirectangular bounding box of the search circle: the latitude difference alone is a lower bound of the
+     * angular distance and, unless the circle contains a pole, the longitude difference can not exceed
+     * asin(sin(r) / cos(lat)).
+     */
+    private boolean outsideBoundingBox(Query query, int slot) {
+        if (Math.abs(latitudes[slot] - query.latitude) > query.angularRadius) {
+            return true;
+        }
+        double deltaLon = Math.abs(longitudes[slot] - query.longitude);
+        if (deltaLon > Math.PI) {
+            deltaLon = 2 * Math.PI - deltaLon;
+        }
+        return deltaLon > query.maxDeltaLongitude;
+    }
+
+    /**
+     * Number of longitude cells, centered on the query cell, that cover the search circle.
+     */
+    private static int longitudeCellSpan(Query query) {
+        if (query.maxDeltaLongitude >= Math.PI) {
+            return LONGITUDE_CELLS;
+        }
+        int halfSpan = (int) Math.ceil(Math.toDegrees(query.maxDeltaLongitude)) + 1;
+        return Math.min(LONGITUDE_CELLS, 2 * halfSpan + 1);
+    }
+
+    private void ensureCapacity(int slot) {
+        slotLimit = Math.max(slotLimit, slot + 1);
+        if (slot >= airports.length) {
+            int capacity = Math.max(airports.length * 2, slot + 1);
+            airports = Arrays.copyOf(airports, capacity);
+            cellOfSlot = Arrays.copyOf(cellOfSlot, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            sinLatitudes = Arrays.copyOf(sinLatitudes, capacity);
+            cosLatitudes = Arrays.copyOf(cosLatitudes, capacity);
+            sinLongitudes = Arrays.copyOf(sinLongitudes, capacity);
+            cosLongitudes = Arrays.copyOf(cosLongitudes, capacity);
+        }
+    }
+
+    private static int cellOf(double latitude, double longitude) {
+        return latitudeCell(latitude) * LONGITUDE_CELLS + longitudeCell(longitude);
+    }
+
+    private static int latitudeCell(double latitude) {
+        return (int) Math.floor(latitude) + 90;
+    }
+
+    private static int longitudeCell(double longitude) {
+        return Math.floorMod((int) Math.floor(longitude) + 180, LONGITUDE_CELLS);
+    }
+
+    /**
+     * The center of a radius query, precomputed once so that the per airport test is trigonometry free.
+     */
+    private static final class Query {
+        final double latitudeDegrees;
+        final double longitudeDegrees;
+        final double latitude;
+        final double longitude;
+        final double sinLatitude;
+        final double cosLatitude;
+        final double sinLongitude;
+        final double cosLongitude;
+        final double angularRadius;
+        final double maxHaversine;
+        final double maxDeltaLongitude;
+
+        Query(double latitudeDegrees, double longitudeDegrees, double radiusKm) {
+            this.latitudeDegrees = latitudeDegrees;
+            this.longitudeDegrees = longitudeDegrees;
+            latitude = Math.toRadians(latitudeDegrees);
+            longitude = Math.toRadians(longitudeDegrees);
+            sinLatitude = Math.sin(latitude);
+            cosLatitude = Math.cos(latitude);
+            sinLongitude = Math.sin(longitude);
+            cosLongitude = Math.cos(longitude);
+            angularRadius = radiusKm / EARTH_RADIUS_KM;
+            maxHaversine = maxHaversine(radiusKm);
+            maxDeltaLongitude = maxDeltaLongitude(latitude, angularRadius);
+        }
+
+        private static double maxDeltaLongitude(double latitude, double angularRadius) {
+            if (Math.abs(latitude) + angularRadius >= Math.PI / 2) {
+                return Math.PI;
+            }
+            return Math.asin(Math.sin(angularRadius) / Math.cos(latitude));
+        }
+    }
+
+    /**
+     * Receives the airports of a radius query, a batch at a time.
+     */
+    interface BatchConsumer {
+
+        /**
+         * @param airports the airports of the batch, the array being reused once the method returns
+         * @param count    the number of airports in the batch
+         */
+        void accept(AirportData[] airports, int count) throws IOException;
+    }
+
+    /**
+     * Receives the neighbors of an airport.
+     */
+    interface NeighborConsumer {
+
+        /**
+         * @param slot      the slot of the neighbor
+         * @param haversine its haversine value sin^2(d/2)
+         */
+        void accept(int slot, double haversine);
+    }
+
+    /**
+     * The airports collected for a {@link BatchConsumer}.
+     */
+    private static final class Batch {
+        AirportData[] airports = new AirportData[16];
+        int count;
+
+        void add(AirportData airportData) {
+            if (count == airports.length) {
+                airports = Arrays.copyOf(airports, count * 2);
+            }
+            airports[count++] = airportData;
+        }
+
+        void flush(BatchConsumer consumer) throws IOException {
+            if (count > 0) {
+                consumer.accept(airports, count);
+                Arrays.fill(airports, 0, count, null);
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Slots of the airports located in one grid cell.
+     */
+    private static final class Cell {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,774 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DST;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only binary log of the mutations of the {@link InformationDataStore}.
+ * <p>
+ * Mutations are encoded into an in-memory batch by the request threads and written by a single writer thread with
+ * one {@link FileChannel} write per batch, so concurrent requests share a write and, depending on the
+ * {@link FsyncPolicy}, a single fsync (group commit). When a log segment grows past the compaction threshold the
+ * writer starts a new segment and a snapshot of the store is written in the background, after which the older
+ * segments and snapshots are deleted.
+ * <p>
+ * The directory holds snapshot-N.dat files, covering every mutation of the segments before wal-N.log, and the
+ * segments. On startup the latest snapshot and the segments from its generation on are replayed. Every record is
+ * framed with its length and CRC32, so a record torn by a crash ends the replay of its segment.
+ */
+class WriteAheadLog {
+
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+
+    /**
+     * When the log file is forced to disk.
+     */
+    enum FsyncPolicy {
+        /** a mutation returns once the batch holding it is forced to disk */
+        ALWAYS,
+        /** the log is forced periodically, a crash may lose the mutations of the last interval */
+        INTERVAL,
+        /** the log is only written, the operating system decides when it reaches the disk */
+        NEVER
+    }
+
+    /**
+     * Content of a snapshot: the airports and their latest data points.
+     */
+    interface Snapshot {
+        void addAirport(AirportData airportData);
+
+        /**
+         * The latest data points of an airport, as written by a snapshot: the state of the airport rather than new
+         * readings, which were recorded when they were logged.
+         */
+        void restoreDataPoint(String iataCode, AtmosphericInformation information, long updateTime);
+    }
+
+    /**
+     * Target of the replay: the mutations, in log order.
+     */
+    interface Mutations extends Snapshot {
+        void deleteAirport(String iataCode);
+
+        void updateDataPoint(String iataCode, AtmosphericInformation newInfo, long updateTime);
+
+        void clear();
+    }
+
+    private static final byte ADD_AIRPORT = 1;
+    private static final byte DELETE_AIRPORT = 2;
+    private static final byte UPDATE_DATA_POINT = 3;
+    private static final byte CLEAR = 4;
+    private static final byte RESTORE_DATA_POINT = 5;
+
+    /** record length and CRC32 of the record */
+    private static final int FRAME_SIZE = 8;
+
+    private static final int INITIAL_BATCH_SIZE = 64 * 1024;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    private final Path directory;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final long fsyncIntervalNanos;
+
+    private final long compactionThreshold;
+
+    /**
+     * held shared by a mutation while it is applied and logged, exclusively while switching segments so that a
+     * snapshot taken after the switch reflects every record of the previous segments
+     */
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /** signalled when the batch becomes non empty or the log is closed */
+    private final Condition batchReady = appendLock.newCondition();
+
+    /** signalled when a batch is written, and forced when the policy asks for it */
+    private final Condition batchDurable = appendLock.newCondition();
+
+    /** the records appended since the last write, guarded by appendLock */
+    private ByteBuffer batch = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+
+    /** guarded by appendLock */
+    private long appendedSequence;
+
+    /** guarded by appendLock */
+    private long durableSequence;
+
+    /** guarded by appendLock */
+    private boolean closed;
+
+    /** the error that stopped the writer, guarded by appendLock */
+    private IOException failure;
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "weather-wal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Consumer<Snapshot> snapshotSource;
+
+    /** owned by the writer thread once started */
+    private FileChannel segment;
+
+    private long generation;
+
+    private Thread writer;
+
+    /**
+     * @param directory           the log directory, created if missing
+     * @param fsyncPolicy         when the log is forced to disk
+     * @param fsyncIntervalMillis the force period of {@link FsyncPolicy#INTERVAL}
+     * @param compactionThreshold the segment size in bytes that triggers a snapshot
+     */
+    WriteAheadLog(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, long compactionThreshold) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.compactionThreshold = compactionThreshold;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replay the latest snapshot and the segments written after it.
+     *
+     * @param target receives the logged mutations in order
+     * @return the number of replayed records
+     */
+    long replay(Mutations target) {
+        try {
+            List<Long> snapshots = generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            long from = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+            long records = 0;
+            if (!snapshots.isEmpty()) {
+                records += replay(file(SNAPSHOT_PREFIX, from, SNAPSHOT_SUFFIX), target);
+            }
+            for (long segmentGeneration : generations(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (segmentGeneration >= from) {
+                    records += replay(file(SEGMENT_PREFIX, segmentGeneration, SEGMENT_SUFFIX), target);
+                }
+                generation = Math.max(generation, segmentGeneration);
+            }
+            generation = Math.max(generation, from);
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Open a new segment and start the writer thread. Called once, after {@link #replay(Mutations)}.
+     *
+     * @param snapshotSource writes the current content of the store as a snapshot, for compaction
+     */
+    void start(Consumer<Snapshot> snapshotSource) {
+        this.snapshotSource = snapshotSource;
+        try {
+            openSegment(generation + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer = new Thread(this::writeLoop, "weather-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Start a mutation: the mutation must be applied and logged before {@link #endMutation()}, but waiting for the
+     * log to be durable must happen after it.
+     */
+    void beginMutation() {
+        segmentLock.readLock().lock();
+    }
+
+    void endMutation() {
+        segmentLock.readLock().unlock();
+    }
+
+    long logAddAirport(AirportData airportData) {
+        byte[] iata = bytes(airportData.getIata());
+        byte[] icao = bytes(airportData.getIcao());
+        byte[] name = bytes(airportData.getName());
+        byte[] city = bytes(airportData.getCity());
+        byte[] country = bytes(airportData.getCountry());
+        appendLock.lock();
+        try {
+            int start = beginRecord(ADD_AIRPORT, stringSize(iata) + stringSize(icao) + stringSize(name)
+                    + stringSize(city) + stringSize(country) + 4 * Double.BYTES + 1);
+            putAirportData(batch, airportData, iata, icao, name, city, country);
+            return endRecord(start);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long logDeleteAirport(String iataCode) {
+        byte[] iata = bytes(iataCode);
+        appendLock.lock();
+        try {
+            int start = beginRecord(DELETE_AIRPORT, stringSize(iata));
+            putString(batch, iata);
+            return endRecord(start);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long logUpdateDataPoint(String iataCode, AtmosphericInformation newInfo, long updateTime) {
+        byte[] iata = bytes(iataCode);
+        appendLock.lock();
+        try {
+            int start = beginRecord(UPDATE_DATA_POINT, updateSize(iata, newInfo));
+            putUpdate(batch, iata, newInfo, updateTime);
+            return endRecord(start);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long logClear() {
+        appendLock.lock();
+        try {
+            return endRecord(beginRecord(CLEAR, 0));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the record with the given sequence is durable according to the fsync policy.
+     *
+     * @throws UncheckedIOException if the log can no longer be written
+     */
+    void awaitDurable(long sequence) {
+        if (fsyncPolicy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            while (durableSequence < sequence && failure == null) {
+                batchDurable.awaitUninterruptibly();
+            }
+            if (durableSequence < sequence) {
+                throw new UncheckedIOException("Write ahead log failed", failure);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Write and force the pending records and stop the writer.
+     */
+    void close() {
+        appendLock.lock();
+        try {
+            closed = true;
+            batchReady.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            if (writer != null) {
+                writer.join();
+            }
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //
+    // writer thread
+    //
+
+    private void writeLoop() {
+        ByteBuffer writing = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+        long lastForce = System.nanoTime();
+        boolean unforced = false;
+        try {
+            while (true) {
+                long batchEnd;
+                boolean closing;
+                appendLock.lock();
+                try {
+                    while (batch.position() == 0 && !closed) {
+                        if (!unforced || fsyncPolicy != FsyncPolicy.INTERVAL) {
+                            batchReady.awaitUninterruptibly();
+                        } else if (batchReady.awaitNanos(fsyncIntervalNanos - (System.nanoTime() - lastForce)) <= 0) {
+                            break;
+                        }
+                    }
+                    ByteBuffer written = batch;
+                    batch = writing;
+                    writing = written;
+                    batchEnd = appendedSequence;
+                    closing = closed;
+                } finally {
+                    appendLock.unlock();
+                }
+
+                writing.flip();
+                unforced |= writing.hasRemaining();
+                while (writing.hasRemaining()) {
+                    segment.write(writing);
+                }
+                writing.clear();
+                if (unforced && (closing || fsyncPolicy == FsyncPolicy.ALWAYS || fsyncPolicy == FsyncPolicy.INTERVAL
+                        && System.nanoTime() - lastForce >= fsyncIntervalNanos)) {
+                    segment.force(false);
+                    lastForce = System.nanoTime();
+                    unforced = false;
+                }
+                publishDurable(batchEnd);
+
+                if (closing) {
+                    segment.close();
+                    return;
+                }
+                if (segment.size() >= compactionThreshold && compacting.compareAndSet(false, true)) {
+                    writing = rotate(writing);
+                    unforced = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            fail(new IOException("Write ahead log interrupted", e));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Switch to a new segment and snapshot the store in the background. While the segment lock is held no mutation
+     * is in progress, so every mutation applied before the switch is in the previous segments.
+     *
+     * @return the buffer the writer continues with
+     */
+    private ByteBuffer rotate(ByteBuffer writing) throws IOException {
+        long batchEnd;
+        segmentLock.writeLock().lock();
+        try {
+            appendLock.lock();
+            try {
+                ByteBuffer written = batch;
+                batch = writing;
+                writing = written;
+                batchEnd = appendedSequence;
+            } finally {
+                appendLock.unlock();
+            }
+            writing.flip();
+            while (writing.hasRemaining()) {
+                segment.write(writing);
+            }
+            writing.clear();
+            segment.force(false);
+            segment.close();
+            openSegment(generation + 1);
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        publishDurable(batchEnd);
+
+        long snapshotGeneration = generation;
+        compactor.execute(() -> {
+            try {
+                writeSnapshot(snapshotGeneration);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Write ahead log compaction failed", e);
+            } finally {
+                compacting.set(false);
+            }
+        });
+        return writing;
+    }
+
+    private void publishDurable(long sequence) {
+        appendLock.lock();
+        try {
+            durableSequence = Math.max(durableSequence, sequence);
+            batchDurable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void fail(IOException e) {
+        LOGGER.log(Level.SEVERE, "Write ahead log stopped", e);
+        appendLock.lock();
+        try {
+            failure = e;
+            batchDurable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void openSegment(long segmentGeneration) throws IOException {
+        generation = segmentGeneration;
+        segment = FileChannel.open(file(SEGMENT_PREFIX, segmentGeneration, SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    //
+    // compaction
+    //
+
+    private void writeSnapshot(long snapshotGeneration) throws IOException {
+        Path snapshot = file(SNAPSHOT_PREFIX, snapshotGeneration, SNAPSHOT_SUFFIX);
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotWriter snapshotWriter = new SnapshotWriter(channel);
+            snapshotSource.accept(snapshotWriter);
+            snapshotWriter.flush();
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long older : generations(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (older < snapshotGeneration) {
+                Files.deleteIfExists(file(SEGMENT_PREFIX, older, SEGMENT_SUFFIX));
+            }
+        }
+        for (long older : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < snapshotGeneration) {
+                Files.deleteIfExists(file(SNAPSHOT_PREFIX, older, SNAPSHOT_SUFFIX));
+            }
+        }
+    }
+
+    /**
+     * Encodes the snapshot in the log record format.
+     */
+    private static final class SnapshotWriter implements Snapshot {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void addAirport(AirportData airportData) {
+            byte[] iata = bytes(airportData.getIata());
+            byte[] icao = bytes(airportData.getIcao());
+            byte[] name = bytes(airportData.getName());
+            byte[] city = bytes(airportData.getCity());
+            byte[] country = bytes(airportData.getCountry());
+            int start = begin(ADD_AIRPORT, stringSize(iata) + stringSize(icao) + stringSize(name)
+                    + stringSize(city) + stringSize(country) + 4 * Double.BYTES + 1);
+            putAirportData(buffer, airportData, iata, icao, name, city, country);
+            end(start);
+        }
+
+        @Override
+        public void restoreDataPoint(String iataCode, AtmosphericInformation information, long updateTime) {
+            byte[] iata = bytes(iataCode);
+            int start = begin(RESTORE_DATA_POINT, updateSize(iata, information));
+            putUpdate(buffer, iata, information, updateTime);
+            end(start);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private int begin(byte type, int payloadSize) {
+            if (buffer.remaining() < FRAME_SIZE + 1 + payloadSize) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                buffer = ensureCapacity(buffer, FRAME_SIZE + 1 + payloadSize);
+            }
+            return beginFrame(buffer, type);
+        }
+
+        private void end(int start) {
+            endFrame(buffer, start);
+        }
+    }
+
+    //
+    // record encoding
+    //
+
+    private int beginRecord(byte type, int payloadSize) {
+        if (closed) {
+            throw new IllegalStateException("Write ahead log closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Write ahead log failed", failure);
+        }
+        batch = ensureCapacity(batch, FRAME_SIZE + 1 + payloadSize);
+        return beginFrame(batch, type);
+    }
+
+    private long endRecord(int start) {
+        endFrame(batch, start);
+        if (start == 0) {
+            batchReady.signal();
+        }
+        return ++appendedSequence;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int size) {
+        if (buffer.remaining() >= size) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    private static int beginFrame(ByteBuffer buffer, byte type) {
+        int start = buffer.position();
+        buffer.position(start + FRAME_SIZE);
+        buffer.put(type);
+        return start;
+    }
+
+    private static void endFrame(ByteBuffer buffer, int start) {
+        int length = buffer.position() - start - FRAME_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + FRAME_SIZE, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private static void putAirportData(ByteBuffer buffer, AirportData airportData, byte[] iata, byte[] icao,
+                                       byte[] name, byte[] city, byte[] country) {
+        putString(buffer, iata);
+        putString(buffer, icao);
+        putString(buffer, name);
+        putString(buffer, city);
+        putString(buffer, country);
+        buffer.putDouble(airportData.getLatitude());
+        buffer.putDouble(airportData.getLongitude());
+        buffer.putDouble(airportData.getAltitude());
+        buffer.putDouble(airportData.getTimezone());
+        buffer.put((byte) (airportData.getDst() != null ? airportData.getDst().ordinal() + 1 : 0));
+    }
+
+    private static int updateSize(byte[] iata, AtmosphericInformation newInfo) {
+        int size = stringSize(iata) + Long.BYTES + 1;
+        for (DataPointType type : TYPES) {
+            if (newInfo.getDataPoint(type) != null) {
+                size += 1 + Double.BYTES + 4 * Integer.BYTES;
+            }
+        }
+        return size;
+    }
+
+    private static void putUpdate(ByteBuffer buffer, byte[] iata, AtmosphericInformation newInfo, long updateTime) {
+        putString(buffer, iata);
+        buffer.putLong(updateTime);
+        int countPosition = buffer.position();
+        buffer.put((byte) 0);
+        byte count = 0;
+        for (DataPointType type : TYPES) {
+            DataPoint dataPoint = newInfo.getDataPoint(type);
+            if (dataPoint != null) {
+                buffer.put((byte) type.ordinal());
+                buffer.putDouble(dataPoint.getMean());
+                buffer.putInt(dataPoint.getFirst());
+                buffer.putInt(dataPoint.getSecond());
+                buffer.putInt(dataPoint.getThird());
+                buffer.putInt(dataPoint.getCount());
+                count++;
+            }
+        }
+        buffer.put(countPosition, count);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] value) {
+        return Short.BYTES + (value != null ? value.length : 0);
+    }
+
+    /**
+     * A string is its UTF-8 length as a short, -1 for null, followed by its bytes.
+     */
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //
+    // replay
+    //
+
+    private static long replay(Path file, Mutations target) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= FRAME_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(record, target);
+                buffer.position(start + FRAME_SIZE + length);
+                records++;
+            }
+            if (buffer.hasRemaining()) {
+                LOGGER.warning("Ignoring " + buffer.remaining() + " bytes of torn records at the end of " + file);
+            }
+        }
+        return records;
+    }
+
+    private static void apply(ByteBuffer record, Mutations target) {
+        byte type = record.get();
+        switch (type) {
+            case ADD_AIRPORT:
+                String iata = getString(record);
+                String icao = getString(record);
+                String name = getString(record);
+                String city = getString(record);
+                String country = getString(record);
+                double latitude = record.getDouble();
+                double longitude = record.getDouble();
+                double altitude = record.getDouble();
+                double timezone = record.getDouble();
+                int dst = record.get();
+                target.addAirport(new AirportData.Builder().withIata(iata).withIcao(icao).withName(name)
+                        .withCity(city).withCountry(country).withLatitude(latitude).withLongitude(longitude)
+                        .withAltitude(altitude).withTimezone(timezone)
+                        .withDst(dst > 0 ? DST.values()[dst - 1] : null).build());
+                break;
+            case DELETE_AIRPORT:
+                target.deleteAirport(getString(record));
+                break;
+            case UPDATE_DATA_POINT:
+            case RESTORE_DATA_POINT:
+                String iataCode = getString(record);
+                long updateTime = record.getLong();
+                int count = record.get();
+                AtmosphericInformation.Builder builder = new AtmosphericInformation.Builder();
+                for (int i = 0; i < count; i++) {
+                    DataPointType dataPointType = TYPES[record.get()];
+                    builder.withDataPoint(dataPointType, new DataPoint.Builder()
+                            .withMean(record.getDouble())
+                            .withFirst(record.getInt())
+                            .withMedian(record.getInt())
+                            .withLast(record.getInt())
+                            .withCount(record.getInt())
+                            .build());
+                }
+                if (type == RESTORE_DATA_POINT) {
+                    target.restoreDataPoint(iataCode, builder.build(), updateTime);
+                } else {
+                    target.updateDataPoint(iataCode, builder.build(), updateTime);
+                }
+                break;
+            case CLEAR:
+                target.clear();
+                break;
+            default:
+                throw new IllegalStateException("Unknown write ahead log record type " + type);
+        }
+    }
+
+    //
+    // files
+    //
+
+    private Path file(String prefix, long fileGeneration, String suffix) {
+        return directory.resolve(String.format("%s%010d%s", prefix, fileGeneration, suffix));
+    }
+
+    private List<Long> generations(String prefix, String suffix) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+}
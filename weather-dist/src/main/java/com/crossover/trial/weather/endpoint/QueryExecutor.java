@@ -0,0 +1,121 @@
+package com.crossover.trial.weather.endpoint;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded executor of the expensive requests, radius queries and bulk imports, answered through an
+ * {@link AsyncResponse} so that they do not hold a Grizzly worker thread while they run. Cheap requests keep running
+ * on the worker threads and are never queued behind them.
+ * <p>
+ * When every thread is busy and the queue is full, the request is answered with 503 Service Unavailable rather than
+ * queued without bound.
+ */
+public class QueryExecutor {
+
+    public static final Logger LOGGER = Logger.getLogger(QueryExecutor.class.getName());
+
+    /**
+     * system property disabling the asynchronous execution, the requests then run on the worker threads: true by
+     * default
+     */
+    public static final String ASYNC_PROPERTY = "weather.server.async";
+
+    /**
+     * system property with the number of threads of the expensive requests, the number of processors by default
+     */
+    public static final String THREADS_PROPERTY = "weather.server.queryThreads";
+
+    /**
+     * system property with the number of expensive requests waiting for a thread, 1024 by default
+     */
+    public static final String QUEUE_SIZE_PROPERTY = "weather.server.queryQueueSize";
+
+    private volatile static QueryExecutor instance;
+
+    /** null when the requests run on the calling thread */
+    private final ThreadPoolExecutor executor;
+
+    private QueryExecutor() {
+        this(Boolean.parseBoolean(System.getProperty(ASYNC_PROPERTY, "true")),
+                Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger(QUEUE_SIZE_PROPERTY, 1024));
+    }
+
+    QueryExecutor(boolean async, int threads, int queueSize) {
+        if (!async) {
+            executor = null;
+            return;
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "weather-query-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static QueryExecutor getInstance() {
+        if (instance == null) {
+            synchronized (QueryExecutor.class) {
+                if (instance == null) {
+                    instance = new QueryExecutor();
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Run the request on the executor and resume the suspended response with its result.
+     *
+     * @param asyncResponse the suspended response
+     * @param request       computes the response, streamed entities being written by the executor thread as well
+     */
+    public void execute(AsyncResponse asyncResponse, Supplier<Response> request) {
+        execute(request, asyncResponse::resume);
+    }
+
+    void execute(Supplier<Response> request, Consumer<Response> resume) {
+        if (executor == null) {
+            resume.accept(call(request));
+            return;
+        }
+        try {
+            executor.execute(() -> resume.accept(call(request)));
+        } catch (RejectedExecutionException e) {
+            resume.accept(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+        }
+    }
+
+    /**
+     * @return the number of requests running or waiting
+     */
+    int getPendingCount() {
+        return executor != null ? executor.getActiveCount() + executor.getQueue().size() : 0;
+    }
+
+    private static Response call(Supplier<Response> request) {
+        try {
+            return request.get();
+        } catch (WebApplicationException e) {
+            return e.getResponse();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Request failed", e);
+            return Response.serverError().build();
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package com.crossover.trial.weather.endpoint;
 
+import com.crossover.trial.weather.data.AirportImporter;
 import com.crossover.trial.weather.data.FrequencyDataStore;
 import com.crossover.trial.weather.data.InformationDataStore;
 import com.crossover.trial.weather.model.*;
+import com.crossover.trial.weather.validation.DataPointTypeValidationRule;
+import com.crossover.trial.weather.validation.DataPointValidationRule;
 import com.crossover.trial.weather.validation.DataPointWithType;
+import com.crossover.trial.weather.validation.IataValidationRule;
+import com.crossover.trial.weather.validation.LatitudeValidationRule;
+import com.crossover.trial.weather.validation.LongitudeValidationRule;
 import com.crossover.trial.weather.validation.generic.Error;
-import com.crossover.trial.weather.validation.generic.GenericInputRequestValidator;
-import com.crossover.trial.weather.validation.generic.InputValidationException;
+import com.crossover.trial.weather.validation.generic.ErrorCode;
+import com.crossover.trial.weather.validation.generic.RequestValidator;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -40,6 +57,18 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
     private static FrequencyDataStore frequencyDataStore =
             FrequencyDataStore.getInstance();
 
+    private static final QueryExecutor queryExecutor = QueryExecutor.getInstance();
+
+    private static final IataValidationRule iataValidationRule = new IataValidationRule();
+
+    private static final DataPointValidationRule dataPointValidationRule = new DataPointValidationRule();
+
+    private static final RequestValidator updateWeatherValidator = new RequestValidator("iata", "dataPoint");
+
+    private static final RequestValidator iataValidator = new RequestValidator("iata");
+
+    private static final RequestValidator addAirportValidator = new RequestValidator("iata", "lat", "long");
+
     @Override
     @GET
     @Path("/ping")
@@ -58,23 +87,53 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         if(iataCode != null) {
             iataCode = iataCode.toUpperCase();
         }
-        try {
-            new GenericInputRequestValidator().validate(
-                    Arrays.asList("iata", "dataPoint"),
-                    Arrays.asList(iataCode, new DataPointWithType(pointType, datapointJson)));
-        } catch (InputValidationException ex) {
-            GenericEntity<List<Error>> errors = new GenericEntity<List<Error>>(ex.getErrors()){};
-            return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
+        DataPointType dataPointType = DataPointTypeValidationRule.parse(pointType);
+        DataPoint dataPoint = DataPointValidationRule.parse(datapointJson);
+        if (!IataValidationRule.isValid(iataCode) || dataPointType == null
+                || !DataPointValidationRule.isValid(dataPointType, dataPoint)) {
+            return badRequest(updateWeatherValidator.validate(iataCode, new DataPointWithType(pointType, datapointJson)));
         }
         AirportData airportData = informationDataStore.findAirportData(iataCode);
         if (airportData != null) {
-            addDataPoint(airportData, pointType, gson.fromJson(datapointJson, DataPoint.class));
+            addDataPoint(airportData, dataPointType, dataPoint);
         } else {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
         return Response.status(Response.Status.OK).build();
     }
 
+    @Override
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/weather")
+    public void updateWeatherBatch(InputStream records, @Suspended AsyncResponse asyncResponse) {
+        queryExecutor.execute(asyncResponse, () -> updateWeatherBatch(records));
+    }
+
+    @Override
+    public Response updateWeatherBatch(InputStream records) {
+        // parse everything first: a batch that is not a json array of records is rejected as a whole, while an
+        // invalid record only gets its own 400 status and the other records are applied
+        Map<AirportData, AtmosphericInformation.Builder> updates = new LinkedHashMap<>();
+        BatchResult result = new BatchResult();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(records, StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readDataPointRecord(reader, updates, result);
+            }
+            reader.endArray();
+        } catch (IOException | IllegalStateException | JsonParseException ex) {
+            return badRequest(Collections.singletonList(new Error(ErrorCode.INVALID_VALUE, "records",
+                    "Records must be a json array of {iata, pointType, dataPoint} objects")));
+        }
+        Map<AirportData, AtmosphericInformation> atmosphericInformation = new LinkedHashMap<>();
+        updates.forEach((airportData, update) -> atmosphericInformation.put(airportData, update.build()));
+        // a single wait for the write ahead log for the whole batch
+        informationDataStore.updateDataPoints(atmosphericInformation);
+        return Response.status(Response.Status.OK).entity(result).build();
+    }
+
     @Override
     @GET
     @Path("/airports")
@@ -92,13 +151,8 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         if(iataCode != null) {
             iataCode = iataCode.toUpperCase();
         }
-        try {
-            new GenericInputRequestValidator().validate(
-                    Collections.singletonList("iata"),
-                    Collections.singletonList(iataCode));
-        } catch (InputValidationException ex) {
-            GenericEntity<List<Error>> errors = new GenericEntity<List<Error>>(ex.getErrors()){};
-            return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
+        if (!IataValidationRule.isValid(iataCode)) {
+            return badRequest(iataValidator.validate(iataCode));
         }
         AirportData ad = informationDataStore.findAirportData(iataCode);
         if(ad != null) {
@@ -118,21 +172,38 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         if(iataCode != null) {
             iataCode = iataCode.toUpperCase();
         }
-        try {
-            new GenericInputRequestValidator().validate(
-                    Arrays.asList("iata", "lat", "long"),
-                    Arrays.asList(iataCode, latString, longString));
-        } catch (InputValidationException ex) {
-            GenericEntity<List<Error>> errors = new GenericEntity<List<Error>>(ex.getErrors()){};
-            return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
+        double latitude = LatitudeValidationRule.parse(latString);
+        double longitude = LongitudeValidationRule.parse(longString);
+        if (!IataValidationRule.isValid(iataCode) || Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return badRequest(addAirportValidator.validate(iataCode, latString, longString));
         }
         AirportData airportData = new AirportData.Builder().withIata(iataCode)
-                .withLatitude(Double.valueOf(latString))
-                .withLongitude(Double.valueOf(longString)).build();
+                .withLatitude(latitude)
+                .withLongitude(longitude).build();
         informationDataStore.addAirport(airportData);
         return Response.status(Response.Status.OK).build();
     }
 
+    @Override
+    @POST
+    @Path("/airports")
+    @Consumes({MediaType.TEXT_PLAIN, MediaType.APPLICATION_OCTET_STREAM})
+    @Produces(MediaType.APPLICATION_JSON)
+    public void addAirports(InputStream airportsDat, @Suspended AsyncResponse asyncResponse) {
+        queryExecutor.execute(asyncResponse, () -> addAirports(airportsDat));
+    }
+
+    @Override
+    public Response addAirports(InputStream airportsDat) {
+        try {
+            ImportResult result = new AirportImporter(informationDataStore).importStream(airportsDat);
+            return Response.status(Response.Status.OK).entity(result).build();
+        } catch (IOException ex) {
+            return badRequest(Collections.singletonList(
+                    new Error(ErrorCode.INVALID_VALUE, "airports", "The airports could not be read")));
+        }
+    }
+
     @Produces("application/json")
     @Override
     @DELETE
@@ -141,13 +212,8 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         if(iataCode != null) {
             iataCode = iataCode.toUpperCase();
         }
-        try {
-            new GenericInputRequestValidator().validate(
-                    Collections.singletonList("iata"),
-                    Collections.singletonList(iataCode));
-        } catch (InputValidationException ex) {
-            GenericEntity<List<Error>> errors = new GenericEntity<List<Error>>(ex.getErrors()){};
-            return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
+        if (!IataValidationRule.isValid(iataCode)) {
+            return badRequest(iataValidator.validate(iataCode));
         }
         informationDataStore.deleteAirport(iataCode);
         frequencyDataStore.deleteAirport(iataCode);
@@ -166,6 +232,65 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
     // Internal support methods
     //
 
+    /**
+     * Read and validate one record of a batch, adding its data point to the update of its airport.
+     */
+    private void readDataPointRecord(JsonReader reader, Map<AirportData, AtmosphericInformation.Builder> updates,
+                                     BatchResult result) throws IOException {
+        String iataCode = null;
+        String pointType = null;
+        DataPoint dataPoint = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "iata":
+                    iataCode = nextString(reader);
+                    break;
+                case "pointType":
+                    pointType = nextString(reader);
+                    break;
+                case "dataPoint":
+                    dataPoint = gson.fromJson(reader, DataPoint.class);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (iataCode != null) {
+            iataCode = iataCode.toUpperCase();
+        }
+        DataPointType dataPointType = DataPointTypeValidationRule.parse(pointType);
+        if (!IataValidationRule.isValid(iataCode) || dataPointType == null
+                || !DataPointValidationRule.isValid(dataPointType, dataPoint)) {
+            List<Error> errors = new ArrayList<>();
+            List<Error> iataErrors = iataValidationRule.apply(iataCode);
+            if (iataErrors != null) {
+                errors.addAll(iataErrors);
+            }
+            errors.addAll(dataPointValidationRule.validate(pointType, dataPoint));
+            result.reject(Response.Status.BAD_REQUEST.getStatusCode(), errors);
+            return;
+        }
+        AirportData airportData = informationDataStore.findAirportData(iataCode);
+        if (airportData == null) {
+            result.reject(Response.Status.NOT_FOUND.getStatusCode(), Collections.emptyList());
+            return;
+        }
+        updates.computeIfAbsent(airportData, key -> new AtmosphericInformation.Builder())
+                .withDataPoint(dataPointType, dataPoint);
+        result.accept();
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
     /**
      * Update the airports weather data with the collected data.
      *
@@ -173,11 +298,15 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
      * @param pointType   the point type {@link DataPointType}
      * @param dataPoint   a datapoint object holding pointType data
      */
-    private void addDataPoint(AirportData airportData, String pointType, DataPoint dataPoint) {
+    private void addDataPoint(AirportData airportData, DataPointType pointType, DataPoint dataPoint) {
         AtmosphericInformation newInfo =
-                new AtmosphericInformationFactory().getAtmosphericInformation(DataPointType.valueOf(pointType.toUpperCase()), dataPoint);
+                new AtmosphericInformationFactory().getAtmosphericInformation(pointType, dataPoint);
         informationDataStore.updateDataPoint(airportData, newInfo);
     }
+
+    private static Response badRequest(List<Error> errors) {
+        return Response.status(Response.Status.BAD_REQUEST).entity(new GenericEntity<List<Error>>(errors){}).build();
+    }
 }
 
 
@@ -5,18 +5,30 @@ import com.crossover.trial.weather.data.InformationDataStore;
 import com.crossover.trial.weather.interceptor.FrequencyUpdater;
 import com.crossover.trial.weather.model.AirportData;
 import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
+import com.crossover.trial.weather.validation.DataPointTypeValidationRule;
+import com.crossover.trial.weather.validation.IataValidationRule;
+import com.crossover.trial.weather.validation.RadiusValidationRule;
 import com.crossover.trial.weather.validation.generic.Error;
-import com.crossover.trial.weather.validation.generic.GenericInputRequestValidator;
-import com.crossover.trial.weather.validation.generic.InputValidationException;
+import com.crossover.trial.weather.validation.generic.ErrorCode;
+import com.crossover.trial.weather.validation.generic.RequestValidator;
 import com.google.gson.Gson;
+import org.glassfish.jersey.server.ChunkedOutput;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -31,9 +43,6 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
 
     public final static Logger LOGGER = Logger.getLogger("WeatherQuery");
 
-    /** earth radius in KM */
-    private static final double R = 6372.8;
-
     /** shared gson json to object factory */
     private static final Gson gson = new Gson();
 
@@ -41,6 +50,26 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
 
     private static FrequencyDataStore frequencyDataStore = FrequencyDataStore.getInstance();
 
+    private static final QueryExecutor queryExecutor = QueryExecutor.getInstance();
+
+    private static final WeatherUpdatePublisher weatherUpdatePublisher = WeatherUpdatePublisher.getInstance();
+
+    /** number of the most requested iata codes in the health stats */
+    private static final int TOP_REQUESTS = 10;
+
+    private static final RequestValidator weatherValidator = new RequestValidator("iata", "radius");
+
+    private static final RequestValidator historyValidator = new RequestValidator("iata", "pointType");
+
+    private static final RequestValidator aggregateValidator = new RequestValidator("iata", "radius", "pointType");
+
+    private static final RequestValidator iataValidator = new RequestValidator("iata");
+
+    private static final RequestValidator radiusValidator = new RequestValidator("radius");
+
+    /** the media type of the server-sent events */
+    private static final String EVENT_STREAM = "text/event-stream";
+
     /**
      * Retrieve service health including total size of valid data points and request frequency information.
      *
@@ -52,119 +81,299 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
     public String ping() {
         Map<String, Object> retval = new HashMap<>();
 
-        int datasize = 0;
-        for (AtmosphericInformation ai : informationDataStore.listAtmosphericInformation()) {
-            // we only count recent readings
-            if (ai.getCloudCover() != null
-                    || ai.getHumidity() != null
-                    || ai.getPressure() != null
-                    || ai.getPrecipitation() != null
-                    || ai.getTemperature() != null
-                    || ai.getWind() != null) {
-                // updated in the last day
-                if (ai.getLastUpdateTime() > System.currentTimeMillis() - 86400000) {
-                    datasize++;
-                }
-            }
-        }
-        retval.put("datasize", datasize);
+        // airports with a reading updated in the last day, maintained by the store
+        retval.put("datasize", informationDataStore.countRecentlyUpdatedAirports());
 
         Map<String, Double> freq = new HashMap<>();
         // fraction of queries
-        for (AirportData data : informationDataStore.listAirports()) {
-            int totalRequests = frequencyDataStore.totalNumberOfRequests();
+        int totalRequests = frequencyDataStore.totalNumberOfRequests();
+        for (String iata : informationDataStore.listAirportIataCodes()) {
             double frac = 0;
             if(totalRequests > 0) {
-                frac = (double) frequencyDataStore.getRequestFrequency(data.getIata()) / totalRequests;
+                frac = (double) frequencyDataStore.getRequestFrequency(iata) / totalRequests;
             }
-            freq.put(data.getIata(), frac);
+            freq.put(iata, frac);
         }
         retval.put("iata_freq", freq);
 
-        int m = frequencyDataStore.listRadii().stream()
-                .max(Double::compare)
-                .orElse(1000.0).intValue() + 1;
+        retval.put("radius_freq", frequencyDataStore.radiusHistogram());
+        retval.put("radius_log_freq", frequencyDataStore.radiusLogHistogram());
+        retval.put("iata_top", frequencyDataStore.topRequests(TOP_REQUESTS));
 
-        int[] hist = new int[m];
+        // the iata counters are exact, the radii are only known by their histogram ranges
+        Map<String, Number> errorBounds = new HashMap<>();
+        errorBounds.put("iata_freq", 0);
+        errorBounds.put("iata_top", 0);
+        errorBounds.put("radius_freq_km", FrequencyDataStore.RADIUS_HISTOGRAM_STEP);
+        errorBounds.put("radius_log_freq_relative", FrequencyDataStore.RADIUS_RELATIVE_ERROR);
+        retval.put("error_bounds", errorBounds);
 
-        for(Double radius : frequencyDataStore.listRadii()) {
-            int i = radius.intValue() / 10;
-            hist[i] += frequencyDataStore.getRadiusFrequency(radius);
-        }
-
-        retval.put("radius_freq", hist);
+        Map<String, Number> radiusCache = new HashMap<>();
+        radiusCache.put("hits", informationDataStore.getRadiusQueryCacheHits());
+        radiusCache.put("misses", informationDataStore.getRadiusQueryCacheMisses());
+        radiusCache.put("size", informationDataStore.getRadiusQueryCacheSize());
+        radiusCache.put("neighbors", informationDataStore.getNeighborListsSize());
+        retval.put("radius_cache", radiusCache);
 
         return gson.toJson(retval);
     }
 
     /**
-     * Given a query in json format {'iata': CODE, 'radius': km} extracts the requested airport information and
-     * return a list of matching atmosphere information.
+     * Radius queries run on the {@link QueryExecutor}, the lookup of a single airport on the worker thread.
      *
      * @param iataCode the iataCode
      * @param radiusString the radius in km
-     *
-     * @return a list of atmospheric information
+     * @param asyncResponse the suspended response
      */
     @Override
     @GET
     @Path("/weather/{iata}/{radius}")
     @Produces(MediaType.APPLICATION_JSON)
     @FrequencyUpdater
-    public Response weather(@PathParam("iata") String iataCode, @PathParam("radius") String radiusString) {
+    public void weather(@PathParam("iata") String iataCode, @PathParam("radius") String radiusString,
+                        @Suspended AsyncResponse asyncResponse) {
+        if (RadiusValidationRule.parse(radiusString) == 0) {
+            // a single airport is a lookup, cheaper than a hand off
+            asyncResponse.resume(weather(iataCode, radiusString));
+        } else {
+            queryExecutor.execute(asyncResponse, () -> weather(iataCode, radiusString));
+        }
+    }
+
+    /**
+     * Given a query in json format {'iata': CODE, 'radius': km} extracts the requested airport information and
+     * return a list of matching atmosphere information.
+     *
+     * @param iataCode the iataCode
+     * @param radiusString the radius in km
+     *
+     * @return a list of atmospheric information
+     */
+    @Override
+    public Response weather(String iataCode, String radiusString) {
         if(iataCode != null) {
             iataCode = iataCode.toUpperCase();
         }
-        try {
-            new GenericInputRequestValidator().validate(
-                    Arrays.asList("iata", "radius"),
-                    Arrays.asList(iataCode, radiusString));
-        } catch (InputValidationException ex) {
-            GenericEntity<List<Error>> errors = new GenericEntity<List<Error>>(ex.getErrors()){};
+        double radius = RadiusValidationRule.parse(radiusString);
+        if (!IataValidationRule.isValid(iataCode) || Double.isNaN(radius)) {
+            GenericEntity<List<Error>> errors =
+                    new GenericEntity<List<Error>>(weatherValidator.validate(iataCode, radiusString)){};
             return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
         }
 
-        double radius = radiusString == null || radiusString.trim().isEmpty() ? 0 : Double.valueOf(radiusString);
+        AirportData reference = informationDataStore.findAirportData(iataCode);
+        if (reference == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
 
-        List<AtmosphericInformation> retval = new ArrayList<>();
+        StreamingOutput retval;
         if (radius == 0) {
             //if iata exists and radius == 0 return information coresponding for that airport
-            AirportData airportData = informationDataStore.findAirportData(iataCode);
-            if(airportData != null) {
-                retval.add(informationDataStore.findAtmosphericInformation(airportData));
-            } else {
+            byte[] json = informationDataStore.findAtmosphericInformationJson(reference);
+            if (json == null) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
+            retval = output -> {
+                AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+                writer.beginArray();
+                writer.writeEncoded(json);
+                writer.endArray();
+                writer.flush();
+            };
         } else {
-            AirportData ref = informationDataStore.findAirportData(iataCode);
-            if(ref == null) {
-                return Response.status(Response.Status.NOT_FOUND).build();
+            byte[] json = informationDataStore.findAtmosphericInformationJsonWithin(reference, radius);
+            if (json != null) {
+                retval = output -> output.write(json);
+            } else {
+                // too large to be cached: joined from the json of every airport as the spatial index finds them
+                retval = output -> {
+                    AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+                    writer.beginArray();
+                    informationDataStore.forEachAtmosphericInformationJsonWithin(reference, radius,
+                            writer::writeEncoded);
+                    writer.endArray();
+                    writer.flush();
+                };
             }
-            for(AirportData airportData : informationDataStore.listAirports()) {
-                if (calculateDistance(ref, airportData) <= radius){
-                    AtmosphericInformation ai = informationDataStore.findAtmosphericInformation(airportData);
-                    if(!ai.isEmpty()) {
-                        retval.add(ai);
-                    }
-                }
+        }
+        return Response.status(Response.Status.OK).entity(retval).type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    /**
+     * Read the readings of the time range from the history of the airport.
+     *
+     * @param iataCode the iataCode
+     * @param pointType the type of the readings
+     * @param fromString the earliest time in milliseconds since UTC epoch, optional
+     * @param toString the latest time, optional
+     *
+     * @return the json array of the readings
+     */
+    @Override
+    @GET
+    @Path("/history/{iata}/{pointType}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response history(@PathParam("iata") String iataCode, @PathParam("pointType") String pointType,
+                            @QueryParam("from") String fromString, @QueryParam("to") String toString) {
+        if(iataCode != null) {
+            iataCode = iataCode.toUpperCase();
+        }
+        DataPointType dataPointType = DataPointTypeValidationRule.parse(pointType);
+        Long from = parseTime(fromString, Long.MIN_VALUE);
+        Long to = parseTime(toString, Long.MAX_VALUE);
+        if (!IataValidationRule.isValid(iataCode) || dataPointType == null || from == null || to == null) {
+            List<Error> errors = historyValidator.validate(iataCode, pointType);
+            if (from == null) {
+                errors.add(timeError("from"));
             }
+            if (to == null) {
+                errors.add(timeError("to"));
+            }
+            return Response.status(Response.Status.BAD_REQUEST).entity(new GenericEntity<List<Error>>(errors){})
+                    .build();
+        }
+
+        AirportData airportData = informationDataStore.findAirportData(iataCode);
+        byte[] json = airportData != null
+                ? informationDataStore.findHistoryJson(airportData, dataPointType, from, to)
+                : null;
+        if (json == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
-        return Response.status(Response.Status.OK).entity(retval).build();
+        StreamingOutput retval = output -> output.write(json);
+        return Response.status(Response.Status.OK).entity(retval).type(MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     /**
-     * Haversine distance between two airports.
+     * Summarize the means of a data point type within the radius.
      *
-     * @param ad1 airport 1
-     * @param ad2 airport 2
-     * @return the distance in KM
+     * @param iataCode the iataCode
+     * @param radiusString the radius in km
+     * @param pointType the type of the data points
+     *
+     * @return the count, mean, min and max of the means
+     */
+    @Override
+    @GET
+    @Path("/aggregate/{iata}/{radius}/{pointType}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response aggregate(@PathParam("iata") String iataCode, @PathParam("radius") String radiusString,
+                              @PathParam("pointType") String pointType) {
+        if(iataCode != null) {
+            iataCode = iataCode.toUpperCase();
+        }
+        double radius = RadiusValidationRule.parse(radiusString);
+        DataPointType dataPointType = DataPointTypeValidationRule.parse(pointType);
+        if (!IataValidationRule.isValid(iataCode) || Double.isNaN(radius) || dataPointType == null) {
+            GenericEntity<List<Error>> errors = new GenericEntity<List<Error>>(
+                    aggregateValidator.validate(iataCode, radiusString, pointType)){};
+            return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
+        }
+
+        AirportData reference = informationDataStore.findAirportData(iataCode);
+        if (reference == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.status(Response.Status.OK)
+                .entity(informationDataStore.aggregateWithin(reference, radius, dataPointType)).build();
+    }
+
+    /**
+     * Push the atmospheric information of the airports as server-sent events whenever it is updated.
+     *
+     * @param iataParameters the iata codes, repeated or comma separated
+     * @param radiusString the radius in km around the single airport given, the given airports only if missing
+     *
+     * @return the event stream, open until the client disconnects
+     */
+    @Override
+    @GET
+    @Path("/subscribe")
+    @Produces(EVENT_STREAM)
+    public ChunkedOutput<String> subscribe(@QueryParam("iata") List<String> iataParameters,
+                                           @QueryParam("radius") String radiusString) {
+        Set<String> iataCodes = new LinkedHashSet<>();
+        for (String iataParameter : iataParameters) {
+            for (String iataCode : iataParameter.split(",")) {
+                iataCodes.add(iataCode.trim().toUpperCase());
+            }
+        }
+        double radius = radiusString != null ? RadiusValidationRule.parse(radiusString) : 0;
+        List<Error> errors = new ArrayList<>();
+        if (iataCodes.isEmpty()) {
+            errors.addAll(iataValidator.validate((Object) null));
+        }
+        for (String iataCode : iataCodes) {
+            if (!IataValidationRule.isValid(iataCode)) {
+                errors.addAll(iataValidator.validate(iataCode));
+            }
+        }
+        if (Double.isNaN(radius)) {
+            errors.addAll(radiusValidator.validate(radiusString));
+        }
+        if (radiusString != null && iataCodes.size() > 1) {
+            errors.add(new Error(ErrorCode.INVALID_VALUE, "iata", "A single airport must be given with a radius"));
+        }
+        if (!errors.isEmpty()) {
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new GenericEntity<List<Error>>(errors){}).type(MediaType.APPLICATION_JSON_TYPE).build());
+        }
+
+        List<AirportData> airports = new ArrayList<>();
+        for (String iataCode : iataCodes) {
+            AirportData airportData = informationDataStore.findAirportData(iataCode);
+            if (airportData == null) {
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+            }
+            airports.add(airportData);
+        }
+        if (radius > 0) {
+            // the region is resolved once, airports added later are not part of the subscription
+            for (AirportData airportData : informationDataStore.findAirportsWithin(airports.get(0), radius)) {
+                iataCodes.add(airportData.getIata());
+            }
+        }
+
+        ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+        weatherUpdatePublisher.subscribe(iataCodes, new WeatherUpdatePublisher.EventSink() {
+            @Override
+            public void send(String event) throws IOException {
+                output.write(event);
+            }
+
+            @Override
+            public boolean isClosed() {
+                return output.isClosed();
+            }
+
+            @Override
+            public void close() {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    // already disconnected
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * @return the time in milliseconds, the default value if missing, null if not a number
      */
-    private double calculateDistance(AirportData ad1, AirportData ad2) {
-        double deltaLat = Math.toRadians(ad2.getLatitude() - ad1.getLatitude());
-        double deltaLon = Math.toRadians(ad2.getLongitude() - ad1.getLongitude());
-        double a =  Math.pow(Math.sin(deltaLat / 2), 2) + Math.pow(Math.sin(deltaLon / 2), 2)
-                * Math.cos(ad1.getLatitude()) * Math.cos(ad2.getLatitude());
-        double c = 2 * Math.asin(Math.sqrt(a));
-        return R * c;
+    private static Long parseTime(String time, long defaultValue) {
+        if (time == null || time.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(time);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Error timeError(String parameter) {
+        return new Error(ErrorCode.INVALID_VALUE, parameter,
+                "The parameter must be a time in milliseconds since the epoch");
     }
 }
@@ -3,7 +3,9 @@ package com.crossover.trial.weather.endpoint;
 import com.crossover.trial.weather.model.AirportData;
 import com.crossover.trial.weather.model.DataPointType;
 
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
 
 /**
  * The interface shared to airport weather collection systems.
@@ -32,6 +34,25 @@ public interface WeatherCollectorEndpoint {
     Response updateWeather(String iataCode,
                            String pointType,
                            String datapointJson);
+
+    /**
+     * Update the atmospheric information of many airports at once from a json array of
+     * {"iata": ..., "pointType": ..., "dataPoint": {...}} records. The records of an airport are merged into a
+     * single update.
+     *
+     * @param records the json array, read as a stream
+     * @return HTTP Response code and the status of every record, with the validation errors of rejected records
+     */
+    Response updateWeatherBatch(InputStream records);
+
+    /**
+     * Same as {@link #updateWeatherBatch(InputStream)}, resuming the suspended response once the batch is applied.
+     *
+     * @param records the json array, read as a stream
+     * @param asyncResponse the suspended response
+     */
+    void updateWeatherBatch(InputStream records, AsyncResponse asyncResponse);
+
     /**
      * Return a list of known airports as a json formatted list
      *
@@ -59,6 +80,22 @@ public interface WeatherCollectorEndpoint {
                         String latString,
                         String longString);
 
+    /**
+     * Add the airports of an airports.dat formatted body, with all their fields, in a single batch.
+     *
+     * @param airportsDat the airports.dat lines, read as a stream
+     * @return HTTP Response code and the number of imported, skipped and rejected lines
+     */
+    Response addAirports(InputStream airportsDat);
+
+    /**
+     * Same as {@link #addAirports(InputStream)}, resuming the suspended response once the airports are imported.
+     *
+     * @param airportsDat the airports.dat lines, read as a stream
+     * @param asyncResponse the suspended response
+     */
+    void addAirports(InputStream airportsDat, AsyncResponse asyncResponse);
+
     /**
      * Remove an airport from the known airport list
      *
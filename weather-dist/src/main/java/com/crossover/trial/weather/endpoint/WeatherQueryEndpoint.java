@@ -1,13 +1,16 @@
 package com.crossover.trial.weather.endpoint;
 
 import com.crossover.trial.weather.model.AtmosphericInformation;
+import org.glassfish.jersey.server.ChunkedOutput;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
+import java.util.List;
 
 /**
  * The query only API for the Weather Server App. This API is made available to the public internet.
@@ -33,7 +36,53 @@ public interface WeatherQueryEndpoint {
      * @param radiusString the radius, in km, from which to collect weather data
      *
      * @return an HTTP Response and a list of {@link AtmosphericInformation} from the requested airport and
-     * airports in the given radius
+     * airports in the given radius, streamed as json
      */
     Response weather(String iata, String radiusString);
+
+    /**
+     * Same as {@link #weather(String, String)}, resuming the suspended response once the atmospheric information
+     * is available, so that radius queries do not hold a server worker thread.
+     *
+     * @param iata the three letter airport code
+     * @param radiusString the radius, in km, from which to collect weather data
+     * @param asyncResponse the suspended response
+     */
+    void weather(String iata, String radiusString, AsyncResponse asyncResponse);
+
+    /**
+     * Retrieve the recent readings of one data point type of an airport, as kept in its bounded history.
+     *
+     * @param iata the three letter airport code
+     * @param pointType the type of the readings, as in the collector api
+     * @param fromString the earliest time of the readings, in milliseconds since UTC epoch; all readings if null
+     * @param toString the latest time of the readings, inclusive; up to the latest reading if null
+     *
+     * @return an HTTP Response with the json array of the readings with their time, oldest first
+     */
+    Response history(String iata, String pointType, String fromString, String toString);
+
+    /**
+     * Summarize one data point type over the airports in the given radius, without shipping their atmospheric
+     * information.
+     *
+     * @param iata the three letter airport code
+     * @param radiusString the radius, in km, of the airports to summarize
+     * @param pointType the type of the data points, as in the collector api
+     *
+     * @return an HTTP Response with the count of the airports with a reading of the type, and the mean, minimum and
+     * maximum of their means
+     */
+    Response aggregate(String iata, String radiusString, String pointType);
+
+    /**
+     * Subscribe to the updates of the atmospheric information of some airports, instead of polling them. Each update
+     * is pushed as a server-sent event, the updates of an airport in quick succession being sent once.
+     *
+     * @param iataCodes the three letter airport codes
+     * @param radiusString the radius, in km, of the airports to follow around the single airport given, or null
+     *
+     * @return the text/event-stream of the current then updated atmospheric information of the airports
+     */
+    ChunkedOutput<String> subscribe(List<String> iataCodes, String radiusString);
 }
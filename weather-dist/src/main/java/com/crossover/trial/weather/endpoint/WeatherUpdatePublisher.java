@@ -0,0 +1,318 @@
+package com.crossover.trial.weather.endpoint;
+
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.model.AirportData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes the atmospheric information of the updated airports to their subscribers as server-sent events.
+ * <p>
+ * The collector only marks the updated airport as dirty. A dispatcher thread picks the dirty airports at most once
+ * per coalescing interval, so a burst of updates of an airport is sent once, with its latest json. Each subscriber
+ * keeps the events not sent yet by airport, a newer event replacing the pending one, and writes them on a pool of
+ * writer threads: a slow consumer skips the intermediate values and never delays the collector or the other
+ * subscribers.
+ */
+public class WeatherUpdatePublisher {
+
+    public static final Logger LOGGER = Logger.getLogger(WeatherUpdatePublisher.class.getName());
+
+    /**
+     * system property with the interval in milliseconds over which the updates of an airport are coalesced, 100 by
+     * default
+     */
+    public static final String COALESCE_MILLIS_PROPERTY = "weather.push.coalesceMillis";
+
+    /**
+     * system property with the number of airports with an event pending for a subscriber before the oldest is
+     * dropped, 1024 by default
+     */
+    public static final String QUEUE_SIZE_PROPERTY = "weather.push.queueSize";
+
+    /**
+     * system property with the number of threads writing the events, 2 by default
+     */
+    public static final String WRITER_THREADS_PROPERTY = "weather.push.writerThreads";
+
+    /** interval of the comments keeping idle connections open and detecting the closed ones */
+    private static final long HEARTBEAT_MILLIS = 15000;
+
+    /** the key of the pending heartbeat, not an iata code */
+    private static final String HEARTBEAT = "";
+
+    /**
+     * Receives the events of a subscriber, formatted as in the text/event-stream media type.
+     */
+    interface EventSink {
+
+        void send(String event) throws IOException;
+
+        boolean isClosed();
+
+        void close();
+    }
+
+    private volatile static WeatherUpdatePublisher instance;
+
+    private final InformationDataStore informationDataStore;
+
+    private final long coalesceMillis;
+
+    private final int queueSize;
+
+    /** iata codes of the airports updated since the last dispatch */
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+    private final Map<String, Set<Subscriber>> subscribersByIata = new ConcurrentHashMap<>();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService dispatcher;
+
+    private final ExecutorService writers;
+
+    private final InformationDataStore.UpdateListener listener = this::updated;
+
+    private WeatherUpdatePublisher() {
+        this(InformationDataStore.getInstance(), Long.getLong(COALESCE_MILLIS_PROPERTY, 100),
+                Integer.getInteger(QUEUE_SIZE_PROPERTY, 1024), Integer.getInteger(WRITER_THREADS_PROPERTY, 2));
+    }
+
+    WeatherUpdatePublisher(InformationDataStore informationDataStore, long coalesceMillis, int queueSize,
+                           int writerThreads) {
+        this.informationDataStore = informationDataStore;
+        this.coalesceMillis = coalesceMillis;
+        this.queueSize = queueSize;
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "weather-push-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger count = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "weather-push-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS,
+                TimeUnit.MILLISECONDS);
+        informationDataStore.addUpdateListener(listener);
+    }
+
+    public static WeatherUpdatePublisher getInstance() {
+        if (instance == null) {
+            synchronized (WeatherUpdatePublisher.class) {
+                if (instance == null) {
+                    instance = new WeatherUpdatePublisher();
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Subscribe to the updates of the airports, starting with their current atmospheric information.
+     *
+     * @param iataCodes the iata codes of the airports
+     * @param sink      receives the events until it is closed or fails
+     */
+    Subscriber subscribe(Collection<String> iataCodes, EventSink sink) {
+        Subscriber subscriber = new Subscriber(iataCodes, sink);
+        subscribers.add(subscriber);
+        for (String iataCode : subscriber.iataCodes) {
+            subscribersByIata.computeIfAbsent(iataCode, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        for (String iataCode : subscriber.iataCodes) {
+            String event = event(iataCode);
+            if (event != null) {
+                subscriber.offer(iataCode, event);
+            }
+        }
+        return subscriber;
+    }
+
+    void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (String iataCode : subscriber.iataCodes) {
+            subscribersByIata.computeIfPresent(iataCode, (key, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        subscriber.sink.close();
+    }
+
+    /**
+     * @return the number of open subscriptions
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Stop pushing the updates, closing the subscriptions.
+     */
+    void close() {
+        informationDataStore.removeUpdateListener(listener);
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            unsubscribe(subscriber);
+        }
+        dispatcher.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    /**
+     * Called by the collector: only marks the airport, nothing is read or written here.
+     */
+    private void updated(AirportData airportData) {
+        String iataCode = airportData.getIata();
+        if (subscribersByIata.containsKey(iataCode) && dirty.add(iataCode)
+                && dispatchScheduled.compareAndSet(false, true)) {
+            dispatcher.schedule(this::dispatch, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Offer the latest event of the airports updated since the last dispatch to their subscribers. Run by the
+     * dispatcher thread, and directly by the tests.
+     */
+    void dispatch() {
+        // airports updated from now on schedule the next dispatch
+        dispatchScheduled.set(false);
+        for (Iterator<String> iterator = dirty.iterator(); iterator.hasNext(); ) {
+            String iataCode = iterator.next();
+            iterator.remove();
+            Set<Subscriber> airportSubscribers = subscribersByIata.get(iataCode);
+            if (airportSubscribers == null) {
+                continue;
+            }
+            String event = event(iataCode);
+            if (event == null) {
+                continue;
+            }
+            for (Subscriber subscriber : airportSubscribers) {
+                subscriber.offer(iataCode, event);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sink.isClosed()) {
+                unsubscribe(subscriber);
+            } else {
+                subscriber.offer(HEARTBEAT, ":\n\n");
+            }
+        }
+    }
+
+    /**
+     * @return the event with the current atmospheric information of the airport, null if it has none
+     */
+    private String event(String iataCode) {
+        AirportData airportData = informationDataStore.findAirportData(iataCode);
+        byte[] json = airportData != null ? informationDataStore.findAtmosphericInformationJson(airportData) : null;
+        if (json == null) {
+            return null;
+        }
+        return "event: weather\nid: " + iataCode + "\ndata: {\"iata\":\"" + iataCode
+                + "\",\"atmosphericInformation\":" + new String(json, StandardCharsets.UTF_8) + "}\n\n";
+    }
+
+    /**
+     * A subscription, with its latest event not sent yet by airport.
+     */
+    class Subscriber {
+
+        private final Set<String> iataCodes;
+
+        private final EventSink sink;
+
+        /** guarded by this */
+        private final LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+
+        /** whether a writer thread is sending the pending events, guarded by this */
+        private boolean sending;
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        Subscriber(Collection<String> iataCodes, EventSink sink) {
+            this.iataCodes = new LinkedHashSet<>(iataCodes);
+            this.sink = sink;
+        }
+
+        /**
+         * @return the number of events replaced by a newer one or dropped from a full queue
+         */
+        long getDroppedCount() {
+            return dropped.get();
+        }
+
+        void offer(String key, String event) {
+            synchronized (this) {
+                if (pending.put(key, event) != null) {
+                    dropped.incrementAndGet();
+                } else if (pending.size() > queueSize) {
+                    Iterator<String> oldest = pending.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    dropped.incrementAndGet();
+                }
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            writers.execute(this::send);
+        }
+
+        /**
+         * Send the pending events one at a time, so that the ones waiting can still be replaced by newer ones.
+         */
+        private void send() {
+            while (true) {
+                String event;
+                synchronized (this) {
+                    Iterator<String> oldest = pending.values().iterator();
+                    if (!oldest.hasNext()) {
+                        sending = false;
+                        return;
+                    }
+                    event = oldest.next();
+                    oldest.remove();
+                }
+                try {
+                    sink.send(event);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Subscriber disconnected", e);
+                    unsubscribe(this);
+                    return;
+                }
+            }
+        }
+    }
+}
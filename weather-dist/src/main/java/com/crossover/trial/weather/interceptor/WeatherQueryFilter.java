@@ -1,6 +1,7 @@
 package com.crossover.trial.weather.interceptor;
 
 import com.crossover.trial.weather.data.FrequencyDataStore;
+import com.crossover.trial.weather.validation.RadiusValidationRule;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
@@ -23,7 +24,8 @@ public class WeatherQueryFilter implements ContainerResponseFilter {
             throws IOException {
         MultivaluedMap<String, String> pathParameters = requestContext.getUriInfo().getPathParameters();
         String iata = pathParameters.getFirst("iata");
-        Double radius = Double.valueOf(pathParameters.getFirst("radius"));
+        // NaN, and not counted, if the client sent no number
+        double radius = RadiusValidationRule.parse(pathParameters.getFirst("radius"));
 
         FrequencyDataStore frequencyDataStore = FrequencyDataStore.getInstance();
         frequencyDataStore.updateRequestFrequency(iata);
@@ -119,6 +119,10 @@ public class AirportData {
         return false;
     }
 
+    public int hashCode() {
+        return iata != null ? iata.hashCode() : 0;
+    }
+
     public static class Builder {
         private String name;
 
@@ -192,6 +196,11 @@ public class AirportData {
             return this;
         }
 
+        public AirportData.Builder withDst(DST dst) {
+            this.dst = dst;
+            return this;
+        }
+
         public AirportData build() {
             if(iata == null && latitude == 0.0 && longitude == 0.0) {
                 throw new IllegalArgumentException("iata, latitude and longitude are mandatory");
@@ -87,6 +87,29 @@ public class AtmosphericInformation {
         this.cloudCover = cloudCover;
     }
 
+    /**
+     * @param dataPointType the kind of data point
+     * @return the data point of the given type or null if there is none
+     */
+    public DataPoint getDataPoint(DataPointType dataPointType) {
+        switch (dataPointType) {
+            case WIND:
+                return wind;
+            case TEMPERATURE:
+                return temperature;
+            case HUMIDTY:
+                return humidity;
+            case PRESSURE:
+                return pressure;
+            case CLOUDCOVER:
+                return cloudCover;
+            case PRECIPITATION:
+                return precipitation;
+            default:
+                throw new IllegalArgumentException(dataPointType + " not handled");
+        }
+    }
+
     public long getLastUpdateTime() {
         return this.lastUpdateTime;
     }
@@ -127,28 +150,21 @@ public class AtmosphericInformation {
                 && this.getPressure() == null && this.getTemperature() == null && this.getWind() == null;
     }
 
+    /**
+     * Combine this information with the data points present in a newer one. This object is left untouched so it
+     * can be safely shared by concurrent readers.
+     *
+     * @param ai the newer information
+     * @return a new object, updated now, holding the newer data points and the current ones for the others
+     */
     public AtmosphericInformation merge(AtmosphericInformation ai) {
-        if(ai.getCloudCover() != null) {
-            setCloudCover(ai.getCloudCover());
-        }
-        if(ai.getHumidity() != null) {
-            setHumidity(ai.getHumidity());
-        }
-        if(ai.getPrecipitation() != null) {
-            setPrecipitation(ai.getPrecipitation());
-        }
-        if(ai.getPressure() != null) {
-            setPressure(ai.getPressure());
-        }
-        if(ai.getPrecipitation() != null) {
-            setPrecipitation(ai.getPrecipitation());
-        }
-        if(ai.getWind() != null) {
-            setWind(ai.getWind());
-        }
-        setLastUpdateTime(System.currentTimeMillis());
-
-        return this;
+        return new AtmosphericInformation(
+                ai.getTemperature() != null ? ai.getTemperature() : getTemperature(),
+                ai.getWind() != null ? ai.getWind() : getWind(),
+                ai.getHumidity() != null ? ai.getHumidity() : getHumidity(),
+                ai.getPrecipitation() != null ? ai.getPrecipitation() : getPrecipitation(),
+                ai.getPressure() != null ? ai.getPressure() : getPressure(),
+                ai.getCloudCover() != null ? ai.getCloudCover() : getCloudCover());
     }
 
     static public class Builder {
@@ -184,6 +200,25 @@ public class AtmosphericInformation {
             return this;
         }
 
+        public Builder withDataPoint(DataPointType dataPointType, DataPoint dataPoint) {
+            switch (dataPointType) {
+                case WIND:
+                    return withWind(dataPoint);
+                case TEMPERATURE:
+                    return withTemperature(dataPoint);
+                case HUMIDTY:
+                    return withHumidity(dataPoint);
+                case PRESSURE:
+                    return withPressure(dataPoint);
+                case CLOUDCOVER:
+                    return withCloudCover(dataPoint);
+                case PRECIPITATION:
+                    return withPrecipitation(dataPoint);
+                default:
+                    throw new IllegalArgumentException(dataPointType + " not handled");
+            }
+        }
+
         public AtmosphericInformation build() {
             return new AtmosphericInformation(temperature, wind, humidity, precipitation, pressure, cloudCover);
         }
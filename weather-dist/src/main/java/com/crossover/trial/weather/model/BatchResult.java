@@ -0,0 +1,66 @@
+package com.crossover.trial.weather.model;
+
+import com.crossover.trial.weather.validation.generic.Error;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a batch request: the HTTP status of every record in request order, and the validation errors of the
+ * rejected records by record index.
+ */
+public class BatchResult {
+
+    private int accepted;
+
+    private int rejected;
+
+    private int[] status = new int[16];
+
+    private int size;
+
+    private final Map<Integer, List<Error>> errors = new TreeMap<>();
+
+    public void accept() {
+        add(200);
+        accepted++;
+    }
+
+    /**
+     * @param status       the HTTP status of the record
+     * @param recordErrors the validation errors of the record, may be empty
+     */
+    public void reject(int status, List<Error> recordErrors) {
+        if (!recordErrors.isEmpty()) {
+            errors.put(size, recordErrors);
+        }
+        add(status);
+        rejected++;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public int[] getStatus() {
+        return Arrays.copyOf(status, size);
+    }
+
+    public Map<Integer, List<Error>> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    private void add(int recordStatus) {
+        if (size == status.length) {
+            status = Arrays.copyOf(status, size * 2);
+        }
+        status[size++] = recordStatus;
+    }
+}
@@ -0,0 +1,76 @@
+package com.crossover.trial.weather.model;
+
+import com.crossover.trial.weather.validation.generic.Error;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a bulk airport import: the number of imported, skipped and rejected lines, and the errors of the first
+ * rejected lines by line number.
+ */
+public class ImportResult {
+
+    private static final int MAX_ERRORS = 100;
+
+    private int imported;
+
+    private int skipped;
+
+    private int rejected;
+
+    private final Map<Integer, Error> errors = new TreeMap<>();
+
+    public void imported() {
+        imported++;
+    }
+
+    /**
+     * Count a valid line that can not be imported, such as an airport without iata code.
+     */
+    public void skipped() {
+        skipped++;
+    }
+
+    public void rejected(int line, Error error) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.put(line, error);
+        }
+        rejected++;
+    }
+
+    /**
+     * Add the counts and errors of the import of the following lines.
+     *
+     * @param other      the result of the following lines
+     * @param lineOffset the number of lines before the first line of other
+     */
+    public void add(ImportResult other, int lineOffset) {
+        imported += other.imported;
+        skipped += other.skipped;
+        rejected += other.rejected;
+        for (Map.Entry<Integer, Error> error : other.errors.entrySet()) {
+            if (errors.size() >= MAX_ERRORS) {
+                break;
+            }
+            errors.put(error.getKey() + lineOffset, error.getValue());
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public Map<Integer, Error> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+}
@@ -0,0 +1,44 @@
+package com.crossover.trial.weather.model;
+
+/**
+ * Summary of the means of one {@link DataPointType} over the airports within a radius: how many airports have a
+ * reading of the type, and the mean, minimum and maximum of their means, null when there is none.
+ */
+public class RadiusAggregate {
+
+    private final int count;
+
+    private final Double mean;
+
+    private final Double min;
+
+    private final Double max;
+
+    public RadiusAggregate(int count, Double mean, Double min, Double max) {
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + mean + ", min=" + min + ", max=" + max;
+    }
+}
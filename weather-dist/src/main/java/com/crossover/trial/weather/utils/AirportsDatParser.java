@@ -0,0 +1,256 @@
+package com.crossover.trial.weather.utils;
+
+import com.crossover.trial.weather.model.AirportData;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser of the airports.dat csv format: id, name, city, country, iata, icao, latitude, longitude, altitude,
+ * timezone and dst, extra columns being ignored.
+ * <p>
+ * Fields may be quoted, with commas and doubled quotes inside the quotes, and \N stands for a missing value. The
+ * parser works on the bytes of a {@link ByteBuffer}, such as a memory-mapped file, without building a string per
+ * line: only the text fields of the airport are decoded and numbers are parsed in place.
+ */
+public class AirportsDatParser {
+
+    /**
+     * Receives the parsed lines.
+     */
+    public interface Listener {
+
+        /**
+         * @param line        the line number, from 1
+         * @param airportData the airport of the line, with a null iata code when the line has none
+         */
+        void airport(int line, AirportData airportData);
+
+        void malformed(int line, String message);
+    }
+
+    private static final int FIELDS = 11;
+
+    private static final int NAME = 1;
+    private static final int CITY = 2;
+    private static final int COUNTRY = 3;
+    private static final int IATA = 4;
+    private static final int ICAO = 5;
+    private static final int LATITUDE = 6;
+    private static final int LONGITUDE = 7;
+    private static final int ALTITUDE = 8;
+    private static final int TIMEZONE = 9;
+    private static final int DST = 10;
+
+    /** the powers of ten that are exact doubles */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Listener listener;
+
+    /** bounds of the fields of the current line, quotes excluded */
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final boolean[] escaped = new boolean[FIELDS];
+
+    private byte[] scratch = new byte[256];
+
+    private int line;
+
+    public AirportsDatParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the number of lines parsed so far
+     */
+    public int getLines() {
+        return line;
+    }
+
+    /**
+     * Parse the complete lines between the position and the limit of the buffer, leaving the position at the start
+     * of the first incomplete line.
+     *
+     * @param buffer     the bytes to parse
+     * @param endOfInput whether the bytes after the last line break are a complete last line
+     */
+    public void parse(ByteBuffer buffer, boolean endOfInput) {
+        int limit = buffer.limit();
+        int position = buffer.position();
+        while (position < limit) {
+            int end = position;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            if (end == limit && !endOfInput) {
+                break;
+            }
+            line++;
+            parseLine(buffer, position, end > position && buffer.get(end - 1) == '\r' ? end - 1 : end);
+            position = Math.min(end + 1, limit);
+        }
+        buffer.position(position);
+    }
+
+    private void parseLine(ByteBuffer buffer, int from, int to) {
+        if (from == to) {
+            return;
+        }
+        int field = 0;
+        int position = from;
+        while (field < FIELDS) {
+            escaped[field] = false;
+            if (position < to && buffer.get(position) == '"') {
+                starts[field] = ++position;
+                while (true) {
+                    if (position >= to) {
+                        listener.malformed(line, "Unterminated quoted field " + (field + 1));
+                        return;
+                    }
+                    if (buffer.get(position) == '"') {
+                        if (position + 1 < to && buffer.get(position + 1) == '"') {
+                            escaped[field] = true;
+                            position += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                ends[field] = position++;
+                if (position < to && buffer.get(position) != ',') {
+                    listener.malformed(line, "Unexpected character after quoted field " + (field + 1));
+                    return;
+                }
+            } else {
+                starts[field] = position;
+                while (position < to && buffer.get(position) != ',') {
+                    position++;
+                }
+                ends[field] = position;
+            }
+            field++;
+            if (position >= to) {
+                break;
+            }
+            position++;
+        }
+        if (field < FIELDS) {
+            listener.malformed(line, "Expected " + FIELDS + " fields but found " + field);
+            return;
+        }
+
+        double latitude = number(buffer, LATITUDE);
+        double longitude = number(buffer, LONGITUDE);
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            listener.malformed(line, "Latitude and longitude must be valid decimal numbers");
+            return;
+        }
+        double altitude = number(buffer, ALTITUDE);
+        double timezone = number(buffer, TIMEZONE);
+        String dst = string(buffer, DST);
+        AirportData airportData;
+        try {
+            airportData = new AirportData.Builder()
+                    .withName(string(buffer, NAME))
+                    .withCity(string(buffer, CITY))
+                    .withCountry(string(buffer, COUNTRY))
+                    .withIata(string(buffer, IATA))
+                    .withIcao(string(buffer, ICAO))
+                    .withLatitude(latitude)
+                    .withLongitude(longitude)
+                    .withAltitude(Double.isNaN(altitude) ? 0 : altitude)
+                    .withTimezone(Double.isNaN(timezone) ? 0 : timezone)
+                    .withDst(dst != null && dst.length() == 1 ? dst.charAt(0) : 'U')
+                    .build();
+        } catch (IllegalArgumentException e) {
+            listener.malformed(line, e.getMessage());
+            return;
+        }
+        listener.airport(line, airportData);
+    }
+
+    private boolean isMissing(ByteBuffer buffer, int field) {
+        int length = ends[field] - starts[field];
+        return length == 0 || length == 2 && buffer.get(starts[field]) == '\\' && buffer.get(starts[field] + 1) == 'N';
+    }
+
+    /**
+     * @return the field as a string, null if missing
+     */
+    private String string(ByteBuffer buffer, int field) {
+        if (isMissing(buffer, field)) {
+            return null;
+        }
+        int length = ends[field] - starts[field];
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(starts[field] + i);
+        }
+        String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        return escaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Parse a plain decimal number in place. Up to 15 digits and 22 decimals the result is the correctly
+     * rounded quotient of two exact doubles; other forms go through {@link Double#parseDouble(String)}.
+     *
+     * @return the number, NaN if missing or invalid
+     */
+    private double number(ByteBuffer buffer, int field) {
+        if (isMissing(buffer, field)) {
+            return Double.NaN;
+        }
+        int position = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (buffer.get(position) == '-' || buffer.get(position) == '+') {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean point = false;
+        for (; position < end; position++) {
+            byte b = buffer.get(position);
+            if (b >= '0' && b <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (point) {
+                    decimals++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return slowNumber(buffer, field);
+            }
+        }
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+            return slowNumber(buffer, field);
+        }
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    private double slowNumber(ByteBuffer buffer, int field) {
+        byte[] bytes = new byte[ends[field] - starts[field]];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(starts[field] + i);
+        }
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.crossover.trial.weather.utils;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hand-written json encoder of a stream of {@link AtmosphericInformation}, producing the same document as the
+ * Jackson provider: every property in declaration order, nulls included, followed by the derived "empty" flag.
+ * <p>
+ * The bytes go through a fixed buffer to the underlying stream, so writing a result of any size needs no more
+ * memory than one element, and no reflection or intermediate string is involved.
+ * <p>
+ * The same writer encodes the reading history of an airport, as an array of data points with their time.
+ */
+public class AtmosphericInformationJsonWriter implements Flushable {
+
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    private static final byte[] TEMPERATURE = ascii("{\"temperature\":");
+    private static final byte[] WIND = ascii(",\"wind\":");
+    private static final byte[] HUMIDITY = ascii(",\"humidity\":");
+    private static final byte[] PRECIPITATION = ascii(",\"precipitation\":");
+    private static final byte[] PRESSURE = ascii(",\"pressure\":");
+    private static final byte[] CLOUD_COVER = ascii(",\"cloudCover\":");
+    private static final byte[] LAST_UPDATE_TIME = ascii(",\"lastUpdateTime\":");
+    private static final byte[] EMPTY = ascii(",\"empty\":");
+    private static final byte[] MEAN = ascii("{\"mean\":");
+    private static final byte[] FIRST = ascii(",\"first\":");
+    private static final byte[] SECOND = ascii(",\"second\":");
+    private static final byte[] THIRD = ascii(",\"third\":");
+    private static final byte[] COUNT = ascii(",\"count\":");
+    private static final byte[] TIME = ascii("{\"time\":");
+    private static final byte[] TIMED_MEAN = ascii(",\"mean\":");
+
+    /** the largest long whose double has no exponent in {@link Double#toString(double)} */
+    private static final double PLAIN_DOUBLE_LIMIT = 1e7;
+
+    private final OutputStream out;
+
+    private final byte[] buffer;
+
+    private int position;
+
+    private boolean firstElement = true;
+
+    public AtmosphericInformationJsonWriter(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public AtmosphericInformationJsonWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+    }
+
+    public void beginArray() throws IOException {
+        writeByte('[');
+        firstElement = true;
+    }
+
+    /**
+     * Write an element of the array.
+     */
+    public void write(AtmosphericInformation atmosphericInformation) throws IOException {
+        separate();
+        writeObject(atmosphericInformation);
+    }
+
+    /**
+     * Write an element of the array already encoded by {@link #encode(AtmosphericInformation)}.
+     */
+    public void writeEncoded(byte[] json) throws IOException {
+        separate();
+        if (json.length > buffer.length - position) {
+            drain();
+            if (json.length > buffer.length) {
+                out.write(json);
+                return;
+            }
+        }
+        System.arraycopy(json, 0, buffer, position, json.length);
+        position += json.length;
+    }
+
+    /**
+     * Write an element of a reading history: the fields of a {@link DataPoint} after the time of the reading.
+     *
+     * @param time the time of the reading, in milliseconds since UTC epoch
+     */
+    public void writeReading(long time, double mean, int first, int second, int third, int count)
+            throws IOException {
+        separate();
+        writeBytes(TIME);
+        writeLong(time);
+        writeBytes(TIMED_MEAN);
+        writeDataPointFields(mean, first, second, third, count);
+    }
+
+    /**
+     * @return the json object of the atmospheric information, as written in an array
+     */
+    public static byte[] encode(AtmosphericInformation atmosphericInformation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(out, 512);
+        try {
+            writer.writeObject(atmosphericInformation);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void separate() throws IOException {
+        if (!firstElement) {
+            writeByte(',');
+        }
+        firstElement = false;
+    }
+
+    private void writeObject(AtmosphericInformation atmosphericInformation) throws IOException {
+        writeBytes(TEMPERATURE);
+        write(atmosphericInformation.getTemperature());
+        writeBytes(WIND);
+        write(atmosphericInformation.getWind());
+        writeBytes(HUMIDITY);
+        write(atmosphericInformation.getHumidity());
+        writeBytes(PRECIPITATION);
+        write(atmosphericInformation.getPrecipitation());
+        writeBytes(PRESSURE);
+        write(atmosphericInformation.getPressure());
+        writeBytes(CLOUD_COVER);
+        write(atmosphericInformation.getCloudCover());
+        writeBytes(LAST_UPDATE_TIME);
+        writeLong(atmosphericInformation.getLastUpdateTime());
+        writeBytes(EMPTY);
+        writeBytes(atmosphericInformation.isEmpty() ? TRUE : FALSE);
+        writeByte('}');
+    }
+
+    public void endArray() throws IOException {
+        writeByte(']');
+    }
+
+    /**
+     * Write the buffered bytes to the underlying stream, and flush it.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void write(DataPoint dataPoint) throws IOException {
+        if (dataPoint == null) {
+            writeBytes(NULL);
+            return;
+        }
+        writeBytes(MEAN);
+        writeDataPointFields(dataPoint.getMean(), dataPoint.getFirst(), dataPoint.getSecond(), dataPoint.getThird(),
+                dataPoint.getCount());
+    }
+
+    /**
+     * Write the fields of a data point following its mean property name, and close the object.
+     */
+    private void writeDataPointFields(double mean, int first, int second, int third, int count) throws IOException {
+        writeDouble(mean);
+        writeBytes(FIRST);
+        writeLong(first);
+        writeBytes(SECOND);
+        writeLong(second);
+        writeBytes(THIRD);
+        writeLong(third);
+        writeBytes(COUNT);
+        writeLong(count);
+        writeByte('}');
+    }
+
+    /**
+     * Write a double as {@link Double#toString(double)} does, integral values without the string.
+     */
+    private void writeDouble(double value) throws IOException {
+        if (value == (long) value && Math.abs(value) < PLAIN_DOUBLE_LIMIT
+                && (value != 0 || 1 / value > 0)) {
+            writeLong((long) value);
+            writeByte('.');
+            writeByte('0');
+        } else if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // quoted, as jackson does by default
+            writeByte('"');
+            writeBytes(ascii(Double.toString(value)));
+            writeByte('"');
+        } else {
+            writeBytes(ascii(Double.toString(value)));
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(ascii(Long.toString(value)));
+            return;
+        }
+        if (position + 20 > buffer.length) {
+            drain();
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void writeByte(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (position + bytes.length > buffer.length) {
+            drain();
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
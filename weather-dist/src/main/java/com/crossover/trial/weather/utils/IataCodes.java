@@ -0,0 +1,48 @@
+package com.crossover.trial.weather.utils;
+
+/**
+ * Maps three letter iata codes to dense integer slots, so per airport data can be kept in primitive arrays
+ * instead of maps keyed by strings.
+ */
+public class IataCodes {
+
+    private static final int LETTERS = 26;
+
+    /** the number of distinct three letter codes */
+    public static final int SLOT_COUNT = LETTERS * LETTERS * LETTERS;
+
+    private IataCodes() {
+    }
+
+    /**
+     * @param iataCode a three letter code, upper or lower case
+     * @return the slot of the code in [0, {@link #SLOT_COUNT}) or -1 if the code is not made of three letters
+     */
+    public static int toSlot(String iataCode) {
+        if (iataCode == null || iataCode.length() != 3) {
+            return -1;
+        }
+        int slot = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = Character.toUpperCase(iataCode.charAt(i)) - 'A';
+            if (letter < 0 || letter >= LETTERS) {
+                return -1;
+            }
+            slot = slot * LETTERS + letter;
+        }
+        return slot;
+    }
+
+    /**
+     * @param slot a slot returned by {@link #toSlot(String)}
+     * @return the upper case iata code of the slot
+     */
+    public static String fromSlot(int slot) {
+        char[] code = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            code[i] = (char) ('A' + slot % LETTERS);
+            slot /= LETTERS;
+        }
+        return new String(code);
+    }
+}
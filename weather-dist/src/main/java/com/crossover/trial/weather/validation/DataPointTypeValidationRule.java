@@ -18,20 +18,35 @@ import static com.crossover.trial.weather.validation.generic.ErrorCode.MISSING_P
  */
 public class DataPointTypeValidationRule extends ValidationRule {
 
+    private static final DataPointType[] DATA_POINT_TYPES = DataPointType.values();
+
     @Override
     public List<Error> apply(Object param) {
         if(param == null) {
             return  Collections.singletonList(new Error(MISSING_PARAMETER, parameterName(), "The parameter is mandatory"));
         }
-        try {
-            DataPointType.valueOf(String.valueOf(param).toUpperCase());
-        } catch (IllegalArgumentException ex) {
+        if (parse(String.valueOf(param)) == null) {
             return  Collections.singletonList(new Error(INVALID_VALUE, parameterName(),
                     "The parameter must have one of the following values: " + Arrays.asList(DataPointType.values()) + " with upper or lower case"));
         }
         return null;
     }
 
+    /**
+     * @param pointType the name of a {@link DataPointType} in any case
+     * @return the point type, null if missing or unknown
+     */
+    public static DataPointType parse(String pointType) {
+        if (pointType != null) {
+            for (DataPointType dataPointType : DATA_POINT_TYPES) {
+                if (dataPointType.name().equalsIgnoreCase(pointType)) {
+                    return dataPointType;
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public String parameterName() {
         return "pointType";
@@ -31,66 +31,124 @@ public class DataPointValidationRule extends ValidationRule {
     public List<Error> apply(Object obj) {
         DataPointWithType dataPointWithType = (DataPointWithType) obj;
         List<Error> errors = new ArrayList<>();
+        DataPointType dataPointType = parsePointType(dataPointWithType.getDataPointType(), errors);
         try {
-            DataPointType dataPointType = parsePointType(dataPointWithType.getDataPointType(), errors);
             DataPoint dataPoint = gson.fromJson(dataPointWithType.getDataPointJson(), DataPoint.class);
-            if(dataPointType != null) {
-                validateDataPoint(dataPoint, dataPointType, errors);
+            // keep the parsed data point so that the caller does not parse the json again
+            dataPointWithType.setDataPoint(dataPoint);
+            if (dataPointType != null) {
+                if (dataPoint == null) {
+                    errors.add(new Error(INVALID_VALUE, "dataPoint", "Data point has invalid structure"));
+                } else {
+                    check(dataPoint, dataPointType, errors);
+                }
             }
-            //FIXME refine DataPoint validation
-        } catch (Exception ex) {
+        } catch (RuntimeException ex) {
             errors.add(new Error(INVALID_VALUE, "dataPoint", "Data point has invalid structure"));
         }
         return errors;
     }
 
-    private DataPointType parsePointType(String str, List<Error> allErrors) {
-        List<Error> errors = dataPointTypeValidationRule.apply(str);
-        if(errors != null){
+    /**
+     * Validate an already parsed data point, with the same errors as {@link #apply(Object)}.
+     *
+     * @param pointType the point type, {@link DataPointType} in upper or lower case
+     * @param dataPoint the data point, null if missing
+     * @return the errors, empty if the data point is valid
+     */
+    public List<Error> validate(String pointType, DataPoint dataPoint) {
+        List<Error> errors = new ArrayList<>();
+        DataPointType dataPointType = parsePointType(pointType, errors);
+        if (dataPoint == null) {
+            errors.add(new Error(INVALID_VALUE, "dataPoint", "Data point has invalid structure"));
+        } else if (dataPointType != null) {
+            check(dataPoint, dataPointType, errors);
+        }
+        return errors;
+    }
+
+    private DataPointType parsePointType(String pointType, List<Error> allErrors) {
+        List<Error> errors = dataPointTypeValidationRule.apply(pointType);
+        if (errors != null) {
             allErrors.addAll(errors);
             return null;
-        } else {
-            return DataPointType.valueOf(str.toUpperCase());
         }
+        return DataPointTypeValidationRule.parse(pointType);
+    }
+
+    /**
+     * @return the data point of the json, null if missing or with an invalid structure
+     */
+    public static DataPoint parse(String dataPointJson) {
+        try {
+            return gson.fromJson(dataPointJson, DataPoint.class);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Check a data point without building errors, {@link #validate(String, DataPoint)} telling why it is not valid.
+     *
+     * @return whether the data point is present and valid for the type
+     */
+    public static boolean isValid(DataPointType dataPointType, DataPoint dataPoint) {
+        return dataPoint != null && check(dataPoint, dataPointType, null);
     }
 
-    private void validateDataPoint(DataPoint dataPoint, DataPointType dataPointType, List<Error> errors) {
+    /**
+     * @param errors receives the errors, null to stop at the first one
+     * @return whether the data point is valid
+     */
+    private static boolean check(DataPoint dataPoint, DataPointType dataPointType, List<Error> errors) {
+        boolean valid = true;
         switch (dataPointType) {
             case WIND:
                 if (dataPoint.getMean() < 0) {
-                    errors.add(new Error(INVALID_VALUE, "mean", "Mean must by a decimal number greater than 0"));
+                    valid = reject(errors, "mean", "Mean must by a decimal number greater than 0");
                 }
                 break;
             case TEMPERATURE:
                 if (dataPoint.getMean() < -50 || dataPoint.getMean() >= 100) {
-                    errors.add(new Error(INVALID_VALUE, "mean", "Mean must by a decimal number between -50 and 99"));
+                    valid = reject(errors, "mean", "Mean must by a decimal number between -50 and 99");
                 }
                 break;
             case PRESSURE:
                 if (dataPoint.getMean() < 650 || dataPoint.getMean() >= 800) {
-                    errors.add(new Error(INVALID_VALUE, "mean", "Mean must by a decimal number between 650 and 799"));
+                    valid = reject(errors, "mean", "Mean must by a decimal number between 650 and 799");
                 }
                 break;
             case HUMIDTY:
             case PRECIPITATION:
             case CLOUDCOVER:
                 if (dataPoint.getMean() < 0 || dataPoint.getMean() >= 100) {
-                    errors.add(new Error(INVALID_VALUE, "mean", "Mean must by a decimal number between 0 and 99"));
+                    valid = reject(errors, "mean", "Mean must by a decimal number between 0 and 99");
                 }
                 break;
         }
+        if (!valid && errors == null) {
+            return false;
+        }
 
         if(dataPoint.getFirst()<0) {
-            errors.add(new Error(INVALID_VALUE, "first", "First must by an integer greater or equal to 0"));
+            valid = reject(errors, "first", "First must by an integer greater or equal to 0");
         }
         if(dataPoint.getSecond()<0) {
-            errors.add(new Error(INVALID_VALUE, "second", "Second must by an integer greater or equal to 0"));
+            valid = reject(errors, "second", "Second must by an integer greater or equal to 0");
         }
         if(dataPoint.getThird()<0) {
-            errors.add(new Error(INVALID_VALUE, "third", "Third must by an integer greater or equal to 0"));
+            valid = reject(errors, "third", "Third must by an integer greater or equal to 0");
         }
         if(dataPoint.getCount()<0) {
-            errors.add(new Error(INVALID_VALUE, "count", "Count must by an integer greater or equal to 0"));
+            valid = reject(errors, "count", "Count must by an integer greater or equal to 0");
+        }
+        return valid;
+    }
+
+    private static boolean reject(List<Error> errors, String parameter, String message) {
+        if (errors != null) {
+            errors.add(new Error(INVALID_VALUE, parameter, message));
         }
+        return false;
     }
 }
@@ -1,5 +1,6 @@
 package com.crossover.trial.weather.validation;
 
+import com.crossover.trial.weather.model.DataPoint;
 import com.crossover.trial.weather.model.DataPointType;
 
 /**
@@ -9,6 +10,7 @@ import com.crossover.trial.weather.model.DataPointType;
 public class DataPointWithType {
     private String dataPointType;
     private String dataPointJson;
+    private DataPoint dataPoint;
 
     public DataPointWithType(String dataPointType, String dataPointJson) {
         this.dataPointType = dataPointType;
@@ -30,4 +32,15 @@ public class DataPointWithType {
     public void setDataPointJson(String dataPointJson) {
         this.dataPointJson = dataPointJson;
     }
+
+    /**
+     * @return the data point parsed from the json during validation, null before
+     */
+    public DataPoint getDataPoint() {
+        return dataPoint;
+    }
+
+    public void setDataPoint(DataPoint dataPoint) {
+        this.dataPoint = dataPoint;
+    }
 }
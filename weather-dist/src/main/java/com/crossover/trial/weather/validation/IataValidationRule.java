@@ -22,13 +22,28 @@ public class IataValidationRule extends ValidationRule {
         if(param == null ) {
             return Collections.singletonList(new Error(MISSING_PARAMETER, parameterName(), "The parameter is mandatory"));
         }
-        String iata = String.valueOf(param);
-        if(!iata.matches("[A-Z]{3}")) {
+        if(!isValid(String.valueOf(param))) {
             return Collections.singletonList(new Error(INVALID_VALUE, parameterName(), "The iata code is formed of 3 upper case letters"));
         }
         return null;
     }
 
+    /**
+     * @return whether the code is formed of 3 upper case letters, false if null
+     */
+    public static boolean isValid(String iata) {
+        if (iata == null || iata.length() != 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            char c = iata.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String parameterName() {
         return "iata";
@@ -21,14 +21,27 @@ public class LongitudeValidationRule extends ValidationRule {
         if(param == null ) {
             return Collections.singletonList(new Error(MISSING_PARAMETER, parameterName(), "The parameter is mandatory"));
         }
-        try {
-            Double.parseDouble(String.valueOf(param));
-        } catch (NumberFormatException e) {
+        if (Double.isNaN(parse(String.valueOf(param)))) {
             return Collections.singletonList(new Error(INVALID_VALUE, parameterName(), "The parameter must be a valid decimal number"));
         }
         return null;
     }
 
+    /**
+     * @return the coordinate, NaN if missing or not a finite decimal number
+     */
+    public static double parse(String coordinate) {
+        if (coordinate == null) {
+            return Double.NaN;
+        }
+        try {
+            double value = Double.parseDouble(coordinate);
+            return Double.isInfinite(value) ? Double.NaN : value;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
     @Override
     public String parameterName() {
         return "long";
@@ -21,16 +21,26 @@ public class RadiusValidationRule extends ValidationRule {
             return null;
         }
 
-        Error error = new Error(INVALID_VALUE, parameterName(), "The parameter must be a valid decimal number greater or equal to 0");
+        if(Double.isNaN(parse(String.valueOf(param)))) {
+            return Collections.singletonList(new Error(INVALID_VALUE, parameterName(),
+                    "The parameter must be a valid decimal number greater or equal to 0"));
+        }
+        return null;
+    }
+
+    /**
+     * @return the radius, 0 if missing, NaN if not a decimal number greater or equal to 0
+     */
+    public static double parse(String radius) {
+        if (radius == null) {
+            return 0;
+        }
         try {
-            double radius = Double.parseDouble(String.valueOf(param));
-            if(radius < 0) {
-                return Collections.singletonList(error);
-            }
+            double value = Double.parseDouble(radius);
+            return value >= 0 ? value : Double.NaN;
         } catch (NumberFormatException e) {
-            return Collections.singletonList(error);
+            return Double.NaN;
         }
-        return null;
     }
 
     @Override
@@ -0,0 +1,41 @@
+package com.crossover.trial.weather.validation.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validation of the parameters of one endpoint method, with the rules looked up once when the endpoint is created
+ * instead of on every request.
+ * <p>
+ * Endpoints check their parameters with the allocation-free methods of the rules, such as
+ * {@link com.crossover.trial.weather.validation.IataValidationRule#isValid(String)}, and only call
+ * {@link #validate(Object...)} to report the errors of an invalid request, in parameter order.
+ */
+public class RequestValidator {
+
+    private static final ValidationRuleFactory validationRuleFactory = new ValidationRuleFactory();
+
+    private final ValidationRule[] validationRules;
+
+    public RequestValidator(String... parameterNames) {
+        validationRules = new ValidationRule[parameterNames.length];
+        for (int i = 0; i < parameterNames.length; i++) {
+            validationRules[i] = validationRuleFactory.getValidationRule(parameterNames[i]);
+        }
+    }
+
+    /**
+     * @param parameterValues the values, in the order of the parameter names
+     * @return the errors of all the parameters, empty if they are valid
+     */
+    public List<Error> validate(Object... parameterValues) {
+        List<Error> allErrors = new ArrayList<>();
+        for (int i = 0; i < validationRules.length; i++) {
+            List<Error> errors = validationRules[i].apply(parameterValues[i]);
+            if (errors != null) {
+                allErrors.addAll(errors);
+            }
+        }
+        return allErrors;
+    }
+}
@@ -3,7 +3,8 @@ package com.crossover.trial.weather.validation.generic;
 import com.crossover.trial.weather.validation.*;
 
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by Popescu Adrian-Dumitru on 06.09.2017.
@@ -11,14 +12,19 @@ import java.util.List;
  */
 class ValidationRuleFactory {
 
-    private static List<? extends ValidationRule> validationRules = Arrays.asList(
-            new DataPointTypeValidationRule(),
-            new DataPointValidationRule(),
-            new IataValidationRule(),
-            new LatitudeValidationRule(),
-            new LongitudeValidationRule(),
-            new RadiusValidationRule()
-    );
+    private static final Map<String, ValidationRule> validationRules = new HashMap<>();
+
+    static {
+        for (ValidationRule validationRule : Arrays.asList(
+                new DataPointTypeValidationRule(),
+                new DataPointValidationRule(),
+                new IataValidationRule(),
+                new LatitudeValidationRule(),
+                new LongitudeValidationRule(),
+                new RadiusValidationRule())) {
+            validationRules.put(validationRule.parameterName(), validationRule);
+        }
+    }
 
     /**
      * Return the validation rule for the provided parameter
@@ -27,8 +33,10 @@ class ValidationRuleFactory {
      * @return the actual implementation for the parameterName
      */
     ValidationRule getValidationRule(String parameterName) {
-        return validationRules.stream().filter(vr -> vr.parameterName().equals(parameterName))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Rule for " + parameterName + "not found"));
+        ValidationRule validationRule = validationRules.get(parameterName);
+        if (validationRule == null) {
+            throw new IllegalArgumentException("Rule for " + parameterName + "not found");
+        }
+        return validationRule;
     }
 }
@@ -0,0 +1,117 @@
+package com.crossover.trial.weather;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RecordBatcher}
+ */
+public class RecordBatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final List<List<Integer>> batches = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFullBatches() throws InterruptedException, ExecutionException {
+        RecordBatcher<Integer, String> batcher = new RecordBatcher<>(3, 0, scheduler, executor, this::echo);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            results.add(batcher.add(i));
+        }
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5)), batches);
+        assertFalse(results.get(6).isDone());
+
+        batcher.flush();
+        assertEquals(Arrays.asList(6), batches.get(2));
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6"),
+                results.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+
+        batcher.flush();
+        assertEquals(3, batches.size());
+    }
+
+    @Test
+    public void testLinger() throws InterruptedException, ExecutionException, TimeoutException {
+        RecordBatcher<Integer, String> batcher = new RecordBatcher<>(100, 10, scheduler, executor, this::echo);
+
+        assertEquals("1", batcher.add(1).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBlockedLingerSendDoesNotDelayOthers() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordBatcher<Integer, String> blocking = new RecordBatcher<>(100, 1, scheduler, executor, records -> {
+            // as a sender waiting for the window
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return echo(records);
+        });
+        RecordBatcher<Integer, String> batcher = new RecordBatcher<>(100, 10, scheduler, executor, this::echo);
+        CompletableFuture<String> waiting = blocking.add(1);
+
+        try {
+            assertEquals("2", batcher.add(2).get(5, TimeUnit.SECONDS));
+            assertFalse(waiting.isDone());
+        } finally {
+            blocked.countDown();
+        }
+        assertEquals("1", waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailure() {
+        IllegalStateException failure = new IllegalStateException("expected by the test");
+        RecordBatcher<Integer, String> batcher = new RecordBatcher<>(2, 0, scheduler, executor, records -> {
+            CompletableFuture<List<String>> result = new CompletableFuture<>();
+            result.completeExceptionally(failure);
+            return result;
+        });
+        CompletableFuture<String> first = batcher.add(1);
+        CompletableFuture<String> second = batcher.add(2);
+
+        assertTrue(first.isCompletedExceptionally());
+        try {
+            second.join();
+        } catch (RuntimeException e) {
+            assertSame(failure, e.getCause());
+            return;
+        }
+        throw new AssertionError("Expected the batch failure");
+    }
+
+    private synchronized CompletableFuture<List<String>> echo(List<Integer> records) {
+        batches.add(records);
+        return CompletableFuture.completedFuture(
+                records.stream().map(String::valueOf).collect(Collectors.toList()));
+    }
+}
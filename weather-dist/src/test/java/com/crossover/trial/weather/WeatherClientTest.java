@@ -0,0 +1,59 @@
+package com.crossover.trial.weather;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link WeatherClient}
+ */
+public class WeatherClientTest {
+
+    private HttpServer server;
+
+    private WeatherClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        // answers every query with the path it was sent to
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/query/weather", exchange -> {
+            byte[] body = ("\"" + exchange.getRequestURI().getPath() + "\"").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        client = new WeatherClient.Builder()
+                .withBaseUri("http://localhost:" + server.getAddress().getPort())
+                .withMaxInFlight(1)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testChainedRequestsWithAWindowOfOne() throws Exception {
+        String result = client.queryAsync("BOS", 0)
+                .thenCompose(first -> client.queryAsync("JFK", 0))
+                .thenCompose(second -> client.queryAsync("LGA", 0))
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals("\"/query/weather/LGA/0.0\"", result);
+    }
+}
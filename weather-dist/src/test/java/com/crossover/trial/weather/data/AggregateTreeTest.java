@@ -0,0 +1,104 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.model.RadiusAggregate;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link AggregateTree}
+ */
+public class AggregateTreeTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void testMatchesBruteForce() {
+        AirportData[] airports = new AirportData[2000];
+        double[] temperatures = new double[airports.length];
+        for (int slot = 0; slot < airports.length; slot++) {
+            // leave some free slots
+            if (slot % 10 != 3) {
+                airports[slot] = new AirportData.Builder().withIata("A" + slot)
+                        .withLatitude(random.nextDouble() * 180 - 90)
+                        .withLongitude(random.nextDouble() * 360 - 180).build();
+            }
+        }
+        AggregateTree tree = new AggregateTree(1, airports);
+        for (int slot = 0; slot < airports.length; slot++) {
+            // some airports without temperature
+            if (airports[slot] != null && slot % 7 != 0) {
+                temperatures[slot] = random.nextInt(100) - 50;
+                tree.update(slot, temperature(temperatures[slot]));
+            } else {
+                temperatures[slot] = Double.NaN;
+            }
+        }
+
+        for (double radiusKm : new double[]{0, 100, 1000, 5000, 15000, 25000}) {
+            for (int i = 0; i < 10; i++) {
+                AirportData center = airports[1 + i * 10];
+                assertAggregate(airports, temperatures, center, radiusKm,
+                        tree.aggregate(center.getLatitude(), center.getLongitude(), radiusKm,
+                                DataPointType.TEMPERATURE));
+            }
+        }
+
+        // updates are reflected up to the root
+        temperatures[1] = 99;
+        tree.update(1, temperature(99));
+        RadiusAggregate all = tree.aggregate(0, 0, 25000, DataPointType.TEMPERATURE);
+        assertEquals(99, all.getMax(), 0);
+        assertAggregate(airports, temperatures, airports[1], 25000, all);
+    }
+
+    @Test
+    public void testNoReadings() {
+        AirportData[] airports = {new AirportData.Builder().withIata("BOS").withLatitude(42.364347)
+                .withLongitude(-71.005181).build()};
+        RadiusAggregate aggregate = new AggregateTree(1, airports)
+                .aggregate(42.364347, -71.005181, 100, DataPointType.WIND);
+
+        assertEquals(0, aggregate.getCount());
+        assertNull(aggregate.getMean());
+        assertEquals(0, new AggregateTree(1, new AirportData[0]).aggregate(0, 0, 100, DataPointType.WIND)
+                .getCount());
+    }
+
+    private static void assertAggregate(AirportData[] airports, double[] temperatures, AirportData center,
+                                        double radiusKm, RadiusAggregate aggregate) {
+        int count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int slot = 0; slot < airports.length; slot++) {
+            if (airports[slot] != null && !Double.isNaN(temperatures[slot])
+                    && SpatialIndex.distance(center.getLatitude(), center.getLongitude(),
+                    airports[slot].getLatitude(), airports[slot].getLongitude()) <= radiusKm) {
+                count++;
+                sum += temperatures[slot];
+                min = Math.min(min, temperatures[slot]);
+                max = Math.max(max, temperatures[slot]);
+            }
+        }
+        String message = center.getIata() + " within " + radiusKm;
+        assertEquals(message, count, aggregate.getCount());
+        if (count > 0) {
+            assertEquals(message, sum / count, aggregate.getMean(), 1e-9);
+            assertEquals(message, min, aggregate.getMin(), 0);
+            assertEquals(message, max, aggregate.getMax(), 0);
+        }
+    }
+
+    private static AtmosphericInformation temperature(double mean) {
+        return new AtmosphericInformation.Builder().withTemperature(new DataPoint.Builder()
+                .withMean(mean).withFirst(0).withMedian(0).withLast(0).withCount(1).build()).build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.ImportResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link AirportImporter}
+ */
+public class AirportImporterTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        InformationDataStore.getInstance().clear();
+        file = Files.createTempFile("airports", ".dat");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        InformationDataStore.getInstance().clear();
+        Files.delete(file);
+    }
+
+    @Test
+    public void testSplit() {
+        ByteBuffer buffer = ByteBuffer.wrap("aaaa\nb\nccccccc\nd".getBytes(StandardCharsets.UTF_8));
+        List<ByteBuffer> parts = AirportImporter.split(buffer, 4);
+
+        assertEquals(3, parts.size());
+        assertEquals("aaaa\n", text(parts.get(0)));
+        assertEquals("b\nccccccc\n", text(parts.get(1)));
+        assertEquals("d", text(parts.get(2)));
+    }
+
+    @Test
+    public void testImportFile() throws IOException {
+        StringBuilder airportsDat = new StringBuilder();
+        for (int i = 0; i < 26 * 26 * 26; i++) {
+            String iata = "" + (char) ('A' + i / 676) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            airportsDat.append(i).append(",\"Airport ").append(i).append(", Main\",\"City\",\"Country\",\"")
+                    .append(iata).append("\",\\N,").append(i % 90).append(".5,-").append(i % 180).append(".25,")
+                    .append(i).append(",1,\"E\"\n");
+        }
+        airportsDat.append("17577,\"Truncated\"\n");
+        Files.write(file, Collections.singletonList(airportsDat), StandardCharsets.UTF_8);
+
+        ImportResult result = new AirportImporter(InformationDataStore.getInstance()).importFile(file, 4);
+
+        assertEquals(26 * 26 * 26, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(Collections.singleton(26 * 26 * 26 + 1), result.getErrors().keySet());
+        assertEquals(26 * 26 * 26, InformationDataStore.getInstance().size());
+        AirportData last = InformationDataStore.getInstance().findAirportData("ZZZ");
+        assertEquals("Airport 17575, Main", last.getName());
+        assertEquals(-115.25, last.getLongitude(), 0.0);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
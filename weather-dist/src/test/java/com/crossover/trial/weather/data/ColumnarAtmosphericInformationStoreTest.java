@@ -0,0 +1,67 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ColumnarAtmosphericInformationStore}
+ */
+public class ColumnarAtmosphericInformationStoreTest {
+
+    private static final AirportData AIRPORT = new AirportData.Builder().withIata("BOS").withLatitude(42.364347)
+            .withLongitude(-71.005181).build();
+
+    private final ColumnarAtmosphericInformationStore store = new ColumnarAtmosphericInformationStore();
+
+    @Test
+    public void testMergeRoundTrip() {
+        DataPoint wind = new DataPoint.Builder().withFirst(10).withMedian(20).withLast(30).withMean(22.5)
+                .withCount(7).build();
+        DataPoint temperature = new DataPoint.Builder().withFirst(-5).withMedian(0).withLast(5).withMean(0.5)
+                .withCount(3).build();
+        store.reset(2000, AIRPORT);
+        assertTrue(store.get(2000).isEmpty());
+        assertEquals(AtmosphericInformationStore.EMPTY, store.lastUpdateTime(2000));
+
+        assertEquals(AtmosphericInformationStore.EMPTY,
+                store.merge(2000, new AtmosphericInformation.Builder().withWind(wind).build(), 100L));
+        assertEquals(100L, store.merge(2000,
+                new AtmosphericInformation.Builder().withTemperature(temperature).build(), 200L));
+
+        AtmosphericInformation atmosphericInformation = store.get(2000);
+        assertEquals(wind, atmosphericInformation.getDataPoint(DataPointType.WIND));
+        assertEquals(temperature, atmosphericInformation.getDataPoint(DataPointType.TEMPERATURE));
+        assertNull(atmosphericInformation.getDataPoint(DataPointType.HUMIDTY));
+        assertEquals(200L, atmosphericInformation.getLastUpdateTime());
+        assertEquals(200L, store.lastUpdateTime(2000));
+    }
+
+    @Test
+    public void testResetClearsSlot() {
+        store.reset(0, AIRPORT);
+        store.merge(0, new AtmosphericInformation.Builder()
+                .withPressure(new DataPoint.Builder().withMean(1000).withCount(1).build()).build(), 100L);
+        store.reset(0, AIRPORT);
+
+        assertTrue(store.get(0).isEmpty());
+    }
+
+    @Test
+    public void testClearKeepsSlotsReadable() {
+        store.reset(2000, AIRPORT);
+        store.merge(2000, new AtmosphericInformation.Builder()
+                .withPressure(new DataPoint.Builder().withMean(1000).withCount(1).build()).build(), 100L);
+        store.clear();
+
+        // a query still holding the slot reads it as empty
+        assertTrue(store.get(2000).isEmpty());
+        assertEquals(AtmosphericInformationStore.EMPTY, store.lastUpdateTime(2000));
+    }
+}
@@ -0,0 +1,86 @@
+package com.crossover.trial.weather.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link FrequencyDataStore}
+ */
+public class FrequencyDataStoreTest {
+
+    private final FrequencyDataStore frequencyDataStore = FrequencyDataStore.getInstance();
+
+    @Before
+    @After
+    public void clear() {
+        frequencyDataStore.clear();
+    }
+
+    @Test
+    public void testTopRequests() {
+        for (int i = 0; i < 5; i++) {
+            frequencyDataStore.updateRequestFrequency("BOS");
+        }
+        for (int i = 0; i < 3; i++) {
+            frequencyDataStore.updateRequestFrequency("jfk");
+        }
+        frequencyDataStore.updateRequestFrequency("LGA");
+        frequencyDataStore.updateRequestFrequency("invalid");
+
+        Map<String, Integer> top = frequencyDataStore.topRequests(2);
+        assertEquals(Arrays.asList("BOS", "JFK"), Arrays.asList(top.keySet().toArray()));
+        assertEquals(Arrays.asList(5, 3), Arrays.asList(top.values().toArray()));
+        assertEquals(3, frequencyDataStore.topRequests(10).size());
+        assertEquals(9, frequencyDataStore.totalNumberOfRequests());
+    }
+
+    @Test
+    public void testRadiusRanges() {
+        frequencyDataStore.updateRadiusFrequency(0.0);
+        frequencyDataStore.updateRadiusFrequency(0.5);
+        frequencyDataStore.updateRadiusFrequency(100.0);
+        frequencyDataStore.updateRadiusFrequency(101.0);
+        frequencyDataStore.updateRadiusFrequency(200.0);
+        frequencyDataStore.updateRadiusFrequency(-1.0);
+        frequencyDataStore.updateRadiusFrequency(Double.NaN);
+
+        assertEquals(2, frequencyDataStore.getRadiusFrequency(0.7));
+        assertEquals(2, frequencyDataStore.getRadiusFrequency(100.0));
+        assertEquals(1, frequencyDataStore.getRadiusFrequency(200.0));
+        assertEquals(0, frequencyDataStore.getRadiusFrequency(1000.0));
+        assertEquals(0, frequencyDataStore.getRadiusFrequency(-1.0));
+
+        Iterator<Map.Entry<Double, Integer>> ranges = frequencyDataStore.radiusLogHistogram().entrySet().iterator();
+        assertEquals(0.0, ranges.next().getKey(), 0);
+        Map.Entry<Double, Integer> range = ranges.next();
+        assertTrue(range.getKey() <= 100 && 101 < range.getKey() * (1 + FrequencyDataStore.RADIUS_RELATIVE_ERROR));
+        assertEquals(2, (int) range.getValue());
+        range = ranges.next();
+        assertTrue(range.getKey() <= 200 && 200 < range.getKey() * (1 + FrequencyDataStore.RADIUS_RELATIVE_ERROR));
+        assertTrue(!ranges.hasNext());
+    }
+
+    @Test
+    public void testRandomRadiiUseFixedRanges() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            frequencyDataStore.updateRadiusFrequency(Math.pow(10, random.nextDouble() * 12 - 3));
+        }
+        frequencyDataStore.updateRadiusFrequency(Double.POSITIVE_INFINITY);
+
+        Map<Double, Integer> histogram = frequencyDataStore.radiusLogHistogram();
+        assertTrue(histogram.size() < 250);
+        assertEquals(100001, histogram.values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(FrequencyDataStore.RADIUS_HISTOGRAM_SIZE, frequencyDataStore.radiusHistogram().length);
+        assertEquals(100001, Arrays.stream(frequencyDataStore.radiusHistogram()).sum());
+    }
+}
@@ -0,0 +1,78 @@
+package com.crossover.trial.weather.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link GorillaCodec}
+ */
+public class GorillaCodecTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(42);
+        int size = 500;
+        long[] times = new long[size];
+        double[] means = new double[size];
+        int[] firsts = new int[size];
+        int[] seconds = new int[size];
+        int[] thirds = new int[size];
+        int[] counts = new int[size];
+        long time = 1_500_000_000_000L;
+        for (int i = 0; i < size; i++) {
+            // regular, jittered, and far apart readings
+            time += i % 50 == 0 ? random.nextInt(1_000_000_000) : i % 3 == 0 ? 60_000 + random.nextInt(5000) : 60_000;
+            times[i] = time;
+            means[i] = i % 7 == 0 ? means[Math.max(i - 1, 0)] : random.nextGaussian() * 100;
+            firsts[i] = i % 11 == 0 ? Integer.MIN_VALUE : -random.nextInt(50);
+            seconds[i] = 20;
+            thirds[i] = random.nextInt();
+            counts[i] = i;
+        }
+        means[10] = Double.NaN;
+        means[11] = -0.0;
+        means[12] = Double.MAX_VALUE;
+
+        byte[] chunk = GorillaCodec.encode(times, means, firsts, seconds, thirds, counts, size);
+        List<String> decoded = new ArrayList<>();
+        GorillaCodec.decode(chunk, size, (t, mean, first, second, third, count) ->
+                decoded.add(t + " " + Double.doubleToRawLongBits(mean) + " " + first + " " + second + " " + third
+                        + " " + count));
+
+        assertEquals(size, decoded.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(times[i] + " " + Double.doubleToRawLongBits(means[i]) + " " + firsts[i] + " " + seconds[i]
+                    + " " + thirds[i] + " " + counts[i], decoded.get(i));
+        }
+    }
+
+    @Test
+    public void testRegularReadingsCompress() throws IOException {
+        int size = 60;
+        long[] times = new long[size];
+        double[] means = new double[size];
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = 1_500_000_000_000L + i * 60_000L;
+            means[i] = 21.5;
+            values[i] = 20;
+        }
+
+        byte[] chunk = GorillaCodec.encode(times, means, values, values, values, values, size);
+
+        // 6 fields of 8 bytes for the first reading, the first delta in full, then 6 bits per reading
+        assertTrue(chunk.length + " bytes", chunk.length <= 48 + 9 + size * 6 / 8);
+        List<Long> decodedTimes = new ArrayList<>();
+        GorillaCodec.decode(chunk, size, (t, mean, first, second, third, count) -> decodedTimes.add(t));
+        assertEquals(Arrays.stream(times).boxed().collect(Collectors.toList()), decodedTimes);
+    }
+}
@@ -0,0 +1,273 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.model.RadiusAggregate;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link InformationDataStore}
+ */
+public class InformationDataStoreTest {
+
+    private final InformationDataStore informationDataStore = InformationDataStore.getInstance();
+
+    private AirportData bos;
+
+    @Before
+    public void setUp() {
+        informationDataStore.clear();
+        bos = informationDataStore.addAirport(
+                new AirportData.Builder().withIata("BOS").withLatitude(42.364347).withLongitude(-71.005181).build());
+        informationDataStore.addAirport(
+                new AirportData.Builder().withIata("JFK").withLatitude(40.639751).withLongitude(-73.778925).build());
+    }
+
+    @After
+    public void tearDown() {
+        informationDataStore.clear();
+    }
+
+    @Test
+    public void testAtmosphericInformationJsonCache() {
+        byte[] json = informationDataStore.findAtmosphericInformationJson(bos);
+        assertSame(json, informationDataStore.findAtmosphericInformationJson(bos));
+
+        informationDataStore.updateDataPoint(bos, new AtmosphericInformation.Builder().withWind(dataPoint(22)).build());
+        byte[] updated = informationDataStore.findAtmosphericInformationJson(bos);
+        assertNotSame(json, updated);
+        assertArrayEquals(AtmosphericInformationJsonWriter.encode(informationDataStore.findAtmosphericInformation(bos)),
+                updated);
+        assertSame(updated, informationDataStore.findAtmosphericInformationJson(bos));
+
+        informationDataStore.deleteAirport("BOS");
+        assertNull(informationDataStore.findAtmosphericInformationJson(bos));
+    }
+
+    @Test
+    public void testUpdateDataPoints() {
+        AirportData jfk = informationDataStore.findAirportData("JFK");
+        Map<AirportData, AtmosphericInformation> updates = new LinkedHashMap<>();
+        updates.put(bos, new AtmosphericInformation.Builder().withWind(dataPoint(10)).build());
+        updates.put(jfk, new AtmosphericInformation.Builder().withHumidity(dataPoint(20)).build());
+        informationDataStore.updateDataPoints(updates);
+
+        assertEquals(dataPoint(10), informationDataStore.findAtmosphericInformation(bos).getWind());
+        assertEquals(dataPoint(20), informationDataStore.findAtmosphericInformation(jfk).getHumidity());
+    }
+
+    @Test
+    public void testFindAirportDataByIcao() {
+        AirportData ewr = informationDataStore.addAirport(new AirportData.Builder().withIata("EWR").withIcao("KEWR")
+                .withLatitude(40.6925).withLongitude(-74.168667).build());
+        assertSame(ewr, informationDataStore.findAirportDataByIcao("KEWR"));
+        assertNull(informationDataStore.findAirportDataByIcao("KJFK"));
+        assertNull(informationDataStore.findAirportDataByIcao(null));
+
+        // replacing the airport moves its code
+        AirportData renamed = informationDataStore.addAirport(new AirportData.Builder().withIata("EWR")
+                .withIcao("KNEW").withLatitude(40.6925).withLongitude(-74.168667).build());
+        assertNull(informationDataStore.findAirportDataByIcao("KEWR"));
+        assertSame(renamed, informationDataStore.findAirportDataByIcao("KNEW"));
+
+        informationDataStore.deleteAirport("EWR");
+        assertNull(informationDataStore.findAirportDataByIcao("KNEW"));
+    }
+
+    @Test
+    public void testSharedIcaoCode() {
+        AirportData first = informationDataStore.addAirport(new AirportData.Builder().withIata("EWR")
+                .withIcao("KEWR").withLatitude(40.6925).withLongitude(-74.168667).build());
+        AirportData second = informationDataStore.addAirport(new AirportData.Builder().withIata("LGA")
+                .withIcao("KEWR").withLatitude(40.777245).withLongitude(-73.872608).build());
+
+        // the first airport keeps the code, and gives it to the other one when deleted
+        assertSame(first, informationDataStore.findAirportDataByIcao("KEWR"));
+        informationDataStore.deleteAirport("LGA");
+        assertSame(first, informationDataStore.findAirportDataByIcao("KEWR"));
+        informationDataStore.addAirport(second);
+        informationDataStore.deleteAirport("EWR");
+        assertSame(second, informationDataStore.findAirportDataByIcao("KEWR"));
+        informationDataStore.deleteAirport("LGA");
+        assertNull(informationDataStore.findAirportDataByIcao("KEWR"));
+    }
+
+    @Test
+    public void testQueriesRaceDeletes() throws Exception {
+        AirportData ewr = new AirportData.Builder().withIata("EWR").withLatitude(40.6925).withLongitude(-74.168667)
+                .build();
+        AirportData lga = new AirportData.Builder().withIata("LGA").withLatitude(40.777245)
+                .withLongitude(-73.872608).build();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                // the slots of the deleted airports are reused by the next ones
+                informationDataStore.addAirport(ewr);
+                informationDataStore.updateDataPoint(ewr,
+                        new AtmosphericInformation.Builder().withWind(dataPoint(10)).build());
+                informationDataStore.deleteAirport("EWR");
+                informationDataStore.addAirport(lga);
+                informationDataStore.updateDataPoint(lga,
+                        new AtmosphericInformation.Builder().withWind(dataPoint(30)).build());
+                informationDataStore.deleteAirport("LGA");
+            }
+        });
+        writer.start();
+        try {
+            long end = System.currentTimeMillis() + 1000;
+            while (System.currentTimeMillis() < end) {
+                DataPoint wind = informationDataStore.findAtmosphericInformation(ewr).getWind();
+                assertTrue(wind == null || wind.getMean() == 10);
+                informationDataStore.findAtmosphericInformationJson(ewr);
+                informationDataStore.aggregateWithin(bos, 1000, DataPointType.WIND);
+                informationDataStore.listAtmosphericInformation();
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testQueriesRaceClear() throws Exception {
+        AirportData ewr = new AirportData.Builder().withIata("EWR").withLatitude(40.6925).withLongitude(-74.168667)
+                .build();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                informationDataStore.clear();
+                informationDataStore.addAirport(ewr);
+                informationDataStore.updateDataPoint(ewr,
+                        new AtmosphericInformation.Builder().withWind(dataPoint(10)).build());
+            }
+        });
+        writer.start();
+        try {
+            long end = System.currentTimeMillis() + 1000;
+            while (System.currentTimeMillis() < end) {
+                DataPoint wind = informationDataStore.findAtmosphericInformation(ewr).getWind();
+                assertTrue(wind == null || wind.getMean() == 10);
+                informationDataStore.findAtmosphericInformationJson(ewr);
+                informationDataStore.updateDataPoint(ewr,
+                        new AtmosphericInformation.Builder().withWind(dataPoint(10)).build());
+                informationDataStore.aggregateWithin(ewr, 1000, DataPointType.WIND);
+                informationDataStore.listAtmosphericInformation();
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testAtmosphericInformationJsonWithin() throws IOException {
+        informationDataStore.updateDataPoint(bos, new AtmosphericInformation.Builder().withWind(dataPoint(22)).build());
+
+        List<byte[]> fragments = new ArrayList<>();
+        informationDataStore.forEachAtmosphericInformationJsonWithin(
+                informationDataStore.findAirportData("JFK"), 500, fragments::add);
+
+        // the airports without readings are left out
+        assertEquals(1, fragments.size());
+        assertSame(informationDataStore.findAtmosphericInformationJson(bos), fragments.get(0));
+    }
+
+    @Test
+    public void testRadiusQueryCache() {
+        informationDataStore.updateDataPoint(bos, new AtmosphericInformation.Builder().withWind(dataPoint(22)).build());
+        AirportData jfk = informationDataStore.findAirportData("JFK");
+        long misses = informationDataStore.getRadiusQueryCacheMisses();
+        long hits = informationDataStore.getRadiusQueryCacheHits();
+
+        byte[] json = informationDataStore.findAtmosphericInformationJsonWithin(jfk, 500);
+        assertEquals(misses + 1, informationDataStore.getRadiusQueryCacheMisses());
+        assertEquals("[" + new String(informationDataStore.findAtmosphericInformationJson(bos)) + "]",
+                new String(json));
+        assertSame(json, informationDataStore.findAtmosphericInformationJsonWithin(jfk, 500));
+        assertEquals(hits + 1, informationDataStore.getRadiusQueryCacheHits());
+
+        // a new reading is joined again from the same airports
+        informationDataStore.updateDataPoint(jfk, new AtmosphericInformation.Builder().withWind(dataPoint(5)).build());
+        byte[] updated = informationDataStore.findAtmosphericInformationJsonWithin(jfk, 500);
+        assertEquals(misses + 1, informationDataStore.getRadiusQueryCacheMisses());
+        assertTrue(new String(updated).contains("\"mean\":5.0"));
+
+        // a new airport needs a scan
+        informationDataStore.addAirport(new AirportData.Builder().withIata("LGA")
+                .withLatitude(40.777245).withLongitude(-73.872608).build());
+        informationDataStore.findAtmosphericInformationJsonWithin(jfk, 500);
+        assertEquals(misses + 2, informationDataStore.getRadiusQueryCacheMisses());
+    }
+
+    @Test
+    public void testNeighborLists() {
+        FrequencyDataStore frequencyDataStore = FrequencyDataStore.getInstance();
+        frequencyDataStore.clear();
+        frequencyDataStore.updateRadiusFrequency(400.0);
+        informationDataStore.buildNeighborLists();
+        assertEquals(4, informationDataStore.getNeighborListsSize());
+
+        // the lists are sorted by distance
+        assertEquals(Arrays.asList("BOS", "JFK"), iataCodes(informationDataStore.findAirportsWithin(bos, 400)));
+
+        // a new airport is found by the spatial index until the lists are built again
+        informationDataStore.addAirport(new AirportData.Builder().withIata("LGA")
+                .withLatitude(40.777245).withLongitude(-73.872608).build());
+        assertEquals(3, informationDataStore.findAirportsWithin(bos, 400).size());
+        informationDataStore.buildNeighborLists();
+        assertEquals(9, informationDataStore.getNeighborListsSize());
+        assertEquals(Arrays.asList("BOS", "LGA", "JFK"), iataCodes(informationDataStore.findAirportsWithin(bos, 400)));
+        frequencyDataStore.clear();
+    }
+
+    @Test
+    public void testAggregateTree() {
+        informationDataStore.updateDataPoint(bos, new AtmosphericInformation.Builder().withWind(dataPoint(20)).build());
+        informationDataStore.buildAggregateTree();
+        // filled with the readings at build time, then kept up to date
+        informationDataStore.updateDataPoint(informationDataStore.findAirportData("JFK"),
+                new AtmosphericInformation.Builder().withWind(dataPoint(30)).build());
+
+        RadiusAggregate wind = informationDataStore.aggregateWithin(bos, 400, DataPointType.WIND);
+        assertEquals(2, wind.getCount());
+        assertEquals(25, wind.getMean(), 1e-9);
+        assertEquals(1, informationDataStore.aggregateWithin(bos, 100, DataPointType.WIND).getCount());
+
+        // a new airport is aggregated by a radius query until the tree is built again
+        AirportData lga = informationDataStore.addAirport(new AirportData.Builder().withIata("LGA")
+                .withLatitude(40.777245).withLongitude(-73.872608).build());
+        informationDataStore.updateDataPoint(lga, new AtmosphericInformation.Builder().withWind(dataPoint(40)).build());
+        assertEquals(3, informationDataStore.aggregateWithin(bos, 400, DataPointType.WIND).getCount());
+        informationDataStore.buildAggregateTree();
+        assertEquals(40, informationDataStore.aggregateWithin(bos, 400, DataPointType.WIND).getMax(), 0);
+    }
+
+    private static List<String> iataCodes(List<AirportData> airports) {
+        return airports.stream().map(AirportData::getIata).collect(Collectors.toList());
+    }
+
+    private static DataPoint dataPoint(double mean) {
+        return new DataPoint.Builder().withMean(mean).withFirst(1).withMedian(2).withLast(3).withCount(4).build();
+    }
+}
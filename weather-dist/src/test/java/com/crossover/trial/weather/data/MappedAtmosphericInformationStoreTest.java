@@ -0,0 +1,86 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DST;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link MappedAtmosphericInformationStore}
+ */
+public class MappedAtmosphericInformationStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReopen() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("weather.dat");
+        AirportData bos = new AirportData.Builder().withIata("BOS").withIcao("KBOS")
+                .withName("General Edward Lawrence Logan Intl")
+                .withCity("Boston").withCountry("United States").withLatitude(42.364347).withLongitude(-71.005181)
+                .withAltitude(19).withTimezone(-5).withDst(DST.USCanada).build();
+        AirportData jfk = new AirportData.Builder().withIata("JFK").withLatitude(40.639751).withLongitude(-73.778925)
+                .build();
+        DataPoint wind = new DataPoint.Builder().withFirst(10).withMedian(20).withLast(30).withMean(22.5)
+                .withCount(7).build();
+
+        MappedAtmosphericInformationStore store = new MappedAtmosphericInformationStore(file);
+        store.reset(0, jfk);
+        store.reset(1500, bos);
+        store.merge(1500, new AtmosphericInformation.Builder().withWind(wind).build(), 100L);
+        store.remove(0);
+        store.close();
+
+        store = new MappedAtmosphericInformationStore(file);
+        Map<Integer, AirportData> airports = new HashMap<>();
+        store.forEachAirport((airportData, slot) -> airports.put(slot, airportData));
+
+        assertEquals(1, airports.size());
+        AirportData restored = airports.get(1500);
+        assertEquals("BOS", restored.getIata());
+        assertEquals("KBOS", restored.getIcao());
+        assertEquals("General Edward Lawrence Logan Intl", restored.getName());
+        assertEquals(DST.USCanada, restored.getDst());
+        assertEquals(-71.005181, restored.getLongitude(), 0.0);
+        assertEquals(wind, store.get(1500).getDataPoint(DataPointType.WIND));
+        assertNull(store.get(1500).getDataPoint(DataPointType.TEMPERATURE));
+        assertEquals(100L, store.lastUpdateTime(1500));
+        store.close();
+    }
+
+    @Test
+    public void testClear() {
+        MappedAtmosphericInformationStore store = new MappedAtmosphericInformationStore(
+                folder.getRoot().toPath().resolve("weather.dat"));
+        store.reset(3, new AirportData.Builder().withIata("BOS").withLatitude(42.364347).withLongitude(-71.005181)
+                .build());
+        store.clear();
+
+        store.forEachAirport((airportData, slot) -> {
+            throw new AssertionError("unexpected airport " + airportData);
+        });
+        store.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = folder.newFile("other.dat").toPath();
+        Files.write(file, "not a weather store".getBytes());
+
+        new MappedAtmosphericInformationStore(file);
+    }
+}
@@ -0,0 +1,102 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link NeighborLists}
+ */
+public class NeighborListsTest {
+
+    private final List<AirportData> airports = new ArrayList<>();
+
+    private final List<Integer> slots = new ArrayList<>();
+
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+
+    @Before
+    public void setUp() {
+        SlotAllocator slotAllocator = new SlotAllocator();
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            AirportData airportData = new AirportData.Builder().withIata("A" + i)
+                    .withLatitude(random.nextDouble() * 40 + 20)
+                    .withLongitude(random.nextDouble() * 60 - 100).build();
+            int slot = slotAllocator.allocate();
+            spatialIndex.add(slot, airportData);
+            airports.add(airportData);
+            slots.add(slot);
+        }
+    }
+
+    @Test
+    public void testWithinMatchesSpatialIndex() throws IOException {
+        NeighborLists lists = NeighborLists.build(spatialIndex, 1, 800, Long.MAX_VALUE);
+        assertEquals(800, lists.radiusKm, 0);
+        Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            int index = random.nextInt(airports.size());
+            AirportData reference = airports.get(index);
+            double radius = random.nextDouble() * 800;
+
+            List<AirportData> result = new ArrayList<>();
+            assertTrue(lists.forEachWithin(slots.get(index), reference, radius,
+                    (batch, count) -> result.addAll(Arrays.asList(batch).subList(0, count))));
+            assertEquals(new HashSet<>(spatialIndex.within(reference.getLatitude(), reference.getLongitude(), radius)),
+                    new HashSet<>(result));
+            for (int j = 1; j < result.size(); j++) {
+                assertTrue(distance(reference, result.get(j - 1)) <= distance(reference, result.get(j)) + 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testBuildWithinMaxSize() {
+        long size = NeighborLists.build(spatialIndex, 1, 800, Long.MAX_VALUE).size();
+
+        NeighborLists lists = NeighborLists.build(spatialIndex, 1, 800, size / 2);
+        assertEquals(800, lists.targetRadiusKm, 0);
+        assertTrue(lists.radiusKm < 800);
+        assertTrue(lists.size() <= size / 2);
+        assertFalse(lists.covers(800));
+    }
+
+    @Test
+    public void testUnknownReference() throws IOException {
+        NeighborLists lists = NeighborLists.build(spatialIndex, 1, 100, Long.MAX_VALUE);
+        AirportData other = new AirportData.Builder().withIata("BOS").withLatitude(42.364347)
+                .withLongitude(-71.005181).build();
+
+        assertFalse(lists.forEachWithin(slots.get(0), other, 10, (batch, count) -> { }));
+    }
+
+    @Test
+    public void testPopularRadius() {
+        int[] histogram = new int[FrequencyDataStore.RADIUS_HISTOGRAM_SIZE];
+        assertEquals(0, NeighborLists.popularRadius(histogram), 0);
+
+        histogram[0] = 10;
+        histogram[4] = 85;
+        histogram[30] = 5;
+        assertEquals(50, NeighborLists.popularRadius(histogram), 0);
+
+        histogram[FrequencyDataStore.RADIUS_HISTOGRAM_SIZE - 1] = 1000;
+        assertEquals(1000, NeighborLists.popularRadius(histogram), 0);
+    }
+
+    private static double distance(AirportData from, AirportData to) {
+        return SpatialIndex.distance(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+    }
+}
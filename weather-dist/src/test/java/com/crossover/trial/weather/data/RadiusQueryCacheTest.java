@@ -0,0 +1,54 @@
+package com.crossover.trial.weather.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RadiusQueryCache}
+ */
+public class RadiusQueryCacheTest {
+
+    private final RadiusQueryCache<String> cache = new RadiusQueryCache<>(16);
+
+    @Test
+    public void testRecentlyReadResultsAreKept() {
+        for (int i = 0; i < 16; i++) {
+            cache.put("BOS", i, "result " + i);
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals("result " + i, cache.get("BOS", i));
+        }
+        cache.put("JFK", 0, "jfk");
+
+        // down to 14 results, the oldest unread ones evicted
+        assertEquals(14, cache.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("result " + i, cache.get("BOS", i));
+        }
+        assertNull(cache.get("BOS", 4));
+        assertNull(cache.get("BOS", 6));
+        assertEquals("result 7", cache.get("BOS", 7));
+        assertEquals("jfk", cache.get("JFK", 0));
+    }
+
+    @Test
+    public void testSizeStaysBounded() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("BOS", i, "result " + i);
+            assertTrue(cache.size() <= 16);
+        }
+        assertEquals("result 999", cache.get("BOS", 999));
+    }
+
+    @Test
+    public void testDisabled() {
+        RadiusQueryCache<String> disabled = new RadiusQueryCache<>(0);
+        disabled.put("BOS", 0, "result");
+
+        assertNull(disabled.get("BOS", 0));
+        assertEquals(0, disabled.size());
+    }
+}
@@ -0,0 +1,158 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ReadingArchive}
+ */
+public class ReadingArchiveTest {
+
+    private static final long HOUR = ReadingArchive.CHUNK_MILLIS;
+
+    private static final long START = 1_500_000_000_000L / HOUR * HOUR;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRangeAcrossChunks() throws IOException {
+        ReadingArchive archive = new ReadingArchive(folder.getRoot().toPath(), Long.MAX_VALUE);
+        // three hours of a reading every 10 minutes
+        for (int i = 0; i < 18; i++) {
+            archive.add("BOS", wind(i), START + i * 600_000L);
+        }
+        archive.sealEnded(START + 3 * HOUR);
+
+        assertEquals(3, archive.chunkCount());
+        assertEquals(18, read(archive, "BOS", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        JsonArray range = read(archive, "BOS", START + HOUR - 1, START + 2 * HOUR);
+        assertEquals(7, range.size());
+        assertEquals(6, range.get(0).getAsJsonObject().get("mean").getAsInt());
+        assertEquals(START + 2 * HOUR, range.get(6).getAsJsonObject().get("time").getAsLong());
+        assertEquals(0, read(archive, "JFK", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        archive.close();
+    }
+
+    @Test
+    public void testLimitAtTheLatestTime() throws IOException {
+        ReadingArchive archive = new ReadingArchive(folder.getRoot().toPath(), Long.MAX_VALUE);
+        archive.add("BOS", wind(1), START);
+        archive.add("BOS", wind(2), START + 1000);
+        archive.add("BOS", wind(3), START + 1000);
+        archive.add("BOS", wind(4), START + 1000);
+
+        JsonArray readings = read(archive, "BOS", START, START + 1000, 1);
+        assertEquals(2, readings.size());
+        assertEquals(2, readings.get(1).getAsJsonObject().get("mean").getAsInt());
+        assertEquals(1, read(archive, "BOS", START, START + 1000, 0).size());
+        archive.close();
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        ReadingArchive archive = new ReadingArchive(directory, 200);
+        for (int i = 0; i < 6; i++) {
+            archive.add("BOS", wind(i), START + i * HOUR);
+            archive.add("JFK", wind(100 + i), START + i * HOUR);
+        }
+        archive.close();
+
+        archive = new ReadingArchive(directory, 200);
+        assertEquals(12, archive.chunkCount());
+        JsonArray readings = read(archive, "JFK", START + 2 * HOUR, START + 3 * HOUR);
+        assertEquals(2, readings.size());
+        assertEquals(102, readings.get(0).getAsJsonObject().get("mean").getAsInt());
+        // replayed readings that were already archived are dropped
+        archive.add("BOS", wind(5), START + 5 * HOUR);
+        archive.add("BOS", wind(6), START + 6 * HOUR);
+        assertEquals(7, read(archive, "BOS", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        archive.close();
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        ReadingArchive archive = new ReadingArchive(directory, Long.MAX_VALUE);
+        for (int i = 0; i < 3; i++) {
+            archive.add("BOS", wind(i), START + i * HOUR);
+        }
+        archive.close();
+        // the index lost its last entry and the segment got a torn chunk
+        Path index = directory.resolve("archive-0000000001.idx");
+        Files.write(index, Arrays.copyOf(Files.readAllBytes(index), (int) Files.size(index) - 10));
+        Files.write(directory.resolve("archive-0000000001.seg"), new byte[]{0, 0, 0, 100, 1, 2},
+                StandardOpenOption.APPEND);
+
+        archive = new ReadingArchive(directory, Long.MAX_VALUE);
+        assertEquals(3, archive.chunkCount());
+        assertEquals(3, read(archive, "BOS", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        archive.add("BOS", wind(3), START + 3 * HOUR);
+        archive.close();
+
+        archive = new ReadingArchive(directory, Long.MAX_VALUE);
+        assertEquals(4, read(archive, "BOS", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        archive.close();
+    }
+
+    @Test
+    public void testFlushKeepsTheCurrentHour() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        ReadingArchive archive = new ReadingArchive(directory, Long.MAX_VALUE);
+        archive.add("BOS", wind(1), START);
+        archive.add("BOS", wind(2), START + 1000);
+        archive.flush();
+        assertEquals(1, archive.chunkCount());
+        // later readings of the hour go to another chunk, earlier ones were archived already
+        archive.add("BOS", wind(3), START + 1000);
+        archive.add("BOS", wind(4), START + 2000);
+        assertEquals(3, read(archive, "BOS", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        archive.flush();
+        assertEquals(2, archive.chunkCount());
+
+        // as after a crash, nothing else is sealed on close
+        archive = new ReadingArchive(directory, Long.MAX_VALUE);
+        JsonArray readings = read(archive, "BOS", Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(3, readings.size());
+        assertEquals(4, readings.get(2).getAsJsonObject().get("mean").getAsInt());
+        archive.close();
+    }
+
+    private static JsonArray read(ReadingArchive archive, String iata, long from, long to) throws IOException {
+        return read(archive, iata, from, to, Integer.MAX_VALUE);
+    }
+
+    private static JsonArray read(ReadingArchive archive, String iata, long from, long to, int limit)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+        writer.beginArray();
+        archive.write(iata, DataPointType.WIND, from, to, limit, writer);
+        writer.endArray();
+        writer.flush();
+        return new JsonParser().parse(new String(output.toByteArray(), StandardCharsets.UTF_8)).getAsJsonArray();
+    }
+
+    private static AtmosphericInformation wind(int mean) {
+        return new AtmosphericInformation.Builder().withWind(new DataPoint.Builder()
+                .withMean(mean).withFirst(0).withMedian(mean).withLast(mean * 2).withCount(10).build()).build();
+    }
+}
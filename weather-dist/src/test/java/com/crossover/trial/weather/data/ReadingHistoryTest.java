@@ -0,0 +1,91 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.utils.AtmosphericInformationJsonWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ReadingHistory}
+ */
+public class ReadingHistoryTest {
+
+    private final ReadingHistory history = new ReadingHistory(4);
+
+    @Test
+    public void testRange() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            history.add(i * 10, reading(i));
+        }
+
+        assertEquals("[" + json(10, 1) + "," + json(20, 2) + "," + json(30, 3) + "]",
+                write(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals("[" + json(20, 2) + "]", write(20, 20));
+        assertEquals("[" + json(20, 2) + "," + json(30, 3) + "]", write(11, 35));
+        assertEquals("[]", write(31, 40));
+        assertEquals("[]", write(0, 9));
+    }
+
+    @Test
+    public void testOldestReadingsAreOverwritten() throws IOException {
+        for (int i = 1; i <= 6; i++) {
+            history.add(i * 10, reading(i));
+        }
+
+        assertEquals(4, history.size());
+        assertEquals("[" + json(30, 3) + "," + json(40, 4) + "," + json(50, 5) + "," + json(60, 6) + "]",
+                write(0, 100));
+        assertEquals("[" + json(50, 5) + "," + json(60, 6) + "]", write(45, 100));
+    }
+
+    @Test
+    public void testReadingsStayInTimeOrder() throws IOException {
+        history.add(20, reading(1));
+        history.add(10, reading(2));
+
+        assertEquals("[" + json(20, 1) + "," + json(20, 2) + "]", write(15, 25));
+    }
+
+    @Test
+    public void testRangeCountsTheDroppedReadingsAtTheOldestTime() {
+        history.add(10, reading(1));
+        history.add(20, reading(2));
+        history.add(20, reading(3));
+        history.add(20, reading(4));
+        history.add(20, reading(5));
+        history.add(20, reading(6));
+
+        // 10 and the first 20 were overwritten
+        ReadingHistory.Range range = history.range(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(20, range.getOldestTime());
+        assertEquals(1, range.getDroppedAtOldestTime());
+        history.add(30, reading(7));
+        assertEquals(2, history.range(0, 0).getDroppedAtOldestTime());
+        assertEquals(Long.MAX_VALUE, new ReadingHistory(4).range(0, 100).getOldestTime());
+    }
+
+    private String write(long from, long to) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+        writer.beginArray();
+        history.write(from, to, writer);
+        writer.endArray();
+        writer.flush();
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static DataPoint reading(int value) {
+        return new DataPoint.Builder()
+                .withMean(value).withFirst(value).withMedian(value).withLast(value).withCount(value).build();
+    }
+
+    private static String json(long time, int value) {
+        return "{\"time\":" + time + ",\"mean\":" + value + ".0,\"first\":" + value + ",\"second\":" + value
+                + ",\"third\":" + value + ",\"count\":" + value + "}";
+    }
+}
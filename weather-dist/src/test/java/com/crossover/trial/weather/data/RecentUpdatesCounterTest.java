@@ -0,0 +1,51 @@
+package com.crossover.trial.weather.data;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link RecentUpdatesCounter}
+ */
+public class RecentUpdatesCounterTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final long NOW = 1_500_000_000_000L;
+
+    private final RecentUpdatesCounter counter = new RecentUpdatesCounter(DAY);
+
+    @Test
+    public void testUpdatesExpireAfterWindow() {
+        counter.add(NOW - 2 * HOUR);
+        counter.add(NOW - HOUR);
+
+        assertEquals(2, counter.count(NOW));
+        assertEquals(1, counter.count(NOW + DAY - HOUR - TimeUnit.MINUTES.toMillis(30)));
+        assertEquals(0, counter.count(NOW + DAY));
+    }
+
+    @Test
+    public void testUpdateMovesAirportToNewerBucket() {
+        counter.add(NOW - 23 * HOUR);
+        counter.remove(NOW - 23 * HOUR);
+        counter.add(NOW);
+
+        assertEquals(1, counter.count(NOW));
+        assertEquals(1, counter.count(NOW + 2 * HOUR));
+    }
+
+    @Test
+    public void testExpiredBucketIsReused() {
+        counter.add(NOW - DAY - HOUR);
+        counter.add(NOW - HOUR);
+        // removing an update that already left the window has no effect
+        counter.remove(NOW - DAY - HOUR);
+
+        assertEquals(1, counter.count(NOW));
+    }
+}
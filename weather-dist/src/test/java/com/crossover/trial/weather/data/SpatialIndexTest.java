@@ -0,0 +1,137 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SpatialIndex}
+ */
+public class SpatialIndexTest {
+
+    private final List<AirportData> grid = new ArrayList<>();
+
+    private final SlotAllocator slotAllocator = new SlotAllocator();
+
+    private SpatialIndex spatialIndex;
+
+    @Before
+    public void setUp() {
+        spatialIndex = new SpatialIndex();
+        for (int i = 0; i < 1000; i++) {
+            grid.add(airport("A" + i, (i % 36) * 5 - 89.5, (i / 36) * 13 - 179.5));
+        }
+        grid.forEach(this::add);
+    }
+
+    @Test
+    public void testDistance() {
+        assertEquals(301.0, SpatialIndex.distance(42.364347, -71.005181, 40.639751, -73.778925), 1.0);
+        assertEquals(0.0, SpatialIndex.distance(40.639751, -73.778925, 40.639751, -73.778925), 0.0);
+    }
+
+    @Test
+    public void testWithin() {
+        AirportData bos = airport("BOS", 42.364347, -71.005181);
+        AirportData jfk = airport("JFK", 40.639751, -73.778925);
+        AirportData lhr = airport("LHR", 51.4775, -0.461389);
+        spatialIndex.clear();
+        slotAllocator.clear();
+        add(bos);
+        add(jfk);
+        add(lhr);
+
+        assertEquals(new HashSet<>(Arrays.asList(bos, jfk)),
+                new HashSet<>(spatialIndex.within(jfk.getLatitude(), jfk.getLongitude(), 302)));
+        assertEquals(new HashSet<>(Collections.singletonList(jfk)),
+                new HashSet<>(spatialIndex.within(jfk.getLatitude(), jfk.getLongitude(), 300)));
+    }
+
+    @Test
+    public void testWithinAcrossAntimeridian() {
+        AirportData east = airport("EEE", 10, 179.9);
+        AirportData west = airport("WWW", 10, -179.9);
+        add(east);
+        add(west);
+
+        assertTrue(spatialIndex.within(10, 179.9, 50).contains(west));
+        assertTrue(spatialIndex.within(10, -179.9, 50).contains(east));
+    }
+
+    @Test
+    public void testWithinAroundPole() {
+        AirportData otherSide = airport("OOO", 89.9, 180);
+        add(otherSide);
+
+        assertTrue(spatialIndex.within(89.9, 0, 30).contains(otherSide));
+    }
+
+    @Test
+    public void testWithinMatchesExactDistance() {
+        SpatialIndex withoutPrefilter = new SpatialIndex(false);
+        SlotAllocator slots = new SlotAllocator();
+        grid.forEach(airportData -> withoutPrefilter.add(slots.allocate(), airportData));
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            double radius = random.nextDouble() * 5000;
+
+            List<AirportData> expected = new ArrayList<>();
+            for (AirportData airportData : grid) {
+                if (SpatialIndex.distance(latitude, longitude, airportData.getLatitude(),
+                        airportData.getLongitude()) <= radius) {
+                    expected.add(airportData);
+                }
+            }
+            assertEquals(new HashSet<>(expected), new HashSet<>(spatialIndex.within(latitude, longitude, radius)));
+            assertEquals(new HashSet<>(expected),
+                    new HashSet<>(withoutPrefilter.within(latitude, longitude, radius)));
+            assertEquals(new HashSet<>(expected), new HashSet<>(batchesWithin(latitude, longitude, radius)));
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        AirportData bos = airport("BOS", 42.364347, -71.005181);
+        int slot = add(bos);
+        spatialIndex.remove(slot);
+
+        assertFalse(spatialIndex.within(bos.getLatitude(), bos.getLongitude(), 10).contains(bos));
+        assertEquals(1000, spatialIndex.within(0, 0, 30000).size());
+    }
+
+    private List<AirportData> batchesWithin(double latitude, double longitude, double radius) {
+        List<AirportData> result = new ArrayList<>();
+        try {
+            spatialIndex.forEachBatchWithin(latitude, longitude, radius,
+                    (airports, count) -> result.addAll(Arrays.asList(airports).subList(0, count)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private int add(AirportData airportData) {
+        int slot = slotAllocator.allocate();
+        spatialIndex.add(slot, airportData);
+        return slot;
+    }
+
+    private static AirportData airport(String iata, double latitude, double longitude) {
+        return new AirportData.Builder().withIata(iata).withLatitude(latitude).withLongitude(longitude).build();
+    }
+}
@@ -0,0 +1,156 @@
+package com.crossover.trial.weather.data;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link WriteAheadLog}
+ */
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final AirportData BOS = new AirportData.Builder().withIata("BOS").withIcao("KBOS")
+            .withName("General Edward Lawrence Logan Intl").withLatitude(42.364347).withLongitude(-71.005181).build();
+
+    private static final AirportData JFK = new AirportData.Builder().withIata("JFK").withLatitude(40.639751)
+            .withLongitude(-73.778925).build();
+
+    @Test
+    public void testReplay() {
+        WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.ALWAYS, Long.MAX_VALUE);
+        log.start(snapshot -> { });
+        log.awaitDurable(log.logAddAirport(BOS));
+        log.logAddAirport(JFK);
+        log.logUpdateDataPoint("BOS", wind(10), 100L);
+        log.logDeleteAirport("JFK");
+        log.awaitDurable(log.logClear());
+        log.close();
+
+        Recorder recorder = new Recorder();
+        assertEquals(5, open(WriteAheadLog.FsyncPolicy.ALWAYS, Long.MAX_VALUE).replay(recorder));
+        assertEquals(5, recorder.mutations.size());
+        assertEquals("add " + BOS, recorder.mutations.get(0));
+        assertEquals("update BOS " + wind(10).getDataPoint(DataPointType.WIND) + " at 100", recorder.mutations.get(2));
+        assertEquals("delete JFK", recorder.mutations.get(3));
+        assertEquals("clear", recorder.mutations.get(4));
+    }
+
+    @Test
+    public void testReplayStopsAtTornRecord() throws IOException {
+        WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.NEVER, Long.MAX_VALUE);
+        log.start(snapshot -> { });
+        log.logAddAirport(BOS);
+        log.logAddAirport(JFK);
+        log.close();
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3), StandardOpenOption.TRUNCATE_EXISTING);
+
+        Recorder recorder = new Recorder();
+        assertEquals(1, open(WriteAheadLog.FsyncPolicy.NEVER, Long.MAX_VALUE).replay(recorder));
+        assertEquals("add " + BOS, recorder.mutations.get(0));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        Map<String, Long> state = new LinkedHashMap<>();
+        WriteAheadLog log = open(WriteAheadLog.FsyncPolicy.INTERVAL, 1024);
+        log.start(snapshot -> {
+            snapshot.addAirport(BOS);
+            long last;
+            synchronized (state) {
+                last = state.get("BOS");
+            }
+            snapshot.restoreDataPoint("BOS", wind(last), last);
+        });
+        log.logAddAirport(BOS);
+        for (long i = 1; i <= 1000; i++) {
+            synchronized (state) {
+                state.put("BOS", i);
+            }
+            log.awaitDurable(log.logUpdateDataPoint("BOS", wind(i), i));
+        }
+        log.close();
+
+        Recorder recorder = new Recorder();
+        long records = open(WriteAheadLog.FsyncPolicy.INTERVAL, 1024).replay(recorder);
+        assertTrue("compacted to " + records + " records", records < 1000);
+        // the latest update, from the segment or restored by the snapshot taken after it
+        String last = recorder.mutations.get(recorder.mutations.size() - 1);
+        assertTrue(last, last.matches("(update|restore) BOS .* at 1000")
+                && last.endsWith(" BOS " + wind(1000).getDataPoint(DataPointType.WIND) + " at 1000"));
+    }
+
+    private WriteAheadLog open(WriteAheadLog.FsyncPolicy fsyncPolicy, long compactionThreshold) {
+        return new WriteAheadLog(folder.getRoot().toPath(), fsyncPolicy, 10, compactionThreshold);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static AtmosphericInformation wind(long mean) {
+        return new AtmosphericInformation.Builder()
+                .withWind(new DataPoint.Builder().withMean(mean).withFirst(1).withMedian(2).withLast(3).withCount(4)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Records the replayed mutations as strings.
+     */
+    private static class Recorder implements WriteAheadLog.Mutations {
+        final List<String> mutations = new ArrayList<>();
+
+        @Override
+        public void addAirport(AirportData airportData) {
+            mutations.add("add " + airportData);
+        }
+
+        @Override
+        public void deleteAirport(String iataCode) {
+            mutations.add("delete " + iataCode);
+        }
+
+        @Override
+        public void updateDataPoint(String iataCode, AtmosphericInformation newInfo, long updateTime) {
+            mutations.add("update " + iataCode + " " + newInfo.getDataPoint(DataPointType.WIND) + " at " + updateTime);
+        }
+
+        @Override
+        public void restoreDataPoint(String iataCode, AtmosphericInformation information, long updateTime) {
+            mutations.add("restore " + iataCode + " " + information.getDataPoint(DataPointType.WIND) + " at "
+                    + updateTime);
+        }
+
+        @Override
+        public void clear() {
+            mutations.add("clear");
+        }
+    }
+}
@@ -2,13 +2,17 @@ package com.crossover.trial.weather.endpoint;
 
 import com.crossover.trial.weather.TestUtils;
 import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.DST;
 import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.ImportResult;
 import com.crossover.trial.weather.validation.generic.Error;
 import com.google.gson.Gson;
 import org.junit.Before;
 import org.junit.Test;
 
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static com.crossover.trial.weather.validation.generic.ErrorCode.INVALID_VALUE;
@@ -158,6 +162,30 @@ public class AirportEndpointTest {
                 errors);
     }
 
+    @Test
+    public void testAddAirports() {
+        String airportsDat = "1,\"Frankfurt Main\",\"Frankfurt\",\"Germany\",\"FRA\",\"EDDF\",50.026421,8.543125,364,1,\"E\"\n"
+                + "2,\"No Code\",\"Nowhere\",\"Germany\",\\N,\"EDXX\",50,8,0,1,\"E\"\n"
+                + "3,\"Invalid\",\"Nowhere\",\"Germany\",\"frx\",\"EDXY\",50,8,0,1,\"E\"\n"
+                + "4,\"Truncated\",\"Nowhere\"\n";
+        Response response = _update.addAirports(new ByteArrayInputStream(airportsDat.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(200, response.getStatus());
+        ImportResult result = (ImportResult) response.getEntity();
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getSkipped());
+        assertEquals(2, result.getRejected());
+        assertEquals(new HashSet<>(Arrays.asList(3, 4)), result.getErrors().keySet());
+        assertEquals(new Error(INVALID_VALUE, "iata", "The iata code is formed of 3 upper case letters"),
+                result.getErrors().get(3));
+
+        AirportData frankfurt = (AirportData) _update.getAirport("FRA").getEntity();
+        assertEquals("Frankfurt Main", frankfurt.getName());
+        assertEquals("EDDF", frankfurt.getIcao());
+        assertEquals(364, frankfurt.getAltitude(), 0.0);
+        assertEquals(DST.Europe, frankfurt.getDst());
+        assertList(new HashSet<>(Arrays.asList("BOS", "EWR", "JFK", "LGA", "MMU", "FRA")));
+    }
+
     private void assertList(Set<String> expected) {
         Response response = _update.getAirports();
         assertEquals(200, response.getStatus());
@@ -0,0 +1,99 @@
+package com.crossover.trial.weather.endpoint;
+
+import org.junit.Test;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link QueryExecutor}
+ */
+public class QueryExecutorTest {
+
+    @Test
+    public void testExecuteOnExecutorThread() throws InterruptedException {
+        QueryExecutor queryExecutor = new QueryExecutor(true, 1, 1);
+        BlockingQueue<Thread> threads = new ArrayBlockingQueue<>(1);
+        BlockingQueue<Response> responses = new ArrayBlockingQueue<>(1);
+
+        queryExecutor.execute(() -> {
+            threads.add(Thread.currentThread());
+            return Response.ok().build();
+        }, responses::add);
+
+        assertEquals(200, responses.poll(5, TimeUnit.SECONDS).getStatus());
+        assertNotSame(Thread.currentThread(), threads.poll());
+    }
+
+    @Test
+    public void testRejectWhenFull() throws InterruptedException {
+        QueryExecutor queryExecutor = new QueryExecutor(true, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        BlockingQueue<Response> responses = new ArrayBlockingQueue<>(3);
+
+        queryExecutor.execute(() -> {
+            started.countDown();
+            await(release);
+            return Response.ok().build();
+        }, responses::add);
+        started.await(5, TimeUnit.SECONDS);
+        queryExecutor.execute(() -> Response.ok().build(), responses::add);
+        assertEquals(2, queryExecutor.getPendingCount());
+
+        queryExecutor.execute(() -> Response.ok().build(), responses::add);
+        assertEquals(503, responses.poll(5, TimeUnit.SECONDS).getStatus());
+
+        release.countDown();
+        assertEquals(200, responses.poll(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(200, responses.poll(5, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    public void testSynchronousMode() {
+        QueryExecutor queryExecutor = new QueryExecutor(false, 1, 1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        AtomicReference<Response> response = new AtomicReference<>();
+
+        queryExecutor.execute(() -> {
+            thread.set(Thread.currentThread());
+            return Response.ok().build();
+        }, response::set);
+
+        assertSame(Thread.currentThread(), thread.get());
+        assertEquals(200, response.get().getStatus());
+    }
+
+    @Test
+    public void testExceptions() {
+        QueryExecutor queryExecutor = new QueryExecutor(false, 1, 1);
+        AtomicReference<Response> response = new AtomicReference<>();
+
+        queryExecutor.execute(() -> {
+            throw new NotFoundException();
+        }, response::set);
+        assertEquals(404, response.get().getStatus());
+
+        queryExecutor.execute(() -> {
+            throw new IllegalStateException("expected by the test");
+        }, response::set);
+        assertEquals(500, response.get().getStatus());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
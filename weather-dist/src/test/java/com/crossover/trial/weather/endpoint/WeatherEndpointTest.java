@@ -2,21 +2,34 @@ package com.crossover.trial.weather.endpoint;
 
 import com.crossover.trial.weather.TestUtils;
 import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.BatchResult;
 import com.crossover.trial.weather.model.DataPoint;
 import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.model.RadiusAggregate;
 import com.crossover.trial.weather.validation.generic.Error;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.crossover.trial.weather.validation.generic.ErrorCode.INVALID_VALUE;
 import static com.crossover.trial.weather.validation.generic.ErrorCode.MISSING_PARAMETER;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -46,11 +59,13 @@ public class WeatherEndpointTest {
         JsonElement pingResult = new JsonParser().parse(ping);
         assertEquals(1, pingResult.getAsJsonObject().get("datasize").getAsInt());
         assertEquals(5, pingResult.getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
+        assertEquals(0.05, pingResult.getAsJsonObject().get("error_bounds").getAsJsonObject()
+                .get("radius_log_freq_relative").getAsDouble(), 0);
     }
 
     @Test
     public void testGet() throws Exception {
-        List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.weather("BOS", "0").getEntity();
+        List<AtmosphericInformation> ais = weather("BOS", "0");
         assertEquals(ais.get(0).getWind(), _dp);
     }
 
@@ -88,7 +103,7 @@ public class WeatherEndpointTest {
         _dp.setMean(30);
         _update.updateWeather("LGA", "wind", _gson.toJson(_dp));
 
-        List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.weather("JFK", "200").getEntity();
+        List<AtmosphericInformation> ais = weather("JFK", "200");
         assertEquals(3, ais.size());
         // added more assertions
         checkAtmosphericInformation(new DataPoint.Builder()
@@ -133,7 +148,7 @@ public class WeatherEndpointTest {
                 .withCount(4).withFirst(10).withMedian(60).withLast(100).withMean(50).build();
         _update.updateWeather("BOS", "cloudcover", _gson.toJson(expectedCloudCoverDp));
 
-        List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.weather("BOS", "0").getEntity();
+        List<AtmosphericInformation> ais = weather("BOS", "0");
         assertEquals(expectedWindDp, ais.get(0).getWind());
         assertEquals(expectedCloudCoverDp, ais.get(0).getCloudCover());
     }
@@ -184,6 +199,128 @@ public class WeatherEndpointTest {
                 errors);
     }
 
+    @Test
+    public void testUpdateWeatherBatch() {
+        DataPoint cloudCover = new DataPoint.Builder()
+                .withCount(4).withFirst(10).withMedian(60).withLast(100).withMean(50).build();
+        String records = "[" +
+                "{\"iata\":\"jfk\",\"pointType\":\"wind\",\"dataPoint\":" + _gson.toJson(_dp) + "}," +
+                "{\"iata\":\"JFK\",\"pointType\":\"CLOUDCOVER\",\"dataPoint\":" + _gson.toJson(cloudCover) + "}," +
+                "{\"iata\":\"XYZ\",\"pointType\":\"wind\",\"dataPoint\":" + _gson.toJson(_dp) + "}," +
+                "{\"iata\":\"LGA\",\"pointType\":\"pressure\",\"dataPoint\":" + _gson.toJson(_dp) + "}" +
+                "]";
+
+        Response response = _update.updateWeatherBatch(new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(200, response.getStatus());
+        BatchResult result = (BatchResult) response.getEntity();
+        assertEquals(2, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertArrayEquals(new int[]{200, 200, 404, 400}, result.getStatus());
+        assertEquals(Collections.singletonList(
+                new Error(INVALID_VALUE, "mean", "Mean must by a decimal number between 650 and 799")),
+                result.getErrors().get(3));
+
+        List<AtmosphericInformation> ais = weather("JFK", "0");
+        assertEquals(_dp, ais.get(0).getWind());
+        assertEquals(cloudCover, ais.get(0).getCloudCover());
+    }
+
+    @Test
+    public void testUpdateWeatherBatchMalformed() {
+        Response response = _update.updateWeatherBatch(
+                new ByteArrayInputStream("{\"iata\":\"BOS\"}".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testHistory() {
+        DataPoint stronger = new DataPoint.Builder()
+                .withCount(10).withFirst(20).withMedian(30).withLast(40).withMean(32).build();
+        _update.updateWeather("BOS", "wind", _gson.toJson(stronger));
+
+        JsonArray readings = history("BOS", "wind", null, null);
+        assertEquals(2, readings.size());
+        assertEquals(22, readings.get(0).getAsJsonObject().get("mean").getAsDouble(), 0);
+        assertEquals(32, readings.get(1).getAsJsonObject().get("mean").getAsDouble(), 0);
+
+        long latest = readings.get(1).getAsJsonObject().get("time").getAsLong();
+        assertEquals(2, history("BOS", "wind", null, Long.toString(latest)).size());
+        assertEquals(0, history("BOS", "wind", Long.toString(latest + 1), null).size());
+        assertEquals(0, history("BOS", "humidty", null, null).size());
+
+        assertEquals(404, _query.history("XYZ", "wind", null, null).getStatus());
+        Response invalid = _query.history("BOS", "snow", "yesterday", null);
+        assertEquals(400, invalid.getStatus());
+        assertEquals(Arrays.asList("pointType", "from"), ((List<Error>) invalid.getEntity()).stream()
+                .map(Error::getParameter).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testAggregate() {
+        _dp.setMean(40);
+        _update.updateWeather("JFK", "wind", _gson.toJson(_dp));
+        _update.updateWeather("LGA", "temperature", _gson.toJson(_dp));
+
+        RadiusAggregate wind = (RadiusAggregate) _query.aggregate("JFK", "400", "wind").getEntity();
+        assertEquals(2, wind.getCount());
+        assertEquals(31, wind.getMean(), 1e-9);
+        assertEquals(22, wind.getMin(), 0);
+        assertEquals(40, wind.getMax(), 0);
+        assertEquals(0, ((RadiusAggregate) _query.aggregate("JFK", "0", "humidty").getEntity()).getCount());
+
+        assertEquals(404, _query.aggregate("XYZ", "10", "wind").getStatus());
+        assertEquals(400, _query.aggregate("JFK", "-1", "snow").getStatus());
+    }
+
+    @Test
+    public void testSubscribeInvalid() {
+        assertEquals(400, subscribeStatus(Collections.emptyList(), null));
+        assertEquals(400, subscribeStatus(Collections.singletonList("BOS,jf"), null));
+        assertEquals(400, subscribeStatus(Collections.singletonList("BOS,JFK"), "100"));
+        assertEquals(400, subscribeStatus(Collections.singletonList("BOS"), "-1"));
+        assertEquals(404, subscribeStatus(Arrays.asList("BOS", "XYZ"), null));
+    }
+
+    private int subscribeStatus(List<String> iataCodes, String radius) {
+        try {
+            _query.subscribe(iataCodes, radius);
+        } catch (WebApplicationException e) {
+            return e.getResponse().getStatus();
+        }
+        return 200;
+    }
+
+    /**
+     * Read the streamed json history back.
+     */
+    private JsonArray history(String iata, String pointType, String from, String to) {
+        Response response = _query.history(iata, pointType, from, to);
+        assertEquals(200, response.getStatus());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ((StreamingOutput) response.getEntity()).write(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new JsonParser().parse(new String(output.toByteArray(), StandardCharsets.UTF_8)).getAsJsonArray();
+    }
+
+    /**
+     * Query the weather and read the streamed json back.
+     */
+    private List<AtmosphericInformation> weather(String iata, String radius) {
+        Response response = _query.weather(iata, radius);
+        assertEquals(200, response.getStatus());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ((StreamingOutput) response.getEntity()).write(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return _gson.fromJson(new String(output.toByteArray(), StandardCharsets.UTF_8),
+                new TypeToken<List<AtmosphericInformation>>(){}.getType());
+    }
+
     private void assertList(Set<String> expected) {
         Response response = _update.getAirports();
         assertEquals(200, response.getStatus());
@@ -0,0 +1,157 @@
+package com.crossover.trial.weather.endpoint;
+
+import com.crossover.trial.weather.TestUtils;
+import com.crossover.trial.weather.data.InformationDataStore;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link WeatherUpdatePublisher}
+ */
+public class WeatherUpdatePublisherTest {
+
+    private final InformationDataStore store = InformationDataStore.getInstance();
+
+    private WeatherUpdatePublisher publisher;
+
+    @Before
+    public void setUp() {
+        TestUtils.init();
+        publisher = new WeatherUpdatePublisher(store, 20, 2, 1);
+    }
+
+    @After
+    public void tearDown() {
+        publisher.close();
+    }
+
+    @Test
+    public void testCurrentThenUpdatedInformation() throws Exception {
+        update("BOS", 1);
+        RecordingSink sink = new RecordingSink();
+        publisher.subscribe(Arrays.asList("BOS", "JFK"), sink);
+
+        assertMean(sink.poll(), "BOS", 1);
+        assertAirport(sink.poll(), "JFK");
+        update("JFK", 2);
+        assertMean(sink.poll(), "JFK", 2);
+        update("EWR", 3);
+        update("BOS", 4);
+        assertMean(sink.poll(), "BOS", 4);
+        assertNull(sink.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSlowSubscriberSkipsIntermediateValues() throws Exception {
+        // the dispatches are run by the test, the dispatcher would only run one in an hour
+        publisher.close();
+        publisher = new WeatherUpdatePublisher(store, TimeUnit.HOURS.toMillis(1), 2, 1);
+        RecordingSink sink = new RecordingSink();
+        sink.blocked = new CountDownLatch(1);
+        WeatherUpdatePublisher.Subscriber subscriber = publisher.subscribe(Arrays.asList("BOS", "JFK"), sink);
+
+        // the writer is now blocked on the first event, the current information of the airports
+        assertAirport(sink.poll(), "BOS");
+        for (int i = 1; i <= 10; i++) {
+            update("BOS", i);
+            publisher.dispatch();
+        }
+        update("JFK", 11);
+        publisher.dispatch();
+        // the queue holds 2 airports, the oldest is dropped
+        subscriber.offer("LGA", "LGA");
+        sink.blocked.countDown();
+
+        assertMean(sink.poll(), "BOS", 10);
+        assertEquals("LGA", sink.poll());
+        assertNull(sink.events.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(subscriber.getDroppedCount() >= 3);
+    }
+
+    @Test
+    public void testFailedSubscriberIsRemoved() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        sink.failing = true;
+        publisher.subscribe(Collections.singletonList("BOS"), sink);
+
+        // sending the current information fails
+        assertTrue(sink.closed.await(1, TimeUnit.SECONDS));
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    private void update(String iataCode, int mean) {
+        DataPoint wind = new DataPoint.Builder()
+                .withMean(mean).withFirst(mean).withMedian(mean).withLast(mean).withCount(1).build();
+        store.updateDataPoint(store.findAirportData(iataCode), new AtmosphericInformation.Builder().withWind(wind)
+                .build());
+    }
+
+    private static void assertMean(String event, String iataCode, int mean) {
+        assertAirport(event, iataCode);
+        assertTrue(event, event.contains("\"mean\":" + mean + ".0,"));
+        assertTrue(event, event.endsWith("}}\n\n"));
+    }
+
+    private static void assertAirport(String event, String iataCode) {
+        assertTrue(event, event.startsWith("event: weather\nid: " + iataCode + "\ndata: {\"iata\":\"" + iataCode
+                + "\",\"atmosphericInformation\":{"));
+    }
+
+    private static class RecordingSink implements WeatherUpdatePublisher.EventSink {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        /** when not null, the sink waits for it after the first event */
+        private volatile CountDownLatch blocked;
+
+        private volatile boolean failing;
+
+        @Override
+        public void send(String event) throws IOException {
+            if (failing) {
+                throw new IOException("disconnected");
+            }
+            events.add(event);
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed.getCount() == 0;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        String poll() throws InterruptedException {
+            String event = events.poll(1, TimeUnit.SECONDS);
+            assertTrue("no event", event != null);
+            return event;
+        }
+    }
+}
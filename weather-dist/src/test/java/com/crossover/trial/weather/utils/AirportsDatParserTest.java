@@ -0,0 +1,97 @@
+package com.crossover.trial.weather.utils;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.DST;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link AirportsDatParser}
+ */
+public class AirportsDatParserTest {
+
+    private final List<AirportData> airports = new ArrayList<>();
+
+    private final List<Integer> malformed = new ArrayList<>();
+
+    private final AirportsDatParser parser = new AirportsDatParser(new AirportsDatParser.Listener() {
+        @Override
+        public void airport(int line, AirportData airportData) {
+            airports.add(airportData);
+        }
+
+        @Override
+        public void malformed(int line, String message) {
+            malformed.add(line);
+        }
+    });
+
+    @Test
+    public void testParse() {
+        parse("1,\"General Edward Lawrence Logan Intl\",\"Boston\",\"United States\",\"BOS\",\"KBOS\","
+                + "42.364347,-71.005181,19,-5,\"A\"\r\n"
+                + "2,\"Say \"\"Cheese\"\", Intl\",\"Paris, Texas\",\\N,\"\",\\N,-0.5,10.25,\\N,5.5,\\N,\"extra\"\n");
+
+        assertEquals(2, airports.size());
+        AirportData bos = airports.get(0);
+        assertEquals("General Edward Lawrence Logan Intl", bos.getName());
+        assertEquals("Boston", bos.getCity());
+        assertEquals("BOS", bos.getIata());
+        assertEquals("KBOS", bos.getIcao());
+        assertEquals(42.364347, bos.getLatitude(), 0.0);
+        assertEquals(-71.005181, bos.getLongitude(), 0.0);
+        assertEquals(19, bos.getAltitude(), 0.0);
+        assertEquals(-5, bos.getTimezone(), 0.0);
+        assertEquals(DST.USCanada, bos.getDst());
+
+        AirportData other = airports.get(1);
+        assertEquals("Say \"Cheese\", Intl", other.getName());
+        assertEquals("Paris, Texas", other.getCity());
+        assertNull(other.getCountry());
+        assertNull(other.getIata());
+        assertEquals(-0.5, other.getLatitude(), 0.0);
+        assertEquals(0, other.getAltitude(), 0.0);
+        assertEquals(5.5, other.getTimezone(), 0.0);
+        assertEquals(DST.Unknown, other.getDst());
+    }
+
+    @Test
+    public void testParseIncompleteLine() {
+        String complete = "1,\"A\",\"B\",\"C\",\"AAA\",\"D\",1,2,3,4,\"E\"\n";
+        ByteBuffer buffer = ByteBuffer.wrap((complete + "2,\"A\",\"B\",\"C\",\"BBB\"").getBytes(StandardCharsets.UTF_8));
+        parser.parse(buffer, false);
+        assertEquals(1, airports.size());
+        assertEquals(complete.length(), buffer.position());
+
+        parser.parse(buffer, true);
+        assertEquals(1, airports.size());
+        assertEquals(buffer.limit(), buffer.position());
+        assertEquals(1, malformed.size());
+        assertEquals(2, (int) malformed.get(0));
+    }
+
+    @Test
+    public void testParseMalformed() {
+        parse("1,\"A\",\"B\",\"C\",\"AAA\",\"D\",north,2,3,4,\"E\"\n"
+                + "2,\"A,\"B\",\"C\",\"BBB\",\"D\",1,2,3,4,\"E\"\n"
+                + "\n"
+                + "4,\"A\",\"B\"\n"
+                + "5,\"A\",\"B\",\"C\",\"DDD\",\"D\",1e1,2,3,4,\"E\"\n");
+
+        assertEquals(1, airports.size());
+        assertEquals(10, airports.get(0).getLatitude(), 0.0);
+        assertEquals(3, malformed.size());
+        assertEquals(4, (int) malformed.get(2));
+    }
+
+    private void parse(String content) {
+        parser.parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), true);
+    }
+}
@@ -0,0 +1,57 @@
+package com.crossover.trial.weather.utils;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link AtmosphericInformationJsonWriter}
+ */
+public class AtmosphericInformationJsonWriterTest {
+
+    @Test
+    public void testWriteMatchesJackson() throws IOException {
+        List<AtmosphericInformation> list = new ArrayList<>();
+        list.add(new AtmosphericInformation.Builder().build());
+        list.add(new AtmosphericInformation.Builder()
+                .withWind(new DataPoint.Builder().withMean(22).withFirst(10).withMedian(20).withLast(30).withCount(10).build())
+                .withPressure(new DataPoint.Builder().withMean(-0.0).withCount(-4).build())
+                .withTemperature(new DataPoint.Builder().withMean(12345678.25).build())
+                .withCloudCover(new DataPoint.Builder().withMean(1e-7).withFirst(Integer.MIN_VALUE).build())
+                .withHumidity(new DataPoint.Builder().withMean(-1e21).withFirst(Integer.MAX_VALUE).build())
+                .build());
+
+        // a small buffer so that the bytes are drained many times
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output, 64);
+        writer.beginArray();
+        for (AtmosphericInformation atmosphericInformation : list) {
+            writer.write(atmosphericInformation);
+        }
+        writer.endArray();
+        writer.flush();
+
+        assertEquals(new ObjectMapper().writeValueAsString(list),
+                new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteEmptyArray() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtmosphericInformationJsonWriter writer = new AtmosphericInformationJsonWriter(output);
+        writer.beginArray();
+        writer.endArray();
+        writer.flush();
+
+        assertEquals("[]", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
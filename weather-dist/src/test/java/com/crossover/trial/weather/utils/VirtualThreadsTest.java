@@ -0,0 +1,39 @@
+package com.crossover.trial.weather.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Tests for {@link VirtualThreads}
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    public void testNewVirtualThreadPerTaskExecutor() throws InterruptedException, ExecutionException,
+            TimeoutException {
+        if (!VirtualThreads.isSupported()) {
+            try {
+                VirtualThreads.newVirtualThreadPerTaskExecutor();
+            } catch (UnsupportedOperationException expected) {
+                return;
+            }
+            throw new AssertionError("Expected the executor to be unsupported on Java "
+                    + System.getProperty("java.version"));
+        }
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertNotSame(Thread.currentThread(), thread);
+            assertEquals(true, thread.isDaemon());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -67,11 +67,23 @@ public class DataPointValidationRuleTest {
                 new Error(ErrorCode.INVALID_VALUE, "mean", "Mean must by a decimal number between 0 and 99"));
     }
 
+    @Test
+    public void testIsValid() {
+        DataPoint dataPoint = new DataPoint.Builder()
+                .withFirst(10).withMedian(20).withLast(30).withCount(10).withMean(20).build();
+        Assert.assertTrue(DataPointValidationRule.isValid(DataPointType.WIND, dataPoint));
+        Assert.assertFalse(DataPointValidationRule.isValid(DataPointType.PRESSURE, dataPoint));
+        Assert.assertFalse(DataPointValidationRule.isValid(DataPointType.WIND, null));
+        Assert.assertEquals(DataPointType.WIND, DataPointTypeValidationRule.parse("wInD"));
+        Assert.assertNull(DataPointValidationRule.parse("{\"mean\": \"high\"}"));
+    }
+
     private void testInvalidMean(DataPointType dataPointType, double mean, Error expectedError) {
         DataPoint.Builder builder = new DataPoint.Builder().withFirst(10).withMedian(20).withLast(30).withCount(10);
         List<Error> errors = dataPointValidationRule.apply(
                 new DataPointWithType(dataPointType.name(), _gson.toJson(builder.withMean(mean).build())));
         Assert.assertEquals(1, errors.size());
         Assert.assertEquals(expectedError, errors.get(0));
+        Assert.assertFalse(DataPointValidationRule.isValid(dataPointType, builder.withMean(mean).build()));
     }
 }